@@ -1,16 +1,29 @@
 package fr.baba.app;
 
+import fr.baba.engine.CompiledLevel;
 import fr.baba.engine.Level;
+import fr.baba.engine.LevelCache;
+import fr.baba.engine.LevelPack;
+import fr.baba.engine.LevelValidator;
+import fr.baba.engine.Replay;
+import fr.baba.engine.board.Board;
+import fr.baba.engine.solver.ScalingReport;
+import fr.baba.engine.solver.Solver;
+import fr.baba.server.GameServer;
+import fr.baba.server.LoadTest;
 import fr.umlv.zen5.Application;
 import fr.umlv.zen5.ApplicationContext;
 
 import java.awt.*;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 public class Game {
@@ -18,16 +31,64 @@ public class Game {
     private static final String DEFAULT_FILE = "levels/default-level.txt";
     private static final String LEVELS_OPTION = "--levels";
     private static final String LEVEL_OPTION = "--level";
+    private static final String SOLVE_OPTION = "--solve";
+    private static final String ASTAR_OPTION = "--astar";
+    private static final String THREADS_OPTION = "--threads";
+    private static final String SCALING_OPTION = "--scaling";
+    private static final String RECORD_OPTION = "--record";
+    private static final String REPLAY_OPTION = "--replay";
+    private static final String REPLAY_EXTENSION = ".replay";
+    private static final String VALIDATE_OPTION = "--validate";
+    private static final String MAX_STATES_OPTION = "--max-states";
+    private static final String SERVE_OPTION = "--serve";
+    private static final String LOAD_TEST_OPTION = "--load-test";
+    private static final String COMPILE_OPTION = "--compile";
+    private static final String PACK_OPTION = "--pack";
+    private static final String BUILD_PACK_OPTION = "--build-pack";
+    private static final int PREFETCH_DEPTH = 2;
+    private static final long MAX_PREFETCHED_BYTES = 64L << 20;
+    private static final String DEFAULT_LEVELS_DIRECTORY = "levels";
+    private static final int LOAD_TEST_TURNS = 1000;
 
     private final List<String> filesToOpen = new ArrayList<>();
+    private final String fileToSolve;
+    private final Solver.Strategy solverStrategy;
+    private final int solverThreads; // 0 to search on a single thread
+    private final boolean measureScaling;
+    private final String recordDirectory;
+    private final String fileToReplay;
+    private final String directoryToValidate;
+    private final int validationMaxStates;
+    private final String serverPort;
+    private final String loadTestSessions;
+    private final String levelsDirectory;
+    private final String compileDirectory;
+    private final String packToBuild;
+    private final LevelPack pack; // null unless --pack is given
+    private final LevelCache levelCache = new LevelCache(LevelCache.DEFAULT_MAX_BYTES);
 
     /**
      * Creates a baba is you game.
-     * @param args cmd options like --levels, --level.
+     * @param args cmd options like --levels, --level, --solve, --record, --replay, --validate, --serve, --compile, --pack.
      */
     Game(String[] args){
         Objects.requireNonNull(args);
+        fileToSolve = parseOptionValue(args, SOLVE_OPTION);
+        solverStrategy = Arrays.asList(args).contains(ASTAR_OPTION) ? Solver.Strategy.astar : Solver.Strategy.bfs;
+        var threads = parseOptionValue(args, THREADS_OPTION);
+        solverThreads = threads == null ? 0 : parseThreads(threads);
+        measureScaling = Arrays.asList(args).contains(SCALING_OPTION);
+        recordDirectory = parseOptionValue(args, RECORD_OPTION);
+        fileToReplay = parseOptionValue(args, REPLAY_OPTION);
+        directoryToValidate = parseOptionValue(args, VALIDATE_OPTION);
+        var maxStates = parseOptionValue(args, MAX_STATES_OPTION);
+        validationMaxStates = maxStates == null ? LevelValidator.DEFAULT_MAX_STATES : parseMaxStates(maxStates);
+        serverPort = parseOptionValue(args, SERVE_OPTION);
+        loadTestSessions = parseOptionValue(args, LOAD_TEST_OPTION);
+        compileDirectory = parseOptionValue(args, COMPILE_OPTION);
+        packToBuild = parseOptionValue(args, BUILD_PACK_OPTION);
         String selectedDirectory = ParseLevelsDirectory(args);
+        levelsDirectory = selectedDirectory == null ? DEFAULT_LEVELS_DIRECTORY : selectedDirectory;
         ParseLevelFile(args);
         if(selectedDirectory != null)
             try {
@@ -35,6 +96,40 @@ public class Game {
             }catch (IOException e){
                 System.out.println("Could not open directory " + selectedDirectory + ".");
             }
+        pack = openPack(parseOptionValue(args, PACK_OPTION));
+        if(pack != null && filesToOpen.isEmpty())
+            filesToOpen.addAll(pack.getNames());
+    }
+
+    /**
+     * Opens the level pack given with --pack, whose levels are then opened by name
+     * (every level of the pack, unless --level names one of them).
+     * @param packFile value of the --pack option
+     * @return the pack, null if there is none or it couldn't be opened
+     */
+    private static LevelPack openPack(String packFile){
+        if(packFile == null)
+            return null;
+        try{
+            return LevelPack.open(Path.of(packFile));
+        }catch (IOException e){
+            System.out.println(e.getMessage());
+            System.out.println("Could not open level pack " + packFile + ".");
+            return null;
+        }
+    }
+
+    /**
+     * Loads the board of a level, from the level pack if it holds a level of that name,
+     * from the file of that name otherwise, which is parsed only once (see LevelCache).
+     * @param file name of the level
+     * @return the board of the level
+     * @throws IOException if the level couldn't be read
+     */
+    private Board loadBoard(String file) throws IOException {
+        if(pack != null && pack.indexOf(file) != -1)
+            return pack.loadLevel(file);
+        return levelCache.load(file);
     }
 
     /**
@@ -83,17 +178,248 @@ public class Game {
         }
     }
 
+    /**
+     * Looks for an "option value" pattern in args and returns value
+     * @param args cmd options
+     * @param option option to look for
+     * @return the value of the option, null if it is absent
+     */
+    private static String parseOptionValue(String[] args, String option){
+        for(int i=0; i < args.length-1; i++){
+            if(args[i].equals(option)){
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param threads value of the --threads option
+     * @return the number of threads given, 0 if it is not a number
+     */
+    private static int parseThreads(String threads){
+        try{
+            return Integer.parseInt(threads);
+        }catch (NumberFormatException e){
+            System.out.println("-- Invalid number of threads " + threads + ", searching on a single thread. --");
+            return 0;
+        }
+    }
+
+    /**
+     * @param maxStates value of the --max-states option
+     * @return the maximum number of states given, the default one if it is not a positive number
+     */
+    private static int parseMaxStates(String maxStates){
+        try{
+            int value = Integer.parseInt(maxStates);
+            if(value > 0)
+                return value;
+        }catch (NumberFormatException e){
+            // reported below
+        }
+        System.out.println("-- Invalid number of states " + maxStates + ", searching " + LevelValidator.DEFAULT_MAX_STATES + " states. --");
+        return LevelValidator.DEFAULT_MAX_STATES;
+    }
+
+    /**
+     * Checks every level of the directory given with --validate, if any, in parallel
+     * and without opening a window, and prints a report as JSON lines: one line per level,
+     * then a summary line. Exits with status 1 if a level is invalid.
+     * @return false if no directory is to be validated
+     */
+    boolean validate(){
+        if(directoryToValidate == null)
+            return false;
+        long start = System.nanoTime();
+        try{
+            var reports = LevelValidator.validateAll(directoryToValidate, validationMaxStates);
+            reports.forEach(report -> System.out.println(report.toJson()));
+            long invalid = reports.stream().filter(report -> !report.isValid()).count();
+            long warned = reports.stream().filter(report -> !report.getWarnings().isEmpty()).count();
+            System.out.printf("{\"levels\":%d,\"invalid\":%d,\"warnings\":%d,\"maxStates\":%d,\"threads\":%d,\"elapsedMs\":%.3f}%n",
+                    reports.size(), invalid, warned, validationMaxStates, ForkJoinPool.getCommonPoolParallelism(), (System.nanoTime() - start) / 1e6);
+            if(invalid != 0)
+                System.exit(1);
+        }catch (IOException e){
+            System.out.println("Could not open directory " + directoryToValidate + ".");
+            System.exit(1);
+        }
+        return true;
+    }
+
+    /**
+     * Writes the levels given with --level or --levels to the level pack given with --build-pack, if any.
+     * @return false if no pack is to be built
+     */
+    boolean buildPack(){
+        if(packToBuild == null)
+            return false;
+        try{
+            LevelPack.write(filesToOpen, Path.of(packToBuild));
+            System.out.println("-- " + filesToOpen.size() + " levels packed to " + packToBuild + ". --");
+        }catch (IOException e){
+            System.out.println(e.getMessage());
+            System.out.println("-- Level pack " + packToBuild + " cannot be written. --");
+        }
+        return true;
+    }
+
+    /**
+     * Compiles the levels given with --level or --levels, if --compile is given,
+     * writing them to its directory under their name followed by CompiledLevel.EXTENSION.
+     * @return false if no level is to be compiled
+     */
+    boolean compile(){
+        if(compileDirectory == null)
+            return false;
+        for(var file : filesToOpen){
+            var output = Path.of(compileDirectory, Path.of(file).getFileName() + CompiledLevel.EXTENSION);
+            try{
+                CompiledLevel.compile(file, output);
+                System.out.println("-- Level " + file + " compiled to " + output + ". --");
+            }catch (IOException e){
+                System.out.println(e.getMessage());
+                System.out.println("-- Level " + file + " cannot be compiled to " + output + ". --");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts a game server on the port given with --serve, if any, letting clients play
+     * the levels of the directory given with --levels (the levels directory otherwise),
+     * and serves them until the program is stopped.
+     * @return false if no server is to be started
+     */
+    boolean serve(){
+        if(serverPort == null)
+            return false;
+        try{
+            var server = new GameServer(Path.of(levelsDirectory), Integer.parseInt(serverPort));
+            System.out.println("-- Serving the levels of " + levelsDirectory + " on port " + server.getPort() + ". --");
+        }catch (IllegalArgumentException e){
+            System.out.println("-- Invalid port " + serverPort + ". --");
+        }catch (IOException e){
+            System.out.println(e.getMessage());
+            System.out.println("-- Server cannot be started on port " + serverPort + ". --");
+        }
+        return true;
+    }
+
+    /**
+     * Runs a load test of the game server with the number of sessions given with --load-test, if any,
+     * each one playing random moves on the level given with --level (the default level otherwise),
+     * and prints the throughput, latency and memory measured.
+     * @return false if no load test is to be run
+     */
+    boolean loadTest(){
+        if(loadTestSessions == null)
+            return false;
+        var file = Path.of(filesToOpen.isEmpty() ? DEFAULT_FILE : filesToOpen.get(0));
+        try{
+            int sessions = Integer.parseInt(loadTestSessions);
+            System.out.println("-- Load test of " + sessions + " sessions playing " + LOAD_TEST_TURNS + " moves on level " + file + ". --");
+            System.out.println(LoadTest.run(file.toAbsolutePath().getParent(), file.getFileName().toString(), sessions, LOAD_TEST_TURNS));
+        }catch (NumberFormatException e){
+            System.out.println("-- Invalid number of sessions " + loadTestSessions + ". --");
+        }catch (IllegalArgumentException | IOException e){
+            System.out.println(e.getMessage());
+            System.out.println("-- Load test cannot be run on level " + file + ". --");
+        }
+        return true;
+    }
+
+    /**
+     * Solves the level given with --solve, if any, without opening a window,
+     * and prints the shortest solution found along with the search statistics.
+     * With --threads, the search is spread over that many threads (breadth-first),
+     * and with --scaling as well, its speed is measured for 1, 2, 4... threads up to that many.
+     * @return false if no level is to be solved
+     */
+    boolean solve(){
+        if(fileToSolve == null)
+            return false;
+        try{
+            var board = loadBoard(fileToSolve);
+            var solver = new Solver(board);
+            if(solverThreads <= 0){
+                System.out.println("-- Solving level " + fileToSolve + " (" + solverStrategy + "). --");
+                System.out.println(solver.solve(solverStrategy));
+            }else if(measureScaling){
+                System.out.println("-- Measuring the scaling of the search of level " + fileToSolve + " up to " + solverThreads + " threads. --");
+                System.out.println(ScalingReport.measure(solver, solverThreads));
+            }else{
+                System.out.println("-- Solving level " + fileToSolve + " on " + solverThreads + " threads. --");
+                var pool = new ForkJoinPool(solverThreads);
+                try{
+                    System.out.println(solver.solveInParallel(pool));
+                }finally{
+                    pool.shutdown();
+                }
+            }
+        }catch (IOException e){
+            System.out.println(e.getMessage());
+            System.out.println("-- Level "+ fileToSolve + " cannot be opened. --");
+        }
+        return true;
+    }
+
+    /**
+     * Plays the replay given with --replay, if any, without opening a window,
+     * on the level given with --level (the default level otherwise),
+     * and prints whether it leads to the board it has been recorded with.
+     * @return false if no replay is to be played
+     */
+    boolean playReplay(){
+        if(fileToReplay == null)
+            return false;
+        var file = filesToOpen.isEmpty() ? DEFAULT_FILE : filesToOpen.get(0);
+        try{
+            var board = loadBoard(file);
+            var replay = Replay.read(Path.of(fileToReplay));
+            long start = System.nanoTime();
+            var verdict = replay.verify(board);
+            System.out.printf("-- Replay %s of level %s : %d moves, %s (%.1f ms). --%n",
+                    fileToReplay, file, replay.getLength(), verdict, (System.nanoTime() - start) / 1e6);
+        }catch (IOException e){
+            System.out.println(e.getMessage());
+            System.out.println("-- Replay "+ fileToReplay + " cannot be played on level " + file + ". --");
+        }
+        return true;
+    }
+
+    /**
+     * Writes the replay of level to the directory given with --record, if any.
+     * @param level level which has been played
+     * @param file name of the file that contains the level
+     */
+    private void saveReplay(Level level, String file){
+        if(recordDirectory == null)
+            return;
+        var path = Path.of(recordDirectory, Path.of(file).getFileName() + REPLAY_EXTENSION);
+        try{
+            level.getReplay().write(path);
+            System.out.println("-- Replay of level "+ file + " saved to " + path + ". --");
+        }catch (IOException e){
+            System.out.println(e.getMessage());
+            System.out.println("-- Replay of level "+ file + " cannot be saved to " + path + ". --");
+        }
+    }
+
     /**
      * Launches the level specified by file.
      * @param context context in which the level will be launched
      * @param file name of the file that contains the level
+     * @param pipeline pipeline loading the levels ahead of time
      * @return true if file was successfully opened, false if not
      */
-    private boolean launchLevel(ApplicationContext context, String file){
+    private boolean launchLevel(ApplicationContext context, String file, LevelPipeline pipeline){
         try{
-            var level = new Level(file);
+            var level = new Level(pipeline.take(file));
             System.out.println("-- Level "+ file + " opened and running. --");
             level.run(context);
+            saveReplay(level, file);
             return true;
         }catch (IOException e){
             System.out.println(e.getMessage());
@@ -104,22 +430,26 @@ public class Game {
 
     /**
      * Runs the game, opening a window and displaying every level in fileToOpen one by one.
+     * While a level is played, the next ones are loaded in the background.
      */
     public void run(){
         Application.run(BACKGROUND_COLOR, context -> {
         boolean fileHasBeenOpened = false;
-        for(var file : filesToOpen){
-            fileHasBeenOpened |= launchLevel(context, file);
+        try(var pipeline = new LevelPipeline(filesToOpen, this::loadBoard, PREFETCH_DEPTH, MAX_PREFETCHED_BYTES)){
+            for(var file : filesToOpen){
+                fileHasBeenOpened |= launchLevel(context, file, pipeline);
+            }
+            if(!fileHasBeenOpened)
+                launchLevel(context, DEFAULT_FILE, pipeline);
         }
-        if(!fileHasBeenOpened)
-            launchLevel(context, DEFAULT_FILE);
         context.exit(0);
         });
     }
 
     public static void main(String[] args) {
         var game = new Game(args);
-        game.run();
+        if(!game.solve() && !game.playReplay() && !game.validate() && !game.serve() && !game.loadTest() && !game.compile() && !game.buildPack())
+            game.run();
     }
 
 }
@@ -0,0 +1,225 @@
+package fr.baba.app;
+
+import fr.baba.engine.board.Board;
+import fr.baba.engine.boardElement.AbstractTileObject;
+import fr.baba.engine.boardElement.Token;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the levels to be played ahead of time: while a level is played, the next ones
+ * are loaded by a background thread, which also reads the images of their objects,
+ * so that the next level is ready when the current one ends.
+ * Levels are loaded one after the other, the next one only once the previous one is loaded:
+ * at most depth levels are loaded ahead, and no level is loaded ahead once the levels
+ * waiting to be played take maxPendingBytes (see Board.getMemoryFootprint), which the
+ * last level loaded can only exceed by its own memory.
+ */
+final class LevelPipeline implements AutoCloseable {
+    private static final Token[] TOKENS = Token.values();
+
+    /**
+     * Loads the board of a level.
+     */
+    @FunctionalInterface
+    interface BoardLoader {
+        /**
+         * @param file name of the level
+         * @return the board of the level
+         * @throws IOException if the level couldn't be read
+         */
+        Board load(String file) throws IOException;
+    }
+
+    /**
+     * Level loaded, or being loaded, in the background.
+     */
+    private static final class Pending {
+        private final String file;
+        private Future<Board> board;
+        private long bytes; // memory of the board once loaded, counted in pendingBytes
+        private boolean dropped; // whether the level has left the pipeline, its memory not being counted any more
+
+        private Pending(String file){
+            this.file = file;
+        }
+    }
+
+    private final List<String> files;
+    private final BoardLoader loader;
+    private final int depth;
+    private final long maxPendingBytes;
+    // the following fields are guarded by the pipeline itself, shared with the background thread
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>(); // in the order of files
+    private long pendingBytes; // taken by the boards loaded and not yet taken
+    private Pending loading; // level being loaded in the background, null if none
+    private boolean closed;
+    private int nextFile; // index of the next file to be loaded in the background
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "level prefetch");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * Starts loading the first levels of files.
+     * @param files names of the levels, in the order they will be played
+     * @param loader loader of the levels, called from the background thread
+     * @param depth maximum number of levels loaded ahead
+     * @param maxPendingBytes memory taken by the levels loaded ahead beyond which no other one is loaded
+     */
+    LevelPipeline(List<String> files, BoardLoader loader, int depth, long maxPendingBytes){
+        if(depth < 0 || maxPendingBytes < 0)
+            throw new IllegalArgumentException("depth and memory of the pipeline can't be negative");
+        this.files = List.copyOf(files);
+        this.loader = Objects.requireNonNull(loader);
+        this.depth = depth;
+        this.maxPendingBytes = maxPendingBytes;
+        refill();
+    }
+
+    /**
+     * Loads the next level in the background, unless one is being loaded,
+     * or the pipeline is full: it is called again once that level is loaded.
+     */
+    private synchronized void refill(){
+        if(closed || loading != null || nextFile == files.size() || pending.size() >= depth || pendingBytes >= maxPendingBytes)
+            return;
+        var next = new Pending(files.get(nextFile++));
+        loading = next;
+        next.board = executor.submit(() -> prepare(next));
+        pending.add(next);
+    }
+
+    /**
+     * Loads a level and the images of its objects, on the background thread,
+     * then the next level, if the pipeline isn't full.
+     * @param level level to be loaded
+     * @return the board of the level
+     * @throws IOException if the level couldn't be read
+     */
+    private Board prepare(Pending level) throws IOException {
+        try{
+            var board = loader.load(level.file);
+            var used = new boolean[TOKENS.length];
+            for(int square = board.nextUsedSquare(0); square != -1; square = board.nextUsedSquare(square + 1)){
+                int col = board.getColOfSquare(square);
+                int row = board.getRowOfSquare(square);
+                for(int i = 0; i != board.getSquareSize(col, row); i++){
+                    used[board.getObjectOnSquare(col, row, i).getToken().ordinal()] = true;
+                }
+                var background = board.getBackgroundObjectOnGrid(col, row);
+                if(background != null)
+                    used[background.getToken().ordinal()] = true;
+            }
+            for(var token : TOKENS){
+                if(used[token.ordinal()])
+                    AbstractTileObject.loadImage(token);
+            }
+            synchronized(this){
+                if(!level.dropped){
+                    level.bytes = board.getMemoryFootprint();
+                    pendingBytes += level.bytes;
+                }
+            }
+            return board;
+        }finally{
+            synchronized(this){
+                if(loading == level)
+                    loading = null;
+            }
+            refill();
+        }
+    }
+
+    /**
+     * Removes a level from the pipeline, its memory not being counted any more.
+     * A level given up before its load has even started lets the next one be loaded.
+     * @param level level taken, or given up
+     */
+    private synchronized void drop(Pending level){
+        if(loading == level && level.board.isCancelled())
+            loading = null;
+        level.dropped = true;
+        pendingBytes -= level.bytes;
+        level.bytes = 0;
+    }
+
+    /**
+     * @return the memory taken by the levels loaded ahead and not yet taken, in bytes
+     */
+    synchronized long getPendingBytes(){
+        return pendingBytes;
+    }
+
+    /**
+     * Takes the board of a level, waiting for it if it is being loaded in the background,
+     * or loading it right away if it is not the next level of the pipeline, then loads
+     * the following levels in the background.
+     * If the thread is interrupted while waiting, the level is given up by the background
+     * thread and loaded right away, the interrupt status of the thread being kept.
+     * @param file name of the level
+     * @return the board of the level
+     * @throws IOException if the level couldn't be read
+     */
+    Board take(String file) throws IOException {
+        Objects.requireNonNull(file);
+        Pending next;
+        synchronized(this){
+            next = pending.peek();
+            if(next == null || !next.file.equals(file)){
+                if(next == null && nextFile != files.size() && files.get(nextFile).equals(file))
+                    nextFile++; // not loaded ahead, because of the depth or memory of the pipeline
+                next = null;
+            }else{
+                pending.remove();
+            }
+        }
+        if(next == null){
+            try{
+                return loader.load(file);
+            }finally{
+                refill();
+            }
+        }
+        try{
+            return next.board.get();
+        }catch (ExecutionException e){
+            if(e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }catch (InterruptedException e){
+            next.board.cancel(true);
+            Thread.currentThread().interrupt();
+            return loader.load(file);
+        }finally{
+            drop(next);
+            refill();
+        }
+    }
+
+    /**
+     * Stops loading levels in the background.
+     */
+    @Override
+    public void close(){
+        synchronized(this){
+            closed = true;
+            for(var level : pending){
+                drop(level);
+            }
+            pending.clear();
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,292 @@
+package fr.baba.engine;
+
+import fr.baba.engine.board.Board;
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Binary form of a level, built once from its text file so that the level is loaded
+ * without any parsing: the file is memory-mapped, and the board is filled straight
+ * from the mapped bytes. All the numbers are big-endian. A compiled level holds:
+ * - a header: MAGIC, FORMAT_VERSION, the number of columns and rows,
+ *   and a hash of the dimensions and of the content following the header;
+ * - a dictionary of the tokens used: their number (1 byte), then for each one
+ *   the length of its name (1 byte) and its name (ASCII), tokens being referred to
+ *   by their index in the dictionary, so that the file doesn't depend on the order of Token;
+ * - the stacks of objects: the number of non-empty squares (int), their positions
+ *   (int each, row * cols + col), the size of their stacks (unsigned short each),
+ *   then the tokens of the stacks one after the other, from the bottom up (1 byte each);
+ * - the background layer: the number of squares having a background object (int),
+ *   their positions (int each), then their tokens (1 byte each).
+ */
+public final class CompiledLevel {
+    /**
+     * Extension of compiled level files.
+     */
+    public static final String EXTENSION = ".babac";
+    private static final int MAGIC = 0x4241424C; // "BABL"
+    private static final int FORMAT_VERSION = 2; // version 1 didn't hash the dimensions
+    private static final int HEADER_BYTES = 24;
+    private static final int MAX_STACK_SIZE = 0xFFFF;
+    private static final Token[] TOKENS = Token.values();
+    private static final byte[][] TOKEN_NAMES = Arrays.stream(TOKENS). // by token ordinal
+            map(token -> token.name().getBytes(StandardCharsets.US_ASCII)).
+            toArray(byte[][]::new);
+
+    private CompiledLevel(){}
+
+    /**
+     * @param path path of a level file
+     * @return whether the file is a compiled level, according to its extension
+     */
+    static boolean isCompiled(Path path){
+        return path.getFileName().toString().endsWith(EXTENSION);
+    }
+
+    /**
+     * Compiles the text level in levelFilePath.
+     * @param levelFilePath name of the text file containing the level
+     * @param output path of the compiled level file to be written
+     * @throws IOException if the level couldn't be read, or the compiled level couldn't be written
+     */
+    public static void compile(String levelFilePath, Path output) throws IOException {
+        Objects.requireNonNull(levelFilePath);
+        Objects.requireNonNull(output);
+        Files.write(output, compile(LevelLoader.loadLevel(levelFilePath)));
+    }
+
+    /**
+     * Compiles a board.
+     * @param board board as it is at the beginning of the level
+     * @return the compiled level
+     */
+    static byte[] compile(Board board){
+        Objects.requireNonNull(board);
+        int cols = board.getNumberOfCol();
+        var dictionary = new int[TOKENS.length]; // index in the dictionary + 1, by token ordinal
+        int dictionarySize = 0;
+        int dictionaryBytes = 0;
+        int stacks = 0;
+        int objects = 0;
+        int backgrounds = 0;
+        for(int square = board.nextUsedSquare(0); square != -1; square = board.nextUsedSquare(square + 1)){
+            int col = board.getColOfSquare(square);
+            int row = board.getRowOfSquare(square);
+            int size = board.getSquareSize(col, row);
+            if(size > MAX_STACK_SIZE)
+                throw new IllegalArgumentException("more than " + MAX_STACK_SIZE + " objects on a square");
+            var background = board.getBackgroundObjectOnGrid(col, row);
+            for(int i = 0; i <= size; i++){
+                var object = i == size ? background : board.getObjectOnSquare(col, row, i);
+                if(object != null && dictionary[object.getToken().ordinal()] == 0){
+                    dictionary[object.getToken().ordinal()] = ++dictionarySize;
+                    dictionaryBytes += 1 + TOKEN_NAMES[object.getToken().ordinal()].length;
+                }
+            }
+            if(size != 0)
+                stacks++;
+            objects += size;
+            if(background != null)
+                backgrounds++;
+        }
+        var buffer = ByteBuffer.allocate(HEADER_BYTES + 1 + dictionaryBytes + 4 + 6 * stacks + objects + 4 + 5 * backgrounds);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(cols).putInt(board.getNumberOfRow()).putLong(0);
+        buffer.put((byte) dictionarySize);
+        var entries = new byte[dictionarySize][];
+        for(int ordinal = 0; ordinal != TOKENS.length; ordinal++){
+            if(dictionary[ordinal] != 0)
+                entries[dictionary[ordinal] - 1] = TOKEN_NAMES[ordinal];
+        }
+        for(var name : entries){
+            buffer.put((byte) name.length).put(name);
+        }
+        int positions = buffer.position() + 4;
+        int sizes = positions + 4 * stacks;
+        int tokens = sizes + 2 * stacks;
+        int backgroundPositions = tokens + objects + 4;
+        int backgroundTokens = backgroundPositions + 4 * backgrounds;
+        buffer.putInt(stacks).putInt(tokens + objects, backgrounds);
+        for(int square = board.nextUsedSquare(0); square != -1; square = board.nextUsedSquare(square + 1)){
+            int col = board.getColOfSquare(square);
+            int row = board.getRowOfSquare(square);
+            int position = row * cols + col;
+            int size = board.getSquareSize(col, row);
+            if(size != 0){
+                buffer.putInt(positions, position).putShort(sizes, (short) size);
+                positions += 4;
+                sizes += 2;
+                for(int i = 0; i != size; i++){
+                    buffer.put(tokens++, (byte) (dictionary[board.getObjectOnSquare(col, row, i).getToken().ordinal()] - 1));
+                }
+            }
+            var background = board.getBackgroundObjectOnGrid(col, row);
+            if(background != null){
+                buffer.putInt(backgroundPositions, position).put(backgroundTokens++, (byte) (dictionary[background.getToken().ordinal()] - 1));
+                backgroundPositions += 4;
+            }
+        }
+        buffer.putLong(16, contentHash(buffer));
+        return buffer.array();
+    }
+
+    /**
+     * Loads a compiled level, by memory-mapping its file.
+     * @param path path of the compiled level file
+     * @return the board of the level
+     * @throws IOException if the file couldn't be read, or isn't a valid compiled level
+     */
+    static Board load(Path path) throws IOException {
+        Objects.requireNonNull(path);
+        ByteBuffer buffer;
+        try(var channel = FileChannel.open(path, StandardOpenOption.READ)){
+            if(channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Error : " + path + " is not a compiled level");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return load(path, buffer);
+    }
+
+    /**
+     * Builds the board of a compiled level, see load(ByteBuffer).
+     * @param path path of the compiled level file, for error messages
+     * @param buffer content of the file
+     * @return the board of the level
+     * @throws IOException if the content isn't a valid compiled level
+     */
+    static Board load(Path path, ByteBuffer buffer) throws IOException {
+        try{
+            return load(buffer);
+        }catch (IllegalArgumentException | IndexOutOfBoundsException e){
+            throw new IOException("Error : corrupted compiled level " + path + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Builds the board of a compiled level.
+     * @param buffer content of the compiled level
+     * @return the board of the level
+     * @throws IllegalArgumentException if the content isn't a valid compiled level
+     * @throws IndexOutOfBoundsException if the content is truncated
+     */
+    static Board load(ByteBuffer buffer){
+        if(buffer.getInt(0) != MAGIC)
+            throw new IllegalArgumentException("not a compiled level");
+        if(buffer.getInt(4) != FORMAT_VERSION)
+            throw new IllegalArgumentException("unsupported format version " + buffer.getInt(4));
+        int cols = buffer.getInt(8);
+        int rows = buffer.getInt(12);
+        if(cols <= 0 || rows <= 0)
+            throw new IllegalArgumentException("dimensions have to be positive");
+        if(buffer.getLong(16) != contentHash(buffer))
+            throw new IllegalArgumentException("content hash mismatch");
+        int offset = HEADER_BYTES;
+        var dictionary = new Token[buffer.get(offset++) & 0xFF];
+        for(int i = 0; i != dictionary.length; i++){
+            int length = buffer.get(offset++) & 0xFF;
+            dictionary[i] = tokenNamed(buffer, offset, length);
+            offset += length;
+        }
+        var board = new Board(cols, rows);
+        int stacks = buffer.getInt(offset);
+        int positions = offset + 4;
+        int sizes = positions + 4 * stacks;
+        int tokens = sizes + 2 * stacks;
+        for(int i = 0; i != stacks; i++){
+            int position = checkPosition(buffer.getInt(positions + 4 * i), cols, rows);
+            int size = buffer.getShort(sizes + 2 * i) & 0xFFFF;
+            for(int j = 0; j != size; j++){
+                var token = dictionary[buffer.get(tokens++) & 0xFF];
+                board.addObjectToSquare(TileObject.of(token), position % cols, position / cols);
+            }
+        }
+        int backgrounds = buffer.getInt(tokens);
+        int backgroundPositions = tokens + 4;
+        int backgroundTokens = backgroundPositions + 4 * backgrounds;
+        for(int i = 0; i != backgrounds; i++){
+            int position = checkPosition(buffer.getInt(backgroundPositions + 4 * i), cols, rows);
+            board.setObjectInBackground(TileObject.of(dictionary[buffer.get(backgroundTokens + i) & 0xFF]), position % cols, position / cols);
+        }
+        if(backgroundTokens + backgrounds != buffer.limit())
+            throw new IllegalArgumentException("unexpected bytes after the background layer");
+        return board;
+    }
+
+    /**
+     * @param buffer content of a compiled level
+     * @param offset offset of the name of a token
+     * @param length length of the name
+     * @return the token having that name
+     * @throws IllegalArgumentException if there is no such token
+     */
+    private static Token tokenNamed(ByteBuffer buffer, int offset, int length){
+        for(int ordinal = 0; ordinal != TOKENS.length; ordinal++){
+            var name = TOKEN_NAMES[ordinal];
+            if(name.length != length)
+                continue;
+            int i = 0;
+            while(i != length && buffer.get(offset + i) == name[i])
+                i++;
+            if(i == length)
+                return TOKENS[ordinal];
+        }
+        throw new IllegalArgumentException("unknown token at offset " + offset);
+    }
+
+    /**
+     * @param position position of a square (row * cols + col)
+     * @param cols number of columns of the board
+     * @param rows number of rows of the board
+     * @return the position
+     * @throws IllegalArgumentException if it is out of the board
+     */
+    private static int checkPosition(int position, int cols, int rows){
+        if(position < 0 || position / cols >= rows)
+            throw new IllegalArgumentException("square " + position + " out of the board");
+        return position;
+    }
+
+    /**
+     * @param buffer content of a compiled level
+     * @return the hash of its dimensions and of the content following its header
+     */
+    private static long contentHash(ByteBuffer buffer){
+        return mix(hash(buffer, HEADER_BYTES) ^ buffer.getLong(8));
+    }
+
+    /**
+     * @param buffer bytes to be hashed, up to its limit
+     * @param from index of the first byte to be hashed
+     * @return the hash of the bytes
+     */
+    static long hash(ByteBuffer buffer, int from){
+        long hash = buffer.limit();
+        int offset = from;
+        for(; offset + 8 <= buffer.limit(); offset += 8){
+            hash = mix(hash ^ buffer.getLong(offset));
+        }
+        for(; offset != buffer.limit(); offset++){
+            hash = mix(hash ^ buffer.get(offset));
+        }
+        return hash;
+    }
+
+    /**
+     * @param value a value
+     * @return the value mixed by the finalizer of SplitMix64
+     */
+    private static long mix(long value){
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
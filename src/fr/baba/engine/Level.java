@@ -1,9 +1,8 @@
 package fr.baba.engine;
 
 import fr.baba.engine.board.*;
-import fr.baba.engine.property.MoveProperties;
 import fr.baba.engine.property.PropertyUpdater;
-import fr.baba.engine.property.RemoveProperties;
+import fr.baba.utils.Command;
 import fr.baba.utils.EventListener;
 import fr.umlv.zen5.ApplicationContext;
 
@@ -12,6 +11,9 @@ import java.util.Objects;
 
 public class Level {
     private final Board levelBoard;
+    private final BoardHistory history;
+    private final Simulation simulation;
+    private final Replay.Recorder recorder;
 
     /**
      * Creates a level based on the level specified in 
@@ -19,8 +21,18 @@ public class Level {
      * @param levelFilePath Path of the file which contains the level
      */
     public Level(String levelFilePath) throws IOException {
-        Objects.requireNonNull(levelFilePath);
-        this.levelBoard = LevelLoader.loadLevel(levelFilePath);
+        this(LevelLoader.loadLevel(Objects.requireNonNull(levelFilePath)));
+    }
+
+    /**
+     * Creates a level played on board, a level of a LevelPack for instance.
+     * @param board board of the level, as it is before any move
+     */
+    public Level(Board board){
+        this.levelBoard = Objects.requireNonNull(board);
+        this.history = new BoardHistory(levelBoard);
+        this.simulation = new Simulation(levelBoard);
+        this.recorder = new Replay.Recorder(levelBoard);
     }
 
     /**
@@ -35,10 +47,10 @@ public class Level {
         if(numberOfCol < 0 || numberOfRow < 0){
             throw new IllegalArgumentException("there has to be at least one row and/or one column");
         }
-        if(numberOfCol > Board.MAX_NUMBER_OF_COLS || numberOfRow > Board.MAX_NUMBER_OF_ROWS){
-            throw new IllegalArgumentException("number of Rows or Columns exceeded the the authorized maximum");
-        }
         this.levelBoard = new Board(numberOfCol, numberOfRow);
+        this.history = new BoardHistory(levelBoard);
+        this.simulation = new Simulation(levelBoard);
+        this.recorder = new Replay.Recorder(levelBoard);
     }
 
     /**
@@ -55,22 +67,44 @@ public class Level {
         );
     }
 
+    /**
+     * @return the replay of the moves played on the level so far, undone ones excluded
+     */
+    public Replay getReplay(){
+        return recorder.toReplay();
+    }
+
     /**
      * Launches the level until it is won or lost.
+     * Moves can be undone and redone while the level is running,
+     * and are recorded, see getReplay.
      * @param context context in which the game will be ran
      */
     public void run(ApplicationContext context){
         while(true){
             this.updateDisplay(context);
             PropertyUpdater.collectProperties(levelBoard);
-            MoveProperties.moveAllYouObjects(levelBoard, EventListener.nextMove(context));
-            PropertyUpdater.collectProperties(levelBoard);
-            RemoveProperties.applyRemoveProperties(levelBoard);
-            if(levelBoard.lost()){
+            var command = EventListener.nextCommand(context);
+            if(command == Command.undo){
+                history.undo();
+                recorder.moveTo(history.getTurnNumber());
+                continue;
+            }
+            if(command == Command.redo){
+                history.redo();
+                recorder.moveTo(history.getTurnNumber());
+                continue;
+            }
+            int turnNumber = history.getTurnNumber();
+            var outcome = simulation.step(command.getDirection());
+            history.endTurn();
+            if(history.getTurnNumber() != turnNumber)
+                recorder.record(command.getDirection());
+            if(outcome.getStatus() == Simulation.Status.lost){
                 System.out.println("Lost");
                 break;
             }
-            if(levelBoard.won()){
+            if(outcome.getStatus() == Simulation.Status.won){
                 System.out.println("Won");
                 break;
             }
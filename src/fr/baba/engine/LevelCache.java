@@ -0,0 +1,159 @@
+package fr.baba.engine;
+
+import fr.baba.engine.board.Board;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * Cache of parsed levels, so that a level played again (a restart, or another session
+ * of a server) is not read and parsed again: each level is kept as a template board,
+ * which is never played, and a fresh board is a copy of it (see Board.copy), sharing
+ * its tile objects.
+ * Templates are found by the path of their file, and are kept as long as the content
+ * of the file is the same: the size and modification time of the file are checked
+ * on each load, and if they have changed, the file is read again and its content hash
+ * compared to the template's one. The least recently used templates are evicted once
+ * the templates take more than the maximum memory of the cache (see Board.getMemoryFootprint).
+ * A cache can be used by several threads at once.
+ */
+public final class LevelCache {
+    /**
+     * Default maximum memory taken by the templates of a cache, in bytes.
+     */
+    public static final long DEFAULT_MAX_BYTES = 32L << 20;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Path, Template> templates = new LinkedHashMap<>(16, 0.75f, true); // least recently used first
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * Level as it is read from its file, never played.
+     */
+    private static final class Template {
+        private final long fileSize;
+        private final FileTime lastModified;
+        private final long contentHash;
+        private final Board board;
+        private final long bytes;
+
+        private Template(long fileSize, FileTime lastModified, long contentHash, Board board, long bytes){
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+            this.board = board;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @param attributes attributes of the file of the level
+         * @return whether the file hasn't changed since the template was read, according to its attributes
+         */
+        private boolean matches(BasicFileAttributes attributes){
+            return fileSize == attributes.size() && lastModified.equals(attributes.lastModifiedTime());
+        }
+    }
+
+    /**
+     * @param maxBytes maximum memory taken by the templates, in bytes
+     */
+    public LevelCache(long maxBytes){
+        if(maxBytes < 0)
+            throw new IllegalArgumentException("maximum memory can't be negative");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Creates a fresh board of the level in levelFilePath, as LevelLoader.loadLevel would,
+     * from its template if the level is in the cache and its file hasn't changed.
+     * @param levelFilePath name of the file containing the level
+     * @return a new board, as it is before any move
+     * @throws IOException if the level couldn't be read
+     */
+    public Board load(String levelFilePath) throws IOException {
+        Objects.requireNonNull(levelFilePath);
+        var path = Path.of(levelFilePath).toAbsolutePath().normalize();
+        var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Template template;
+        synchronized(this){
+            template = templates.get(path);
+            if(template != null && template.matches(attributes)){
+                hits++;
+                return template.board.copy();
+            }
+            misses++;
+        }
+        var content = Files.readAllBytes(path);
+        long contentHash = CompiledLevel.hash(ByteBuffer.wrap(content), 0);
+        var board = template != null && template.contentHash == contentHash ? template.board : LevelLoader.loadLevel(levelFilePath, content);
+        var updated = new Template(attributes.size(), attributes.lastModifiedTime(), contentHash, board, board.getMemoryFootprint());
+        synchronized(this){
+            put(path, updated);
+        }
+        return board.copy();
+    }
+
+    /**
+     * Adds a template to the cache, evicting the least recently used ones if needed.
+     * @param path path of the file of the level
+     * @param template template of the level
+     */
+    private void put(Path path, Template template){
+        var previous = templates.remove(path);
+        if(previous != null)
+            bytes -= previous.bytes;
+        if(template.bytes > maxBytes)
+            return;
+        templates.put(path, template);
+        bytes += template.bytes;
+        var iterator = templates.values().iterator();
+        while(bytes > maxBytes){
+            bytes -= iterator.next().bytes;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * @return the number of levels in the cache
+     */
+    public synchronized int size(){
+        return templates.size();
+    }
+
+    /**
+     * @return the memory taken by the templates, in bytes
+     */
+    public synchronized long getBytes(){
+        return bytes;
+    }
+
+    /**
+     * @return the number of loads served from a template
+     */
+    public synchronized long getHits(){
+        return hits;
+    }
+
+    /**
+     * @return the number of loads which have read the file of the level
+     */
+    public synchronized long getMisses(){
+        return misses;
+    }
+
+    /**
+     * Removes every template from the cache.
+     */
+    public synchronized void clear(){
+        templates.clear();
+        bytes = 0;
+    }
+}
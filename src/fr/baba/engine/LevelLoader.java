@@ -3,136 +3,500 @@ package fr.baba.engine;
 import fr.baba.engine.board.*;
 import fr.baba.engine.boardElement.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
+/**
+ * Reads level files. A level file holds the dimensions of the board ("cols rows"),
+ * then one line per row of objects, each item being a token name or EMPTY_SQUARE,
+ * SAME_SQUARE stacking the next token on the square of the previous one,
+ * then optionally a GRID_SEPARATOR line followed by the rows of background objects.
+ * Blank lines and lines starting with COMMENT are skipped.
+ * The file is parsed in a single pass, straight from a buffer of characters:
+ * items are looked up in a perfect hash table of the item names without creating
+ * any string, and the board is filled as the file is read.
+ */
 class LevelLoader {
 
     private static final String EMPTY_SQUARE = "EMPTY";
-    private static final String COMMENT = "#";
-    private static final String GRID_SEPARATOR = "%";
+    private static final char COMMENT = '#';
+    private static final char GRID_SEPARATOR = '%';
     private static final String SAME_SQUARE = "&";
+    private static final char INVALID_CHARACTER = '\uFFFD'; // in place of the bytes which aren't UTF-8
+    private static final Token[] TOKENS = Token.values();
+    static final int MAX_SEARCHED_SQUARES = Integer.MAX_VALUE / Board.STATE_TOKEN_RANGE; // see Board.isStateEncodable
+
+    // codes of the items which aren't tokens, tokens being coded by their ordinal
+    private static final int EMPTY_CODE = -1;
+    private static final int SAME_SQUARE_CODE = -2;
+    private static final int UNKNOWN_CODE = -3;
+
+    // perfect hash table of the item names: the multiplier of the hash is chosen
+    // so that no two names fall in the same slot, and an item is found by a single comparison
+    private static final List<String> ITEMS = itemNames();
+    private static final int ITEM_TABLE_SIZE = Integer.highestOneBit(ITEMS.size()) << 3;
+    private static final int ITEM_HASH_MULTIPLIER = findPerfectMultiplier();
+    private static final char[][] ITEM_NAMES = new char[ITEM_TABLE_SIZE][];
+    private static final int[] ITEM_CODES = new int[ITEM_TABLE_SIZE];
+
+    static {
+        Arrays.fill(ITEM_CODES, UNKNOWN_CODE);
+        for(var item : ITEMS){
+            int slot = slotOf(item.toCharArray(), 0, item.length(), ITEM_HASH_MULTIPLIER, ITEM_TABLE_SIZE - 1);
+            ITEM_NAMES[slot] = item.toCharArray();
+            ITEM_CODES[slot] = codeOf(item);
+        }
+    }
+
+    private LevelLoader(){}
+
+    /**
+     * @return the names of every item a level file can hold
+     */
+    private static List<String> itemNames(){
+        var names = new ArrayList<String>();
+        for(var token : TOKENS){
+            names.add(token.name());
+        }
+        names.add(EMPTY_SQUARE);
+        names.add(SAME_SQUARE);
+        return names;
+    }
+
+    /**
+     * @return a multiplier of the hash for which every item has its own slot
+     */
+    private static int findPerfectMultiplier(){
+        var used = new boolean[ITEM_TABLE_SIZE];
+        for(int multiplier = 31; multiplier < 1 << 20; multiplier += 2){
+            Arrays.fill(used, false);
+            boolean perfect = true;
+            for(var item : ITEMS){
+                int slot = slotOf(item.toCharArray(), 0, item.length(), multiplier, ITEM_TABLE_SIZE - 1);
+                if(used[slot]){
+                    perfect = false;
+                    break;
+                }
+                used[slot] = true;
+            }
+            if(perfect)
+                return multiplier;
+        }
+        throw new ExceptionInInitializerError("no perfect hash of the item names");
+    }
+
+    /**
+     * @param name name of an item
+     * @return the code of the item, see EMPTY_CODE
+     */
+    private static int codeOf(String name){
+        if(name.equals(EMPTY_SQUARE))
+            return EMPTY_CODE;
+        if(name.equals(SAME_SQUARE))
+            return SAME_SQUARE_CODE;
+        return Token.valueOf(name).ordinal();
+    }
+
+    /**
+     * @param chars characters containing an item name
+     * @param start index of the first character of the name
+     * @param end index following the last character of the name
+     * @param multiplier multiplier of the hash
+     * @param mask size of the table minus one
+     * @return the slot of the name in a table of that size
+     */
+    private static int slotOf(char[] chars, int start, int end, int multiplier, int mask){
+        int hash = 0;
+        for(int i = start; i != end; i++){
+            hash = hash * multiplier + chars[i];
+        }
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    /**
+     * @param chars characters containing an item name
+     * @param start index of the first character of the name
+     * @param end index following the last character of the name
+     * @return the code of the item, see EMPTY_CODE, UNKNOWN_CODE if there is no such item
+     */
+    private static int lookUpItem(char[] chars, int start, int end){
+        int slot = slotOf(chars, start, end, ITEM_HASH_MULTIPLIER, ITEM_NAMES.length - 1);
+        var name = ITEM_NAMES[slot];
+        if(name == null || !Arrays.equals(name, 0, name.length, chars, start, end))
+            return UNKNOWN_CODE;
+        return ITEM_CODES[slot];
+    }
+
+    /**
+     * @return a decoder of level files, which replaces the bytes which aren't UTF-8
+     * by INVALID_CHARACTER, for the parser to report them where they are
+     */
+    private static CharsetDecoder newDecoder(){
+        return StandardCharsets.UTF_8.newDecoder().
+                onMalformedInput(CodingErrorAction.REPLACE).
+                onUnmappableCharacter(CodingErrorAction.REPLACE).
+                replaceWith(String.valueOf(INVALID_CHARACTER));
+    }
 
     /**
      * Creates a new board with the dimensions and
      * objects specified in the file levelFilePath.
+     * Rows and squares beyond the dimensions of the board are skipped.
+     * Compiled levels (see CompiledLevel) are loaded straight from their binary form.
      * @param levelFilePath name of the file containing the board description
      * @return the aforementioned board
-     * @throws IOException thrown if reading or parsing of the file has failed.
+     * @throws IOException thrown if reading or parsing of the file has failed,
+     * the message giving the line and column of the error.
      */
     static Board loadLevel(String levelFilePath) throws IOException {
         Objects.requireNonNull(levelFilePath);
-        var reader = Files.newBufferedReader(Path.of(levelFilePath));
-        var lines = reader.lines().filter(line -> !(line.isBlank() || line.strip().startsWith(COMMENT))).collect(Collectors.toList());
-        if(lines.size() <= 2)
-            throw new IOException("Error : There has to be at least 1 valid line in your level");
-        var dimensions = fetchDimensions(lines.get(0));
-        Board board = new Board(dimensions.get(0), dimensions.get(1));
-        lines.remove(0);
-        fetchObjects(lines, board);
-        fetchBackgroundObjects(lines, board);
-        return board;
+        var path = Path.of(levelFilePath);
+        if(CompiledLevel.isCompiled(path))
+            return CompiledLevel.load(path);
+        try(var reader = new InputStreamReader(Files.newInputStream(path), newDecoder())){
+            return new Parser(reader, false).parse();
+        }
     }
 
     /**
-     * Retrieves the dimensions (col, row)
-     * contained in a string of type "15 25"
-     * @param line string to be parsed
-     * @return an array containing the two dimensions
-     * @throws IOException if parsing goes wrong
+     * Creates a new board from the content of a level file, already read, see loadLevel.
+     * @param levelFilePath name of the file containing the board description
+     * @param content content of the file
+     * @return the board
+     * @throws IOException if the content couldn't be parsed
      */
-    private static List<Integer> fetchDimensions(String line) throws IOException{
-        Objects.requireNonNull(line);
-        var list = new ArrayList<Integer>();
-        var items = line.split(" ");
-        if(items.length != 2)
-            throw new IOException("Error : Failed to parse the dimensions of the board");
-        try {
-            list.add(Integer.parseInt(items[0]));
-            list.add(Integer.parseInt(items[1]));
-            return list;
-        }catch (NumberFormatException e){
-            throw new IOException("Error : Failed to parse the dimensions of the board");
+    static Board loadLevel(String levelFilePath, byte[] content) throws IOException {
+        Objects.requireNonNull(levelFilePath);
+        Objects.requireNonNull(content);
+        var path = Path.of(levelFilePath);
+        if(CompiledLevel.isCompiled(path))
+            return CompiledLevel.load(path, ByteBuffer.wrap(content));
+        try(var reader = new InputStreamReader(new ByteArrayInputStream(content), newDecoder())){
+            return new Parser(reader, false).parse();
         }
     }
 
     /**
-     * Parses a TileObject from the string object and
-     * returns it.
-     * @param object string to be parsed
-     * @return a TileObject
-     * @throws IOException if the string doesn't match anything
+     * Checks the level in levelFilePath more strictly than loadLevel, which skips
+     * what it doesn't expect: the dimensions have to be positive, the grid of objects
+     * and the background section can't be larger than the board (missing rows
+     * and squares being empty), every item has to be EMPTY_SQUARE or a token,
+     * and SAME_SQUARE has to stack a token on another one. The board has to be
+     * small enough to be searched by a solver (see Board.isStateEncodable).
+     * Compiled levels are checked by loading them.
+     * @param levelFilePath name of the file containing the board description
+     * @return the errors found, each one with its line and column, empty if there is none
+     * @throws IOException if the file couldn't be read
      */
-    private static TileObject fetchObject(String object) throws IOException{
-        Objects.requireNonNull(object);
-        if(object.equals(EMPTY_SQUARE))
-            return null;
-        try{
-            var token = Token.valueOf(object);
-            return switch (token.getType()) {
-                case noun -> new Noun(token);
-                case operator -> new Operator(token);
-                case sprite -> new Sprite(token);
-                case property -> new Property(token);
-            };
-        }catch (IllegalArgumentException e){
-            throw new IOException("Error : failed to parse item " + object);
+    static List<String> findErrors(String levelFilePath) throws IOException {
+        Objects.requireNonNull(levelFilePath);
+        var path = Path.of(levelFilePath);
+        if(CompiledLevel.isCompiled(path)){
+            try{
+                CompiledLevel.load(path);
+                return List.of();
+            }catch (IOException e){
+                return List.of(String.valueOf(e.getMessage()));
+            }
+        }
+        try(var reader = new InputStreamReader(Files.newInputStream(path), newDecoder())){
+            var parser = new Parser(reader, true);
+            parser.parse();
+            return parser.errors;
         }
     }
 
     /**
-     * Parses lines for TileObject that
-     * are then added to the board.
-     * @param lines list of lines to be parsed
-     * @param board board in which the TileObjects will be added
-     * @throws IOException if parsing fails
+     * Single pass parser of a level file.
      */
-    private static void fetchObjects(List<String> lines, Board board) throws IOException{
-        Objects.requireNonNull(lines);
-        Objects.requireNonNull(board);
-        for(int i = 0; i != lines.size() && i != board.getNumberOfRow(); i++){
-            if(lines.get(i).strip().equals(GRID_SEPARATOR))
-                return;
-            var items = lines.get(i).split(" ");
-            int SAME_SQUARE_count = 0;
-            for(int j = 0; j - SAME_SQUARE_count != board.getNumberOfCol() && j - SAME_SQUARE_count != items.length; j++){
-                if(items[j].equals(SAME_SQUARE)){
-                    SAME_SQUARE_count++;
-                    continue;
+    private static final class Parser {
+        private final Reader reader;
+        private final boolean strict; // whether every error is collected, loadLevel stopping at the first one
+        private final List<String> errors = new ArrayList<>();
+        private final char[] buffer = new char[8192];
+        private int bufferStart;
+        private int bufferEnd;
+        private boolean skipLineFeed; // after a carriage return
+        private int invalidIndex; // index in line of its first byte which isn't UTF-8, -1 if none
+        private boolean invalidBytes; // whether bytes which aren't UTF-8 have been reported
+        private char[] line = new char[256]; // characters of the current line
+        private int lineLength;
+        private int lineNumber;
+        private Board board; // null until the dimensions are read
+        private int numberOfCol;
+        private int numberOfRow;
+        private boolean background; // whether the background section has started
+        private int gridRows;
+        private int backgroundRows;
+
+        /**
+         * @param reader reader of the level file
+         * @param strict false to stop at the first error, and to skip rows and squares
+         *               beyond the board, true to collect every error
+         */
+        private Parser(Reader reader, boolean strict){
+            this.reader = reader;
+            this.strict = strict;
+        }
+
+        /**
+         * Reads the whole file.
+         * @return the board, null if an error has been collected
+         * @throws IOException if the file couldn't be read or, unless strict, has an error
+         */
+        private Board parse() throws IOException {
+            while(readLine()){
+                if(invalidIndex != -1 && !invalidBytes){
+                    invalidBytes = true;
+                    error(invalidIndex, "bytes which aren't UTF-8, this isn't a text level");
                 }
-                var item = fetchObject(items[j]);
-                if(item == null)
+                int start = skipSeparators(0);
+                if(start == lineLength || line[start] == COMMENT)
                     continue;
-                board.addObjectToSquare(item,j - SAME_SQUARE_count * 2, i);
+                if(board == null){
+                    if(!readDimensions(start))
+                        return null;
+                }else if(line[start] == GRID_SEPARATOR && skipSeparators(start + 1) == lineLength){
+                    if(background)
+                        error(start, "second " + GRID_SEPARATOR + " separator");
+                    background = true;
+                }else if(background){
+                    readBackgroundRow(start);
+                }else{
+                    readRow(start);
+                }
             }
+            if(board == null)
+                error(-1, "no dimensions");
+            else if(gridRows == 0)
+                error(-1, "no row of objects");
+            return errors.isEmpty() ? board : null;
         }
-    }
 
-    /**
-     * Parses lines for TileObjects that
-     * are then added to the board as background objects.
-     * @param lines list of lines to be parsed
-     * @param board board in which the TileObjects will be added
-     * @throws IOException if an object could not be parsed
-     */
-    private static void fetchBackgroundObjects(List<String> lines, Board board) throws IOException{
-        int i;
-        Objects.requireNonNull(lines);
-        Objects.requireNonNull(board);
-        for(i = 0; i < lines.size() && !lines.get(i).strip().equals(GRID_SEPARATOR); i++);
-        i++;
-        for(int x = 0; i < lines.size() && x < board.getNumberOfRow(); i++, x++){
-            var items = lines.get(i).split(" ");
-            for(int j = 0; j != board.getNumberOfCol() && j != items.length; j++){
-                var item = fetchObject(items[j]);
-                if(item == null)
+        /**
+         * Reads the next line of the file into line, without its line terminator.
+         * @return false if the end of the file has been reached
+         * @throws IOException if the file couldn't be read
+         */
+        private boolean readLine() throws IOException {
+            lineLength = 0;
+            invalidIndex = -1;
+            for(;;){
+                if(bufferStart == bufferEnd){
+                    bufferEnd = reader.read(buffer);
+                    bufferStart = 0;
+                    if(bufferEnd == -1){
+                        bufferEnd = 0;
+                        if(lineLength == 0)
+                            return false;
+                        lineNumber++;
+                        return true;
+                    }
+                }
+                char c = buffer[bufferStart++];
+                if(skipLineFeed){
+                    skipLineFeed = false;
+                    if(c == '\n')
+                        continue;
+                }
+                if(c == '\n' || c == '\r'){
+                    skipLineFeed = c == '\r';
+                    lineNumber++;
+                    return true;
+                }
+                if(lineLength == line.length)
+                    line = Arrays.copyOf(line, line.length * 2);
+                if(c == INVALID_CHARACTER && invalidIndex == -1)
+                    invalidIndex = lineLength;
+                line[lineLength++] = c;
+            }
+        }
+
+        /**
+         * @param from index of a character of line
+         * @return the index of the first character from there which isn't a separator, lineLength if none
+         */
+        private int skipSeparators(int from){
+            while(from != lineLength && line[from] <= ' ')
+                from++;
+            return from;
+        }
+
+        /**
+         * @param from index of the first character of an item of line
+         * @return the index following the last character of the item
+         */
+        private int endOfItem(int from){
+            while(from != lineLength && line[from] > ' ')
+                from++;
+            return from;
+        }
+
+        /**
+         * Reports an error of the file.
+         * @param index index in line of the character where the error is, -1 for the whole file
+         * @param message description of the error
+         * @throws IOException unless strict
+         */
+        private void error(int index, String message) throws IOException {
+            var error = index == -1 ? message : "line " + lineNumber + ", column " + (index + 1) + " : " + message;
+            if(!strict)
+                throw new IOException("Error : " + error);
+            errors.add(error);
+        }
+
+        /**
+         * Reports something beyond the board, which loadLevel skips.
+         * @param index index in line of the character where it is
+         * @param message description of the error
+         */
+        private void outOfBoard(int index, String message){
+            if(strict)
+                errors.add("line " + lineNumber + ", column " + (index + 1) + " : " + message);
+        }
+
+        /**
+         * @param start index of the first character of an item of line
+         * @param end index following its last character
+         * @return the item, for error messages
+         */
+        private String itemAt(int start, int end){
+            return new String(line, start, end - start);
+        }
+
+        /**
+         * Reads the "cols rows" line, and creates the board.
+         * @param start index of the first character of the dimensions
+         * @return false if the dimensions are invalid
+         * @throws IOException unless strict, if the dimensions are invalid
+         */
+        private boolean readDimensions(int start) throws IOException {
+            int colsEnd = endOfItem(start);
+            int rowsStart = skipSeparators(colsEnd);
+            int rowsEnd = endOfItem(rowsStart);
+            numberOfCol = parseDimension(start, colsEnd);
+            numberOfRow = parseDimension(rowsStart, rowsEnd);
+            if(numberOfCol == -1 || numberOfRow == -1 || skipSeparators(rowsEnd) != lineLength){
+                error(start, "invalid dimensions \"" + itemAt(start, lineLength) + "\"");
+                return false;
+            }
+            if(numberOfCol == 0 || numberOfRow == 0){
+                error(start, "dimensions have to be positive");
+                return false;
+            }
+            try{
+                board = new Board(numberOfCol, numberOfRow);
+            }catch (IllegalArgumentException e){
+                error(start, e.getMessage());
+                return false;
+            }
+            if(strict && !board.isStateEncodable())
+                error(start, "board of " + numberOfCol + " x " + numberOfRow + " squares is too large to be searched, the maximum is " + MAX_SEARCHED_SQUARES + " squares");
+            return true;
+        }
+
+        /**
+         * @param start index of the first digit of a dimension in line
+         * @param end index following its last digit
+         * @return the dimension, -1 if it isn't a number
+         */
+        private int parseDimension(int start, int end){
+            if(start == end)
+                return -1;
+            int value = 0;
+            for(int i = start; i != end; i++){
+                char c = line[i];
+                if(c < '0' || c > '9' || value > (Integer.MAX_VALUE - (c - '0')) / 10)
+                    return -1;
+                value = value * 10 + c - '0';
+            }
+            return value;
+        }
+
+        /**
+         * Reads a row of objects, and adds them to the board.
+         * @param start index of the first character of the first item
+         * @throws IOException unless strict, if the row has an error
+         */
+        private void readRow(int start) throws IOException {
+            int row = gridRows++;
+            if(row == numberOfRow){
+                outOfBoard(start, "row of objects out of the board");
+                if(!strict)
+                    return;
+            }
+            int col = -1; // of the last item read
+            int previousCode = UNKNOWN_CODE;
+            int sameSquare = -1; // index of a SAME_SQUARE waiting for its token, -1 if none
+            for(int itemStart = start; itemStart != lineLength; itemStart = skipSeparators(itemStart)){
+                int itemEnd = endOfItem(itemStart);
+                int code = lookUpItem(line, itemStart, itemEnd);
+                if(code == SAME_SQUARE_CODE){
+                    if(previousCode < 0 || sameSquare != -1)
+                        error(itemStart, SAME_SQUARE + " has to stack a token on another one");
+                    else
+                        sameSquare = itemStart;
+                    previousCode = code;
+                    itemStart = itemEnd;
                     continue;
-                board.setObjectInBackground(item,j, x);
+                }
+                if(sameSquare != -1 && code < 0)
+                    error(sameSquare, SAME_SQUARE + " has to stack a token on another one");
+                if(sameSquare == -1 && ++col == numberOfCol){
+                    outOfBoard(itemStart, "squares beyond the " + numberOfCol + " columns of the board");
+                    if(!strict)
+                        return;
+                }
+                sameSquare = -1;
+                if(code == UNKNOWN_CODE)
+                    error(itemStart, "unknown item \"" + itemAt(itemStart, itemEnd) + "\"");
+                else if(code >= 0 && col < numberOfCol && row < numberOfRow)
+                    board.addObjectToSquare(TileObject.of(TOKENS[code]), col, row);
+                previousCode = code;
+                itemStart = itemEnd;
+            }
+            if(sameSquare != -1)
+                error(sameSquare, SAME_SQUARE + " has to stack a token on another one");
+        }
+
+        /**
+         * Reads a row of background objects, and adds them to the board.
+         * @param start index of the first character of the first item
+         * @throws IOException unless strict, if the row has an error
+         */
+        private void readBackgroundRow(int start) throws IOException {
+            int row = backgroundRows++;
+            if(row == numberOfRow){
+                outOfBoard(start, "background row out of the board");
+                if(!strict)
+                    return;
+            }
+            int col = 0;
+            for(int itemStart = start; itemStart != lineLength; itemStart = skipSeparators(itemStart), col++){
+                int itemEnd = endOfItem(itemStart);
+                if(col == numberOfCol){
+                    outOfBoard(itemStart, "background squares beyond the " + numberOfCol + " columns of the board");
+                    if(!strict)
+                        return;
+                }
+                int code = lookUpItem(line, itemStart, itemEnd);
+                if(code == UNKNOWN_CODE || code == SAME_SQUARE_CODE)
+                    error(itemStart, "unknown background item \"" + itemAt(itemStart, itemEnd) + "\"");
+                else if(code >= 0 && col < numberOfCol && row < numberOfRow)
+                    board.setObjectInBackground(TileObject.of(TOKENS[code]), col, row);
+                itemStart = itemEnd;
             }
         }
     }
@@ -0,0 +1,254 @@
+package fr.baba.engine;
+
+import fr.baba.engine.board.Board;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Levels stored in a single file, so that a pack of thousands of levels is opened
+ * without listing a directory nor opening a file per level.
+ * A pack holds a header (MAGIC, FORMAT_VERSION, number of levels, size of the table
+ * of contents, and hash of the header and of the table of contents), a table of contents giving for each level its name,
+ * the offset, length and hash of its body, then the bodies of the levels, each one
+ * being a compiled level (see CompiledLevel). All the numbers are big-endian.
+ * Opening a pack reads its table of contents only, and each level is then read
+ * on its own, by a positional read of its body: a pack can be read by several
+ * threads at once.
+ */
+public final class LevelPack implements Closeable {
+    /**
+     * Extension of level pack files.
+     */
+    public static final String EXTENSION = ".babapack";
+    private static final int MAGIC = 0x42414250; // "BABP"
+    private static final int FORMAT_VERSION = 3; // bodies of version 1 were compiled levels of version 1, version 2 only hashed the table of contents
+    private static final int HEADER_BYTES = 24;
+    private static final int HASH_OFFSET = 16; // of the hash in the header, the bytes before it being hashed along with the table of contents
+    private static final int ENTRY_BYTES = 22; // without the name
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<String> names;
+    private final HashMap<String, Integer> indexes = new HashMap<>(); // by name
+    private final long[] offsets;
+    private final int[] lengths;
+    private final long[] hashes;
+
+    private LevelPack(Path path, FileChannel channel, List<String> names, long[] offsets, int[] lengths, long[] hashes){
+        this.path = path;
+        this.channel = channel;
+        this.names = List.copyOf(names);
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.hashes = hashes;
+        for(int i = 0; i != names.size(); i++){
+            indexes.put(names.get(i), i);
+        }
+    }
+
+    /**
+     * Writes a pack of levels, compiling each one.
+     * Levels are named after their file name, which has to be unique in the pack.
+     * @param levelFilePaths names of the files containing the levels, in the order of the pack
+     * @param output path of the pack file to be written
+     * @throws IOException if a level couldn't be read, or the pack couldn't be written
+     */
+    public static void write(List<String> levelFilePaths, Path output) throws IOException {
+        Objects.requireNonNull(levelFilePaths);
+        Objects.requireNonNull(output);
+        var names = new ArrayList<byte[]>();
+        var bodies = new ArrayList<byte[]>();
+        var unique = new HashMap<String, String>();
+        int tocBytes = 0;
+        for(var file : levelFilePaths){
+            var name = Path.of(file).getFileName().toString();
+            if(unique.put(name, file) != null)
+                throw new IOException("Error : two levels are named " + name);
+            var encodedName = name.getBytes(StandardCharsets.UTF_8);
+            if(encodedName.length > Short.MAX_VALUE)
+                throw new IOException("Error : level name too long " + name);
+            names.add(encodedName);
+            bodies.add(CompiledLevel.compile(LevelLoader.loadLevel(file)));
+            tocBytes += ENTRY_BYTES + encodedName.length;
+        }
+        var toc = ByteBuffer.allocate(tocBytes);
+        long offset = HEADER_BYTES + tocBytes;
+        for(int i = 0; i != bodies.size(); i++){
+            var body = bodies.get(i);
+            toc.putLong(offset).putInt(body.length).putLong(CompiledLevel.hash(ByteBuffer.wrap(body), 0));
+            toc.putShort((short) names.get(i).length).put(names.get(i));
+            offset += body.length;
+        }
+        var header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(bodies.size()).putInt(tocBytes);
+        header.putLong(tableHash(header, toc));
+        try(var channel = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)){
+            writeFully(channel, header.flip());
+            writeFully(channel, toc.flip());
+            for(var body : bodies){
+                writeFully(channel, ByteBuffer.wrap(body));
+            }
+        }
+    }
+
+    /**
+     * Opens a pack of levels, reading its table of contents only.
+     * @param path path of the pack file
+     * @return the pack, which has to be closed
+     * @throws IOException if the file couldn't be read, or isn't a valid pack
+     */
+    public static LevelPack open(Path path) throws IOException {
+        Objects.requireNonNull(path);
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try{
+            var header = readFully(channel, 0, HEADER_BYTES);
+            if(header.getInt(0) != MAGIC)
+                throw new IOException("Error : " + path + " is not a level pack");
+            if(header.getInt(4) != FORMAT_VERSION)
+                throw new IOException("Error : unsupported level pack format in " + path);
+            long size = channel.size();
+            int count = header.getInt(8);
+            int tocBytes = header.getInt(12);
+            if(count < 0 || tocBytes < 0 || HEADER_BYTES + (long) tocBytes > size || count > tocBytes / ENTRY_BYTES)
+                throw new IOException("Error : corrupted level pack " + path);
+            var toc = readFully(channel, HEADER_BYTES, tocBytes);
+            if(header.getLong(HASH_OFFSET) != tableHash(header, toc))
+                throw new IOException("Error : corrupted level pack " + path);
+            var names = new ArrayList<String>(count);
+            var offsets = new long[count];
+            var lengths = new int[count];
+            var hashes = new long[count];
+            for(int i = 0; i != count; i++){
+                offsets[i] = toc.getLong();
+                lengths[i] = toc.getInt();
+                hashes[i] = toc.getLong();
+                var name = new byte[toc.getShort()];
+                toc.get(name);
+                if(lengths[i] < 0 || offsets[i] < HEADER_BYTES + tocBytes || offsets[i] + lengths[i] > size)
+                    throw new IOException("Error : corrupted level pack " + path);
+                names.add(new String(name, StandardCharsets.UTF_8));
+            }
+            if(toc.hasRemaining())
+                throw new IOException("Error : corrupted level pack " + path);
+            return new LevelPack(path, channel, names, offsets, lengths, hashes);
+        }catch (IOException e){
+            channel.close();
+            throw e;
+        }catch (RuntimeException e){
+            channel.close();
+            throw new IOException("Error : corrupted level pack " + path, e);
+        }
+    }
+
+    /**
+     * @return the names of the levels, in the order of the pack
+     */
+    public List<String> getNames(){
+        return names;
+    }
+
+    /**
+     * @return the number of levels of the pack
+     */
+    public int size(){
+        return names.size();
+    }
+
+    /**
+     * @param name name of a level
+     * @return the index of the level having that name, -1 if there is none
+     */
+    public int indexOf(String name){
+        return indexes.getOrDefault(Objects.requireNonNull(name), -1);
+    }
+
+    /**
+     * Loads a level of the pack, reading its body only.
+     * @param index index of the level, in the order of the pack
+     * @return the board of the level
+     * @throws IOException if the level couldn't be read, or is corrupted
+     */
+    public Board loadLevel(int index) throws IOException {
+        Objects.checkIndex(index, names.size());
+        var body = readFully(channel, offsets[index], lengths[index]);
+        if(CompiledLevel.hash(body, 0) != hashes[index])
+            throw new IOException("Error : corrupted level " + names.get(index) + " in " + path);
+        try{
+            return CompiledLevel.load(body);
+        }catch (IllegalArgumentException | IndexOutOfBoundsException e){
+            throw new IOException("Error : corrupted level " + names.get(index) + " in " + path + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Loads a level of the pack, see loadLevel.
+     * @param name name of the level
+     * @return the board of the level
+     * @throws IOException if there is no such level, or it couldn't be read
+     */
+    public Board loadLevel(String name) throws IOException {
+        int index = indexOf(name);
+        if(index == -1)
+            throw new IOException("Error : no level " + name + " in " + path);
+        return loadLevel(index);
+    }
+
+    /**
+     * Closes the pack file.
+     * @throws IOException if it couldn't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @param channel file to be read
+     * @param position position of the first byte to be read
+     * @param length number of bytes to be read
+     * @return the bytes read
+     * @throws IOException if the file is shorter
+     */
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        while(buffer.hasRemaining()){
+            if(channel.read(buffer, position + buffer.position()) == -1)
+                throw new IOException("Error : unexpected end of file");
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Hashes the header of a pack, up to its hash, along with its table of contents,
+     * so that neither the number of levels nor an entry can change unnoticed.
+     * @param header header of the pack
+     * @param toc table of contents of the pack
+     * @return the hash stored in the header
+     */
+    private static long tableHash(ByteBuffer header, ByteBuffer toc){
+        var hashed = ByteBuffer.allocate(HASH_OFFSET + toc.capacity());
+        hashed.put(header.duplicate().position(0).limit(HASH_OFFSET)).put(toc.duplicate().clear());
+        return CompiledLevel.hash(hashed.flip(), 0);
+    }
+
+    /**
+     * @param channel file to be written
+     * @param buffer bytes to be written
+     * @throws IOException if they couldn't be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+    }
+}
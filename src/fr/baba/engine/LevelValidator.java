@@ -0,0 +1,242 @@
+package fr.baba.engine;
+
+import fr.baba.engine.board.Board;
+import fr.baba.engine.solver.Solution;
+import fr.baba.engine.solver.Solver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Checks levels without any display: the format of each level file is checked
+ * strictly, the level is loaded, then searched by a solver bounded to a number of states.
+ * A search which reaches that bound doesn't prove anything, and is reported as a warning.
+ * Levels of a directory are checked in parallel, each one on its own boards.
+ */
+public final class LevelValidator {
+    /**
+     * Default maximum number of states searched on each level, enough to solve
+     * the small levels in a fraction of a second. Most of the shipped levels take
+     * more than a million states, and are only checked up to that bound.
+     */
+    public static final int DEFAULT_MAX_STATES = 20_000;
+
+    private LevelValidator(){}
+
+    /**
+     * Result of the check of one level.
+     */
+    public static final class Report {
+        private final String file;
+        private final List<String> errors;
+        private final List<String> warnings;
+        private final Solution solution; // null if the level couldn't be loaded
+        private final long loadNanos;
+
+        private Report(String file, List<String> errors, List<String> warnings, Solution solution, long loadNanos){
+            this.file = file;
+            this.errors = List.copyOf(errors);
+            this.warnings = List.copyOf(warnings);
+            this.solution = solution;
+            this.loadNanos = loadNanos;
+        }
+
+        private Report(String file, List<String> errors, Solution solution, long loadNanos){
+            this(file, errors, List.of(), solution, loadNanos);
+        }
+
+        /**
+         * @return name of the level file
+         */
+        public String getFile(){
+            return file;
+        }
+
+        /**
+         * @return whether the level has no error
+         */
+        public boolean isValid(){
+            return errors.isEmpty();
+        }
+
+        /**
+         * @return the errors found in the level, with their line number if any
+         */
+        public List<String> getErrors(){
+            return errors;
+        }
+
+        /**
+         * @return what the check couldn't prove, such as a search aborted before solving the level
+         */
+        public List<String> getWarnings(){
+            return warnings;
+        }
+
+        /**
+         * @return the result of the bounded search of the level, null if it couldn't be loaded
+         */
+        public Solution getSolution(){
+            return solution;
+        }
+
+        /**
+         * @return time taken to check and load the level file, in nanoseconds
+         */
+        public long getLoadNanos(){
+            return loadNanos;
+        }
+
+        /**
+         * @return the report as a single line JSON object
+         */
+        public String toJson(){
+            var json = new StringBuilder("{\"file\":").append(quote(file))
+                    .append(",\"valid\":").append(isValid())
+                    .append(",\"errors\":").append(errors.stream().map(LevelValidator::quote).collect(Collectors.joining(",", "[", "]")))
+                    .append(",\"warnings\":").append(warnings.stream().map(LevelValidator::quote).collect(Collectors.joining(",", "[", "]")))
+                    .append(String.format(",\"loadMs\":%.3f", loadNanos / 1e6));
+            if(solution != null){
+                json.append(",\"search\":").append(quote(solution.getStatus().name()))
+                        .append(",\"moves\":").append(solution.getStatus() == Solution.Status.solved ? solution.getMoves().size() : -1)
+                        .append(",\"states\":").append(solution.getStoredStates())
+                        .append(String.format(",\"searchMs\":%.3f", solution.getElapsedNanos() / 1e6));
+            }
+            return json.append('}').toString();
+        }
+    }
+
+    /**
+     * @param string a string
+     * @return the string as a JSON string literal
+     */
+    private static String quote(String string){
+        var quoted = new StringBuilder("\"");
+        for(var c : string.toCharArray()){
+            switch (c) {
+                case '"' -> quoted.append("\\\"");
+                case '\\' -> quoted.append("\\\\");
+                case '\n' -> quoted.append("\\n");
+                case '\r' -> quoted.append("\\r");
+                case '\t' -> quoted.append("\\t");
+                default -> {
+                    if(c < 0x20)
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    else
+                        quoted.append(c);
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Checks the level in levelFilePath: its format, then a search of at most maxStates states.
+     * A level is invalid if its file has an error, if it is lost before any move,
+     * or if the search proves that it can't be won. A search aborted before
+     * solving the level is reported as a warning.
+     * @param levelFilePath name of the file containing the level
+     * @param maxStates maximum number of states searched
+     * @return the report of the level
+     */
+    public static Report validate(String levelFilePath, int maxStates){
+        Objects.requireNonNull(levelFilePath);
+        long start = System.nanoTime();
+        try{
+            var errors = LevelLoader.findErrors(levelFilePath);
+            if(!errors.isEmpty())
+                return new Report(levelFilePath, errors, null, System.nanoTime() - start);
+            var board = LevelLoader.loadLevel(levelFilePath);
+            return search(levelFilePath, board, maxStates, System.nanoTime() - start);
+        }catch (IOException e){
+            return new Report(levelFilePath, List.of(String.valueOf(e.getMessage())), null, System.nanoTime() - start);
+        }catch (RuntimeException e){
+            return new Report(levelFilePath, List.of(internalError(e)), null, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reports an exception which a level, however wrong, should never cause:
+     * its stack trace is printed, and the report only tells that the check failed.
+     * @param e exception thrown while checking a level
+     * @return the error to be reported
+     */
+    private static String internalError(RuntimeException e){
+        e.printStackTrace();
+        return "internal error while checking the level : " + e.getMessage();
+    }
+
+    /**
+     * Searches a level which has been loaded, see validate.
+     * @param file name of the level, for the report
+     * @param board board of the level
+     * @param maxStates maximum number of states searched
+     * @param loadNanos time taken to check and load the level
+     * @return the report of the level
+     */
+    private static Report search(String file, Board board, int maxStates, long loadNanos){
+        if(!board.isStateEncodable())
+            return new Report(file, List.of("board of " + board.getNumberOfCol() + " x " + board.getNumberOfRow() + " squares is too large to be searched, the maximum is " + LevelLoader.MAX_SEARCHED_SQUARES + " squares"), null, loadNanos);
+        if(new Simulation(board.copy()).getStatus() == Simulation.Status.lost)
+            return new Report(file, List.of("no YOU object at the beginning"), null, loadNanos);
+        var solution = new Solver(board, maxStates).solve(Solver.Strategy.bfs);
+        if(solution.getStatus() == Solution.Status.unsolvable)
+            return new Report(file, List.of("level can't be won"), solution, loadNanos);
+        if(solution.getStatus() == Solution.Status.aborted)
+            return new Report(file, List.of(), List.of("search aborted after " + solution.getStoredStates() + " states, the level isn't proven to be winnable"), solution, loadNanos);
+        return new Report(file, List.of(), solution, loadNanos);
+    }
+
+    /**
+     * Checks every level of a level pack (see LevelPack) in parallel. The levels of a pack
+     * are compiled, so their format is checked by loading them, see validate.
+     * @param packFilePath name of the pack file
+     * @param maxStates maximum number of states searched on each level
+     * @return the reports of the levels, named packFilePath/level name, in the order of the pack;
+     * a single report if the pack couldn't be opened
+     */
+    public static List<Report> validatePack(String packFilePath, int maxStates){
+        Objects.requireNonNull(packFilePath);
+        long start = System.nanoTime();
+        try(var pack = LevelPack.open(Path.of(packFilePath))){
+            return IntStream.range(0, pack.size()).parallel().mapToObj(index -> {
+                var file = packFilePath + "/" + pack.getNames().get(index);
+                long levelStart = System.nanoTime();
+                try{
+                    return search(file, pack.loadLevel(index), maxStates, System.nanoTime() - levelStart);
+                }catch (IOException e){
+                    return new Report(file, List.of(String.valueOf(e.getMessage())), null, System.nanoTime() - levelStart);
+                }catch (RuntimeException e){
+                    return new Report(file, List.of(internalError(e)), null, System.nanoTime() - levelStart);
+                }
+            }).collect(Collectors.toList());
+        }catch (IOException e){
+            return List.of(new Report(packFilePath, List.of(String.valueOf(e.getMessage())), null, System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Checks every level of directory in parallel: level packs level by level
+     * (see validatePack), and other files as levels (see validate).
+     * @param directory directory containing the levels
+     * @param maxStates maximum number of states searched on each level
+     * @return the reports of the levels, in the order of their file names
+     * @throws IOException if the directory couldn't be listed
+     */
+    public static List<Report> validateAll(String directory, int maxStates) throws IOException {
+        Objects.requireNonNull(directory);
+        List<String> files;
+        try(var paths = Files.list(Path.of(directory))){
+            files = paths.filter(Files::isRegularFile).map(Objects::toString).sorted().collect(Collectors.toList());
+        }
+        return files.parallelStream().
+                flatMap(file -> file.endsWith(LevelPack.EXTENSION) ? validatePack(file, maxStates).stream() : Stream.of(validate(file, maxStates))).
+                collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,350 @@
+package fr.baba.engine;
+
+import fr.baba.engine.board.Board;
+import fr.baba.engine.property.PropertyUpdater;
+import fr.baba.utils.Direction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Moves played on a level, stored compactly to be played again without any display.
+ * Each move takes 2 bits (the ordinal of its direction). A replay also holds the hash
+ * of the initial board of the level, the engine version it has been recorded with,
+ * the hash of the board after the last move, and a snapshot of the board every
+ * checkpointInterval moves: the board at any turn is restored from the nearest
+ * snapshot, instead of playing every move since the beginning.
+ * Only the moves which change the board are recorded (like the turns of a BoardHistory),
+ * and undone moves are forgotten, so that a replay leads straight to the board it ends on.
+ */
+public final class Replay {
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1024;
+    private static final int MAGIC = 0x42414252; // "BABR"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 32; // magic, versions, hashes and number of moves
+    private static final int CHECKPOINT_HEADER_BYTES = 16; // turn, hash and size of a snapshot
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final long levelHash;
+    private final int engineVersion;
+    private final int checkpointInterval;
+    private final byte[] moves; // 4 moves per byte, 2 bits each
+    private final int length;
+    private final List<Checkpoint> checkpoints; // by turn
+    private final long finalHash;
+
+    /**
+     * Result of the verification of a replay against a level.
+     */
+    public enum Verdict {
+        valid,              // the moves lead to the recorded final board
+        otherLevel,         // the replay has been recorded on another level
+        otherEngineVersion, // the replay has been recorded with another version of the engine
+        diverged            // the moves don't lead to the recorded boards
+    }
+
+    /**
+     * Snapshot of the objects of a board after a given number of moves.
+     */
+    private static final class Checkpoint {
+        private final int turn;
+        private final long hash; // see Board.getStateHash
+        private final int[] state; // see Board.getStateEncoding
+
+        private Checkpoint(int turn, long hash, int[] state){
+            this.turn = turn;
+            this.hash = hash;
+            this.state = state;
+        }
+    }
+
+    private Replay(long levelHash, int engineVersion, int checkpointInterval, byte[] moves, int length, List<Checkpoint> checkpoints, long finalHash){
+        this.levelHash = levelHash;
+        this.engineVersion = engineVersion;
+        this.checkpointInterval = checkpointInterval;
+        this.moves = moves;
+        this.length = length;
+        this.checkpoints = List.copyOf(checkpoints);
+        this.finalHash = finalHash;
+    }
+
+    /**
+     * @param moves moves stored 2 bits each
+     * @param turn index of a move
+     * @return the direction of that move
+     */
+    private static Direction moveAt(byte[] moves, int turn){
+        return DIRECTIONS[(moves[turn >> 2] >> ((turn & 3) << 1)) & 3];
+    }
+
+    /**
+     * @return the hash of the initial board of the level the replay has been recorded on,
+     * its rules being collected, see Board.getStateHash
+     */
+    public long getLevelHash(){
+        return levelHash;
+    }
+
+    /**
+     * @return the version of the engine the replay has been recorded with, see Simulation.ENGINE_VERSION
+     */
+    public int getEngineVersion(){
+        return engineVersion;
+    }
+
+    /**
+     * @return the number of moves of the replay
+     */
+    public int getLength(){
+        return length;
+    }
+
+    /**
+     * @return the hash of the board after the last move, see Board.getStateHash
+     */
+    public long getFinalHash(){
+        return finalHash;
+    }
+
+    /**
+     * @return the moves of the replay, in the order they have been played
+     */
+    public List<Direction> getMoves(){
+        var list = new ArrayList<Direction>(length);
+        for(int turn = 0; turn != length; turn++){
+            list.add(moveAt(moves, turn));
+        }
+        return list;
+    }
+
+    /**
+     * Plays every move of the replay on a copy of board, from the first one,
+     * checking the board against each snapshot passed, and against the final hash.
+     * @param board initial board of the level, which is left untouched
+     * @return whether the replay leads to the recorded board
+     */
+    public Verdict verify(Board board){
+        Objects.requireNonNull(board);
+        var copy = board.copy();
+        var simulation = new Simulation(copy);
+        simulation.getStatus();
+        if(copy.getStateHash() != levelHash)
+            return Verdict.otherLevel;
+        if(engineVersion != Simulation.ENGINE_VERSION)
+            return Verdict.otherEngineVersion;
+        var checkpointIterator = checkpoints.iterator();
+        var checkpoint = checkpointIterator.hasNext() ? checkpointIterator.next() : null;
+        for(int turn = 0; turn != length; turn++){
+            simulation.step(moveAt(moves, turn));
+            if(checkpoint != null && checkpoint.turn == turn + 1){
+                if(copy.getStateHash() != checkpoint.hash)
+                    return Verdict.diverged;
+                checkpoint = checkpointIterator.hasNext() ? checkpointIterator.next() : null;
+            }
+        }
+        simulation.getStatus(); // the final hash is taken with the rules written on the final board
+        return copy.getStateHash() == finalHash ? Verdict.valid : Verdict.diverged;
+    }
+
+    /**
+     * Computes the board as it was after the specified number of moves: the nearest
+     * snapshot taken at or before that turn is restored, then the following moves are played.
+     * @param board initial board of the level, which is left untouched
+     * @param turn number of moves to be played, between 0 and getLength()
+     * @return a new board, as it was after those moves
+     */
+    public Board seek(Board board, int turn){
+        Objects.requireNonNull(board);
+        if(turn < 0 || turn > length)
+            throw new IllegalArgumentException("turn has to be between 0 and the length of the replay");
+        var copy = board.copy();
+        var simulation = new Simulation(copy);
+        simulation.getStatus();
+        if(copy.getStateHash() != levelHash)
+            throw new IllegalArgumentException("the replay has been recorded on another level");
+        int from = 0;
+        for(var checkpoint : checkpoints){
+            if(checkpoint.turn > turn)
+                break;
+            copy.restoreState(checkpoint.state);
+            from = checkpoint.turn;
+        }
+        for(int i = from; i != turn; i++){
+            simulation.step(moveAt(moves, i));
+        }
+        simulation.getStatus();
+        return copy;
+    }
+
+    /**
+     * Writes the replay to a file.
+     * @param path path of the file
+     * @throws IOException if the file couldn't be written
+     */
+    public void write(Path path) throws IOException {
+        Objects.requireNonNull(path);
+        try(var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))){
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(engineVersion);
+            output.writeLong(levelHash);
+            output.writeLong(finalHash);
+            output.writeInt(length);
+            output.write(moves, 0, (length + 3) >> 2);
+            output.writeInt(checkpointInterval);
+            output.writeInt(checkpoints.size());
+            for(var checkpoint : checkpoints){
+                output.writeInt(checkpoint.turn);
+                output.writeLong(checkpoint.hash);
+                output.writeInt(checkpoint.state.length);
+                for(var object : checkpoint.state){
+                    output.writeInt(object);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a replay written by write.
+     * Every length read is checked against the bytes left in the file before anything
+     * is allocated for it, so that a corrupted file can't exhaust the memory.
+     * @param path path of the file
+     * @return the replay
+     * @throws IOException if the file couldn't be read or isn't a replay
+     */
+    public static Replay read(Path path) throws IOException {
+        Objects.requireNonNull(path);
+        long remaining = Files.size(path) - HEADER_BYTES;
+        try(var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))){
+            if(input.readInt() != MAGIC)
+                throw new IOException("Error : " + path + " is not a replay");
+            if(input.readInt() != FORMAT_VERSION)
+                throw new IOException("Error : unsupported replay format in " + path);
+            int engineVersion = input.readInt();
+            long levelHash = input.readLong();
+            long finalHash = input.readLong();
+            int length = input.readInt();
+            long movesBytes = ((long) length + 3) >> 2;
+            if(length < 0 || movesBytes + 8 > remaining)
+                throw new IOException("Error : corrupted replay " + path);
+            var moves = new byte[(int) movesBytes];
+            input.readFully(moves);
+            int checkpointInterval = input.readInt();
+            int count = input.readInt();
+            remaining -= movesBytes + 8;
+            if(checkpointInterval <= 0 || count < 0 || count > remaining / CHECKPOINT_HEADER_BYTES)
+                throw new IOException("Error : corrupted replay " + path);
+            var checkpoints = new ArrayList<Checkpoint>();
+            for(int i = 0; i != count; i++){
+                int turn = input.readInt();
+                long hash = input.readLong();
+                int size = input.readInt();
+                remaining -= CHECKPOINT_HEADER_BYTES;
+                if(turn <= 0 || turn > length || size < 0 || size > remaining / 4 || (!checkpoints.isEmpty() && turn <= checkpoints.get(i - 1).turn))
+                    throw new IOException("Error : corrupted replay " + path);
+                var state = new int[size];
+                for(int j = 0; j != size; j++){
+                    state[j] = input.readInt();
+                }
+                remaining -= 4L * size;
+                checkpoints.add(new Checkpoint(turn, hash, state));
+            }
+            if(remaining != 0)
+                throw new IOException("Error : corrupted replay " + path);
+            return new Replay(levelHash, engineVersion, checkpointInterval, moves, length, checkpoints, finalHash);
+        }
+    }
+
+    /**
+     * Records the moves played on a board, see Replay.
+     */
+    public static final class Recorder {
+        private final Board board;
+        private final long levelHash;
+        private final int checkpointInterval;
+        private final ArrayList<Checkpoint> checkpoints = new ArrayList<>(); // by turn, undone ones included
+        private byte[] moves = new byte[16]; // 4 moves per byte, 2 bits each
+        private int length; // number of moves of the replay
+        private int recorded; // number of moves stored, undone ones included
+
+        /**
+         * Starts recording the moves played on board, with the default checkpoint interval.
+         * @param board board of the level, as it is before any move
+         */
+        public Recorder(Board board){
+            this(board, DEFAULT_CHECKPOINT_INTERVAL);
+        }
+
+        /**
+         * Starts recording the moves played on board.
+         * @param board board of the level, as it is before any move
+         * @param checkpointInterval number of moves between two snapshots of the board
+         */
+        public Recorder(Board board, int checkpointInterval){
+            Objects.requireNonNull(board);
+            if(checkpointInterval <= 0)
+                throw new IllegalArgumentException("checkpoint interval has to be positive");
+            this.board = board;
+            this.checkpointInterval = checkpointInterval;
+            PropertyUpdater.collectProperties(board);
+            this.levelHash = board.getStateHash();
+        }
+
+        /**
+         * Records a move which has just been played on the board and has changed it.
+         * The undone moves which could have been redone are forgotten.
+         * @param direction direction of the move
+         */
+        public void record(Direction direction){
+            Objects.requireNonNull(direction);
+            while(!checkpoints.isEmpty() && checkpoints.get(checkpoints.size() - 1).turn > length)
+                checkpoints.remove(checkpoints.size() - 1);
+            if(length >> 2 == moves.length)
+                moves = Arrays.copyOf(moves, moves.length * 2);
+            int shift = (length & 3) << 1;
+            moves[length >> 2] = (byte) ((moves[length >> 2] & ~(3 << shift)) | direction.ordinal() << shift);
+            length++;
+            recorded = length;
+            if(length % checkpointInterval == 0 && board.isStateEncodable()) // boards too large to be encoded are replayed from the start
+                checkpoints.add(new Checkpoint(length, board.getStateHash(), board.getStateEncoding()));
+        }
+
+        /**
+         * Makes the replay end after the specified number of moves, after moves have been
+         * undone or redone. Undone moves are kept as long as no other move is recorded.
+         * @param turn number of moves the board is at, see BoardHistory.getTurnNumber
+         */
+        public void moveTo(int turn){
+            if(turn < 0 || turn > recorded)
+                throw new IllegalArgumentException("turn has to be between 0 and the number of moves recorded");
+            length = turn;
+        }
+
+        /**
+         * @return the number of moves of the replay
+         */
+        public int getLength(){
+            return length;
+        }
+
+        /**
+         * @return the replay of the moves recorded so far, ending on the board as it is now
+         */
+        public Replay toReplay(){
+            PropertyUpdater.collectProperties(board);
+            var kept = checkpoints.stream().filter(checkpoint -> checkpoint.turn <= length).collect(Collectors.toList());
+            return new Replay(levelHash, Simulation.ENGINE_VERSION, checkpointInterval,
+                    Arrays.copyOf(moves, (length + 3) >> 2), length, kept, board.getStateHash());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package fr.baba.engine;
+
+import fr.baba.engine.board.Board;
+import fr.baba.engine.board.SquareSet;
+import fr.baba.engine.property.MoveProperties;
+import fr.baba.engine.property.PropertyUpdater;
+import fr.baba.engine.property.RemoveProperties;
+import fr.baba.utils.Direction;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Plays the turns of a board without any display nor input:
+ * rules are collected, the YOU objects are moved, then the remove-like
+ * properties are applied, exactly as in a running level.
+ */
+public final class Simulation {
+    /**
+     * Version of the rules of the turns, to be incremented whenever a change of the engine
+     * makes a board play differently: replays recorded with another version may not play the same.
+     * Version 2 judges a turn with the rules in force before its removal phase, as the levels always have.
+     */
+    public static final int ENGINE_VERSION = 2;
+
+    private final Board board;
+
+    /**
+     * Outcome of a board after one or several turns.
+     */
+    public enum Status {
+        won,
+        lost,
+        continuing
+    }
+
+    /**
+     * Result of one or several turns.
+     */
+    public static final class Outcome {
+        private final Status status;
+        private final SquareSet changedSquares;
+        private final int turns;
+
+        /**
+         * @param status outcome of the board after the turns
+         * @param changedSquares squares on which objects have been added or removed since the previous outcome
+         * @param turns number of turns played
+         */
+        private Outcome(Status status, SquareSet changedSquares, int turns){
+            this.status = status;
+            this.changedSquares = changedSquares;
+            this.turns = turns;
+        }
+
+        /**
+         * @return outcome of the board after the turns
+         */
+        public Status getStatus(){
+            return status;
+        }
+
+        /**
+         * @return whether the board has been won or lost
+         */
+        public boolean isOver(){
+            return status != Status.continuing;
+        }
+
+        /**
+         * @return the squares on which objects have been added or removed since the previous
+         * outcome (during the turns, or by an undo), see Board.getColOfSquare and Board.getRowOfSquare
+         */
+        public SquareSet getChangedSquares(){
+            return changedSquares;
+        }
+
+        /**
+         * @return the number of turns played
+         */
+        public int getTurns(){
+            return turns;
+        }
+    }
+
+    /**
+     * Creates a simulation playing on board.
+     * The changes made to the board before this call are not reported.
+     * @param board board on which the turns will be played
+     */
+    public Simulation(Board board){
+        this.board = Objects.requireNonNull(board);
+        board.takeChangedSquares();
+    }
+
+    /**
+     * Creates a simulation playing on the level specified in levelFilePath.
+     * @param levelFilePath Path of the file which contains the level
+     * @return the simulation
+     * @throws IOException if the level couldn't be read
+     */
+    public static Simulation load(String levelFilePath) throws IOException {
+        Objects.requireNonNull(levelFilePath);
+        return new Simulation(LevelLoader.loadLevel(levelFilePath));
+    }
+
+    /**
+     * @return the board on which the turns are played
+     */
+    public Board getBoard(){
+        return board;
+    }
+
+    /**
+     * Collects the rules written on the board, then judges it.
+     * Right after a turn, this may differ from the outcome of the turn (see step),
+     * if its removal phase has broken or made a rule.
+     * @return the outcome of the board as it is now, according to the rules written on it
+     */
+    public Status getStatus(){
+        PropertyUpdater.collectProperties(board);
+        return judge();
+    }
+
+    /**
+     * @return the outcome of the board according to the rules collected last
+     */
+    private Status judge(){
+        if(board.lost())
+            return Status.lost;
+        if(board.won())
+            return Status.won;
+        return Status.continuing;
+    }
+
+    /**
+     * Plays one turn. As in a running level, the turn is judged with the rules
+     * collected before its removal phase: a rule broken by a destruction or
+     * a conversion only stops applying on the next turn.
+     * @param direction where the YOU objects are headed
+     * @return the outcome of the turn
+     */
+    public Outcome step(Direction direction){
+        Objects.requireNonNull(direction);
+        playTurn(direction);
+        return new Outcome(judge(), board.takeChangedSquares(), 1);
+    }
+
+    /**
+     * Plays the moves one after the other, until they are exhausted
+     * or the board is won or lost.
+     * @param moves directions of the successive moves
+     * @return the outcome of the last turn played, with the changes of all the turns played
+     */
+    public Outcome play(List<Direction> moves){
+        Objects.requireNonNull(moves);
+        var status = getStatus();
+        int turns = 0;
+        for(var direction : moves){
+            if(status != Status.continuing)
+                break;
+            playTurn(Objects.requireNonNull(direction));
+            status = judge();
+            turns++;
+        }
+        return new Outcome(status, board.takeChangedSquares(), turns);
+    }
+
+    /**
+     * Plays one turn, as a running level does.
+     * @param direction where the YOU objects are headed
+     */
+    private void playTurn(Direction direction){
+        PropertyUpdater.collectProperties(board);
+        MoveProperties.moveAllYouObjects(board, direction);
+        PropertyUpdater.collectProperties(board);
+        RemoveProperties.applyRemoveProperties(board);
+    }
+}
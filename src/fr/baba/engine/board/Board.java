@@ -4,51 +4,604 @@ import fr.baba.engine.Drawable;
 import fr.baba.engine.boardElement.TileObject;
 import fr.baba.engine.boardElement.Token;
 import fr.baba.engine.boardElement.tokenType;
+import fr.baba.engine.property.PropertySet;
+import fr.baba.engine.property.RuleContext;
+import fr.baba.engine.property.RuleSet;
+import fr.baba.engine.property.RuleTracker;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 public class Board implements Drawable {
 
+    /**
+     * Boards up to MAX_NUMBER_OF_COLS x MAX_NUMBER_OF_ROWS fit the screen
+     * and are stored densely; larger boards are stored sparsely, by chunks.
+     */
     public static final int MAX_NUMBER_OF_COLS = 33;
     public static final int MAX_NUMBER_OF_ROWS = 18;
+    /**
+     * In the state encoding of a board, an object is encoded as
+     * (square index) * STATE_TOKEN_RANGE + (token ordinal), see getStateEncoding.
+     */
+    public static final int STATE_TOKEN_RANGE = 64;
+    private static final Token[] TOKENS = Token.values();
+    private static final Token[] PROPERTIES = Arrays.stream(TOKENS).
+            filter(t -> t.getType() == tokenType.property).
+            toArray(Token[]::new);
+    private static final TileObject[] STATE_OBJECTS = Arrays.stream(TOKENS). // objects restored from state encodings, by token ordinal
+            map(TileObject::of).
+            toArray(TileObject[]::new);
 
-    private final ArrayList<ArrayList<ArrayList<TileObject>>> grid;
-    private final ArrayList<ArrayList<TileObject>> backgroundGrid;
+    private final Grid grid;
+    private final SquareSet[] propertyIndex = new SquareSet[TOKENS.length]; // squares having a property, by property ordinal
+    private final SquareSet[] tokenIndex = new SquareSet[TOKENS.length]; // squares holding a token, by token ordinal
     private final int numberOfCol;
     private final int numberOfRow;
+    private BoardHistory history; // records the mutations of the board if not null
+    private SquareSet textChanges = new SquareSet(); // squares whose text objects changed
+    private SquareSet dirtySquares = new SquareSet(); // squares whose objects or properties changed
+    private SquareSet changedSquares = new SquareSet(); // squares whose objects changed
+    private final RuleTracker ruleTracker;
+    private final RuleContext ruleContext = new RuleContext();
+    private long objectsHash; // sum of the Zobrist keys of the objects
+    private long propertiesHash; // sum of the Zobrist keys of the properties of the tokens
 
     private final BoardDisplayer boardDisplayer = new BoardDisplayer();
 
 
     /**
      * Initializes an empty board with a default background color.
+     * Boards larger than MAX_NUMBER_OF_COLS x MAX_NUMBER_OF_ROWS are sparse:
+     * only the regions of the board which are used take memory and time.
      * @param numberOfCol number of columns of the board
      * @param numberOfRow number of rows of the board
      */
     public Board(int numberOfCol, int numberOfRow){
+        this(numberOfCol, numberOfRow, numberOfCol > MAX_NUMBER_OF_COLS || numberOfRow > MAX_NUMBER_OF_ROWS);
+    }
+
+    /**
+     * Initializes an empty board with a default background color.
+     * @param numberOfCol number of columns of the board
+     * @param numberOfRow number of rows of the board
+     * @param sparse whether the board is stored by chunks allocated on demand,
+     *               which suits large and mostly empty boards
+     */
+    public Board(int numberOfCol, int numberOfRow, boolean sparse){
         if(numberOfCol < 0 || numberOfRow < 0)
             throw new IllegalArgumentException("there has to be at least one row and/or one column");
-        if(numberOfCol > MAX_NUMBER_OF_COLS || numberOfRow > MAX_NUMBER_OF_ROWS)
+        if((long) numberOfCol * numberOfRow > Integer.MAX_VALUE)
             throw new IllegalArgumentException("number of Rows or Columns exceeded the authorized maximum");
 
         this.numberOfCol = numberOfCol;
         this.numberOfRow = numberOfRow;
+        this.ruleTracker = new RuleTracker();
+        this.grid = sparse ? new ChunkedGrid(numberOfCol, numberOfRow) : new FlatGrid(numberOfCol * numberOfRow);
+        for(var property : PROPERTIES){
+            this.propertyIndex[property.ordinal()] = new SquareSet();
+        }
+        for(var token : TOKENS){
+            this.tokenIndex[token.ordinal()] = new SquareSet();
+            this.propertiesHash += ZobristKeys.propertyKey(token.ordinal(), ruleContext.getPropertyMask(token));
+        }
+    }
+
+    /**
+     * Creates a copy of the board, in the very state it is in: same dimensions,
+     * storage, objects, background, rules and pending changes.
+     * Tile objects are immutable, so they are shared by both boards.
+     * The copy has no history.
+     * @return the copy
+     */
+    public Board copy(){
+        return new Board(this);
+    }
+
+    /**
+     * Initializes a copy of board, see copy.
+     * @param board board to be copied
+     */
+    private Board(Board board){
+        this.numberOfCol = board.numberOfCol;
+        this.numberOfRow = board.numberOfRow;
+        this.ruleTracker = board.ruleTracker.copy();
+        this.ruleContext.apply(board.ruleContext.getRuleSet());
+        this.grid = board.grid.copy();
+        for(var property : PROPERTIES){
+            this.propertyIndex[property.ordinal()] = board.propertyIndex[property.ordinal()].copy();
+        }
+        for(var token : TOKENS){
+            this.tokenIndex[token.ordinal()] = board.tokenIndex[token.ordinal()].copy();
+        }
+        this.textChanges = board.textChanges.copy();
+        this.dirtySquares = board.dirtySquares.copy();
+        this.changedSquares = board.changedSquares.copy();
+        this.objectsHash = board.objectsHash;
+        this.propertiesHash = board.propertiesHash;
+    }
+
+    /**
+     * Inserts obj at the specified position of the square,
+     * keeping the indexes up to date.
+     * Every addition to the board goes through this method.
+     * @param square index of the square
+     * @param position position of the object in the square's stack
+     * @param obj object to be inserted
+     */
+    void insertObject(int square, int position, TileObject obj){
+        grid.insert(square, position, obj);
+        tokenIndex[obj.getToken().ordinal()].set(square);
+        objectsHash += ZobristKeys.objectKey(square, obj.getToken().ordinal());
+        updatePropertyIndex(square);
+        dirtySquares.set(square);
+        changedSquares.set(square);
+        if(obj.getToken().getType() != tokenType.sprite)
+            textChanges.set(square);
+        if(history != null)
+            history.recordInsertion(square, position, obj);
+    }
+
+    /**
+     * Removes the object at the specified position of the square,
+     * keeping the indexes up to date.
+     * Every removal from the board goes through this method.
+     * @param square index of the square
+     * @param position position of the object in the square's stack
+     * @return the removed object
+     */
+    TileObject removeObjectAt(int square, int position){
+        var obj = grid.removeAt(square, position);
+        int tokenId = obj.getToken().ordinal();
+        if(grid.indexOfToken(square, tokenId) == -1)
+            tokenIndex[tokenId].clear(square);
+        objectsHash -= ZobristKeys.objectKey(square, tokenId);
+        updatePropertyIndex(square);
+        dirtySquares.set(square);
+        changedSquares.set(square);
+        if(obj.getToken().getType() != tokenType.sprite)
+            textChanges.set(square);
+        if(history != null)
+            history.recordRemoval(square, position, obj);
+        return obj;
+    }
+
+    /**
+     * Empties the square, keeping the indexes up to date.
+     * @param square index of the square
+     */
+    void clearSquareAt(int square){
+        if(grid.size(square) == 0)
+            return;
+        dirtySquares.set(square);
+        changedSquares.set(square);
+        for(int i = grid.size(square) - 1; i >= 0; i--){
+            tokenIndex[grid.tokenId(square, i)].clear(square);
+            objectsHash -= ZobristKeys.objectKey(square, grid.tokenId(square, i));
+            if(TOKENS[grid.tokenId(square, i)].getType() != tokenType.sprite)
+                textChanges.set(square);
+            if(history != null)
+                history.recordRemoval(square, i, grid.get(square, i));
+        }
+        grid.clear(square);
+        updatePropertyIndex(square);
+    }
+
+    /**
+     * @param square index of the square
+     * @return the number of objects on the square
+     */
+    int sizeOfSquare(int square){
+        return grid.size(square);
+    }
+
+    /**
+     * @param square index of the square
+     * @param position position of the object in the square's stack
+     * @return the object at that position
+     */
+    TileObject objectOnSquare(int square, int position){
+        return grid.get(square, position);
+    }
+
+    /**
+     * Returns the squares on which text objects (nouns, operators and properties)
+     * have been added or removed since the last call, and forgets them.
+     * @return a set of square indices
+     */
+    public SquareSet takeTextChanges(){
+        if(textChanges.isEmpty())
+            return textChanges;
+        var changes = textChanges;
+        textChanges = new SquareSet();
+        return changes;
+    }
+
+    /**
+     * Returns the squares whose objects, or the properties of their objects,
+     * have changed since the last call, and forgets them.
+     * Every mutation of the board marks its square dirty, and so does a change
+     * of the rules for the squares holding the tokens whose properties changed:
+     * a square which is not dirty answers any property query as it did at the last call.
+     * @return a set of square indices
+     */
+    public SquareSet takeDirtySquares(){
+        if(dirtySquares.isEmpty())
+            return dirtySquares;
+        var squares = dirtySquares;
+        dirtySquares = new SquareSet();
+        return squares;
+    }
+
+    /**
+     * Returns the squares on which objects have been added or removed
+     * since the last call, and forgets them.
+     * @return a set of square indices
+     */
+    public SquareSet takeChangedSquares(){
+        var squares = changedSquares;
+        changedSquares = new SquareSet();
+        return squares;
+    }
+
+    /**
+     * Estimates the memory taken by the board: its grid, its indexes and its pending changes.
+     * Objects are not counted, as they are immutable and may be shared with other boards.
+     * @return an estimate of the memory taken by the board, in bytes
+     */
+    public long getMemoryFootprint(){
+        long bytes = grid.bytes() + textChanges.bytes() + dirtySquares.bytes() + changedSquares.bytes()
+                + 2 * MemoryFootprint.ofArray(TOKENS.length, MemoryFootprint.REFERENCE_BYTES)
+                + MemoryFootprint.ofArray(TOKENS.length, 8); // property masks of the rule context
+        for(var token : TOKENS){
+            bytes += tokenIndex[token.ordinal()].bytes();
+        }
+        for(var property : PROPERTIES){
+            bytes += propertyIndex[property.ordinal()].bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the properties of the tokens on this board
+     */
+    public RuleContext getRuleContext(){
+        return ruleContext;
+    }
 
-        this.grid = new ArrayList<>(numberOfCol);
-        this.backgroundGrid = new ArrayList<>(numberOfCol);
-        for (int i = 0; i != numberOfCol; i++){
-            this.grid.add(new ArrayList<>(numberOfRow));
-            this.backgroundGrid.add(new ArrayList<>(numberOfRow));
-            for (int j = 0; j != numberOfRow; j++){
-                this.grid.get(i).add(new ArrayList<>());
-                this.backgroundGrid.get(i).add(null);
+    /**
+     * @return the tracker of the rules written on the board
+     */
+    public RuleTracker getRuleTracker(){
+        return ruleTracker;
+    }
+
+    /**
+     * Attaches the history in which every mutation of the board will be recorded.
+     * @param history history of the board, null to stop recording
+     */
+    void setHistory(BoardHistory history){
+        this.history = history;
+    }
+
+    /**
+     * Returns the properties of obj on this board as a mask of property ordinals.
+     * @param obj object whose properties are requested
+     * @return the mask of its properties
+     */
+    private long propertyMaskOf(TileObject obj){
+        return ruleContext.getPropertyMask(obj.getToken());
+    }
+
+    /**
+     * Computes the union of the properties of every object on the square.
+     * @param square index of the square
+     * @return the mask of the properties on the square
+     */
+    private long squarePropertyMask(int square){
+        long mask = 0;
+        for(int i = 0; i != grid.size(square); i++){
+            mask |= propertyMaskOf(grid.get(square, i));
+        }
+        return mask;
+    }
+
+    /**
+     * Updates the property index of the square after its content has changed.
+     * @param square index of the square
+     */
+    private void updatePropertyIndex(int square){
+        long mask = squarePropertyMask(square);
+        for(var property : PROPERTIES){
+            propertyIndex[property.ordinal()].set(square, (mask & (1L << property.ordinal())) != 0);
+        }
+    }
+
+    /**
+     * Applies the rules to the objects of the board, and updates the property index.
+     * Only the squares holding a token whose properties are not the same
+     * as before are updated, and marked dirty.
+     * @param ruleSet rules written on the board
+     */
+    public void applyRuleSet(RuleSet ruleSet){
+        var previousMasks = new long[TOKENS.length];
+        for(var token : TOKENS){
+            previousMasks[token.ordinal()] = ruleContext.getPropertyMask(token);
+        }
+        if(!ruleContext.apply(ruleSet))
+            return;
+        var propertyChanges = new SquareSet();
+        for(var token : TOKENS){
+            long mask = ruleContext.getPropertyMask(token);
+            if(mask == previousMasks[token.ordinal()])
+                continue;
+            propertiesHash += ZobristKeys.propertyKey(token.ordinal(), mask)
+                    - ZobristKeys.propertyKey(token.ordinal(), previousMasks[token.ordinal()]);
+            propertyChanges.or(tokenIndex[token.ordinal()]);
+        }
+        for(int square = propertyChanges.nextSetBit(0); square != -1; square = propertyChanges.nextSetBit(square + 1)){
+            updatePropertyIndex(square);
+        }
+        dirtySquares.or(propertyChanges);
+    }
+
+    /**
+     * Returns the Zobrist hash of the state of the board: its objects (token and square,
+     * whatever their order in the square's stack) and the properties of its tokens.
+     * It is kept up to date by every mutation of the board, so it costs nothing to read.
+     * Boards in the same state have the same hash; boards with the same hash are
+     * in the same state with a probability close to 1, see sameStateAs to be sure.
+     * @return the hash of the state of the board
+     */
+    public long getStateHash(){
+        return objectsHash + propertiesHash;
+    }
+
+    /**
+     * Encodes the objects of the board, one int per object, in the order the board
+     * is scanned and, on each square, in the order of its stack, see STATE_TOKEN_RANGE.
+     * Boards holding the same objects at the same places have the same encoding,
+     * whatever the mutations which led to them. Background objects are not encoded.
+     * @return the encoding of the objects of the board
+     * @throws IllegalStateException if the board is too large to be encoded, see isStateEncodable
+     */
+    public int[] getStateEncoding(){
+        checkStateEncodable();
+        var state = new int[16];
+        int size = 0;
+        for(int square = grid.nextUsedSquare(0); square != -1; square = grid.nextUsedSquare(square + 1)){
+            int squareSize = grid.size(square);
+            if(size + squareSize > state.length)
+                state = Arrays.copyOf(state, Math.max(size + squareSize, state.length * 2));
+            for(int i = 0; i != squareSize; i++){
+                state[size++] = square * STATE_TOKEN_RANGE + grid.tokenId(square, i);
+            }
+        }
+        return Arrays.copyOf(state, size);
+    }
+
+    /**
+     * @return whether the objects of the board can be encoded in ints, which requires
+     * every square index times STATE_TOKEN_RANGE to fit in an int
+     */
+    public boolean isStateEncodable(){
+        return (long) numberOfCol * numberOfRow <= Integer.MAX_VALUE / STATE_TOKEN_RANGE;
+    }
+
+    /**
+     * @throws IllegalStateException if the board is too large to be encoded
+     */
+    private void checkStateEncodable(){
+        if(!isStateEncodable())
+            throw new IllegalStateException("board is too large to be encoded");
+    }
+
+    /**
+     * Replaces the objects of the board by those of a state encoding, see getStateEncoding.
+     * Restored objects with the same token are the same (immutable) object.
+     * Background objects are kept, and the rules are to be collected again.
+     * @param state encoding of the objects, as given by getStateEncoding on a board of the same dimensions
+     * @throws IllegalStateException if the board is too large to be encoded, see isStateEncodable
+     */
+    public void restoreState(int[] state){
+        Objects.requireNonNull(state);
+        checkStateEncodable();
+        for(var object : state){
+            if(object < 0 || object / STATE_TOKEN_RANGE >= numberOfCol * numberOfRow || object % STATE_TOKEN_RANGE >= TOKENS.length)
+                throw new IllegalArgumentException("invalid state encoding for this board");
+        }
+        for(int square = grid.nextUsedSquare(0); square != -1; square = grid.nextUsedSquare(square + 1)){
+            clearSquareAt(square);
+        }
+        for(var object : state){
+            int square = object / STATE_TOKEN_RANGE;
+            insertObject(square, grid.size(square), STATE_OBJECTS[object % STATE_TOKEN_RANGE]);
+        }
+    }
+
+    /**
+     * Checks if other is in the same state as this board: same dimensions, same objects
+     * at the same places in the same order, and same properties of the tokens.
+     * Hashes are compared first, so boards in different states are told apart in constant time.
+     * @param other another board
+     * @return whether both boards are in the same state
+     */
+    public boolean sameStateAs(Board other){
+        Objects.requireNonNull(other);
+        if(other == this)
+            return true;
+        if(other.getStateHash() != getStateHash() || other.numberOfCol != numberOfCol || other.numberOfRow != numberOfRow)
+            return false;
+        for(var token : TOKENS){
+            if(other.ruleContext.getPropertyMask(token) != ruleContext.getPropertyMask(token))
+                return false;
+        }
+        return sameObjectsAs(other);
+    }
+
+    /**
+     * Checks if other holds the same objects as this board at the same places and in the same order,
+     * as comparing their state encodings would, but without encoding them, so for boards of any size.
+     * @param other another board, of the same dimensions
+     * @return whether both boards hold the same objects
+     */
+    private boolean sameObjectsAs(Board other){
+        int square = grid.nextUsedSquare(0);
+        int otherSquare = other.grid.nextUsedSquare(0);
+        while(square != -1 || otherSquare != -1){
+            int current = square == -1 ? otherSquare : otherSquare == -1 ? square : Math.min(square, otherSquare);
+            int size = current == square ? grid.size(current) : 0;
+            if((current == otherSquare ? other.grid.size(current) : 0) != size)
+                return false;
+            for(int i = 0; i != size; i++){
+                if(grid.tokenId(current, i) != other.grid.tokenId(current, i))
+                    return false;
             }
+            if(current == square)
+                square = grid.nextUsedSquare(current + 1);
+            if(current == otherSquare)
+                otherSquare = other.grid.nextUsedSquare(current + 1);
         }
+        return true;
+    }
+
+    /**
+     * @param obj an object
+     * @param property a property
+     * @return whether obj has that property, according to the rules of this board
+     */
+    public boolean hasProperty(TileObject obj, Token property){
+        Objects.requireNonNull(obj);
+        return ruleContext.hasProperty(obj.getToken(), property);
+    }
+
+    /**
+     * @param obj an object
+     * @return the properties of obj, according to the rules of this board
+     */
+    public PropertySet getPropertiesOf(TileObject obj){
+        Objects.requireNonNull(obj);
+        return ruleContext.getProperties(obj.getToken());
+    }
+
+    /**
+     * Looks for the next square, in the order the board is scanned (column by column),
+     * holding objects or a background object.
+     * @param fromSquare index of the first square to be checked
+     * @return the index of that square, or -1 if there is none
+     */
+    public int nextUsedSquare(int fromSquare){
+        return grid.nextUsedSquare(fromSquare);
+    }
+
+    /**
+     * Looks for the next square, in the order the board is scanned (column by column),
+     * on which the specified property is present.
+     * The index is read live, so squares gaining the property
+     * while the board is being scanned are found as well.
+     * @param property property to be had by the square
+     * @param fromSquare index of the first square to be checked
+     * @return the index of that square, or -1 if there is none
+     */
+    public int nextSquareWithProperty(Token property, int fromSquare){
+        return propertySquares(property).nextSetBit(fromSquare);
+    }
+
+    /**
+     * Returns the squares holding at least one object with the specified token,
+     * in the order the board is scanned (column by column).
+     * @param token token to be had by the objects
+     * @return an array of square indices, see getColOfSquare and getRowOfSquare
+     */
+    public int[] getSquaresWithToken(Token token){
+        Objects.requireNonNull(token);
+        return tokenIndex[token.ordinal()].toArray();
+    }
+
+    /**
+     * Returns the squares on which every specified property is present,
+     * in the order the board is scanned (column by column).
+     * @param properties properties to be had by the squares
+     * @return an array of square indices, see getColOfSquare and getRowOfSquare
+     */
+    public int[] getSquaresWithProperties(Token... properties){
+        if(properties.length == 0)
+            throw new IllegalArgumentException("at least one property has to be specified");
+        var squares = propertySquares(properties[0]).copy();
+        for(int i = 1; i != properties.length; i++){
+            squares.and(propertySquares(properties[i]));
+        }
+        return squares.toArray();
+    }
+
+    /**
+     * Returns the squares on which every property of at least one of the
+     * specified sets is present.
+     * @param propertySets sets of properties to be had by the squares
+     * @return a new set of square indices
+     */
+    public SquareSet getSquaresWithAnyOf(PropertySet... propertySets){
+        var squares = new SquareSet();
+        for(var propertySet : propertySets){
+            long mask = propertySet.toMask();
+            if(mask == 0)
+                throw new IllegalArgumentException("at least one property has to be specified");
+            SquareSet matching = null;
+            for(var property : PROPERTIES){
+                if((mask & (1L << property.ordinal())) == 0)
+                    continue;
+                if(matching == null)
+                    matching = propertyIndex[property.ordinal()].copy();
+                else
+                    matching.and(propertyIndex[property.ordinal()]);
+            }
+            squares.or(matching);
+        }
+        return squares;
+    }
+
+    /**
+     * @param property property to be had
+     * @return the index of the squares having that property
+     */
+    private SquareSet propertySquares(Token property){
+        Objects.requireNonNull(property);
+        if(property.getType() != tokenType.property)
+            throw new IllegalArgumentException("Token has to be a property");
+        return propertyIndex[property.ordinal()];
+    }
+
+    /**
+     * @param square index of a square
+     * @return the column coordinate of the square
+     */
+    public int getColOfSquare(int square){
+        return square / numberOfRow;
+    }
+
+    /**
+     * @param square index of a square
+     * @return the row coordinate of the square
+     */
+    public int getRowOfSquare(int square){
+        return square % numberOfRow;
+    }
+
+    /**
+     * Returns the index of the square located at (colNumber, rowNumber)
+     * in the flat grid, checking the coordinates once for all.
+     * @param colNumber column coordinate of the square
+     * @param rowNumber row coordinate of the square
+     * @return the index of the square
+     */
+    private int squareIndex(int colNumber, int rowNumber){
+        if(!coordinatesAreValid(colNumber, rowNumber))
+            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
+        return colNumber * this.numberOfRow + rowNumber;
     }
 
     /**
@@ -85,34 +638,61 @@ public class Board implements Drawable {
      */
     void setObjectOnSquare(TileObject object, int colNumber, int rowNumber){
         Objects.requireNonNull(object);
-        if(!coordinatesAreValid(colNumber, rowNumber))
-            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
-        getSquareOnGrid(colNumber, rowNumber).add(object);
+        int square = squareIndex(colNumber, rowNumber);
+        insertObject(square, grid.size(square), object);
     }
 
     public void setObjectInBackground(TileObject object, int colNumber, int rowNumber){
         Objects.requireNonNull(object);
-        if(!coordinatesAreValid(colNumber, rowNumber))
-            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
-        backgroundGrid.get(colNumber).set(rowNumber, object);
+        grid.setBackground(squareIndex(colNumber, rowNumber), object);
     }
 
     /**
-     * Returns the square located at (colNUmber, rowNumber).
+     * Returns the objects on the square located at (colNUmber, rowNumber).
      * @param colNumber column coordinate of the square
      * @param rowNumber row coordinate of the square
-     * @return an ArrayList containing the references (not copies) of the objects on the square.
+     * @return a List containing the references (not copies) of the objects on the square,
+     * in their stacking order. Modifying the list does not modify the square.
      */
-    public ArrayList<TileObject> getSquareOnGrid(int colNumber, int rowNumber){
-        if(!coordinatesAreValid(colNumber, rowNumber))
-            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
-        return this.grid.get(colNumber).get(rowNumber);
+    public List<TileObject> getSquareOnGrid(int colNumber, int rowNumber){
+        int square = squareIndex(colNumber, rowNumber);
+        var objects = new ArrayList<TileObject>(grid.size(square));
+        for(int i = 0; i != grid.size(square); i++){
+            objects.add(grid.get(square, i));
+        }
+        return objects;
     }
 
-    TileObject getBackgroundObjectOnGrid(int colNumber, int rowNumber){
-        if(!coordinatesAreValid(colNumber, rowNumber))
-            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
-        return this.backgroundGrid.get(colNumber).get(rowNumber);
+    /**
+     * Returns the number of objects on the square located at (colNUmber, rowNumber).
+     * @param colNumber column coordinate of the square
+     * @param rowNumber row coordinate of the square
+     * @return the number of objects on the square
+     */
+    public int getSquareSize(int colNumber, int rowNumber){
+        return grid.size(squareIndex(colNumber, rowNumber));
+    }
+
+    /**
+     * Returns the object at the specified position of the
+     * square located at (colNUmber, rowNumber).
+     * @param colNumber column coordinate of the square
+     * @param rowNumber row coordinate of the square
+     * @param position position of the object, 0 being the bottom of the square
+     * @return the object at that position
+     */
+    public TileObject getObjectOnSquare(int colNumber, int rowNumber, int position){
+        return grid.get(squareIndex(colNumber, rowNumber), position);
+    }
+
+    /**
+     * Returns the background object of the square located at (colNUmber, rowNumber).
+     * @param colNumber column coordinate of the square
+     * @param rowNumber row coordinate of the square
+     * @return the background object, null if there is none
+     */
+    public TileObject getBackgroundObjectOnGrid(int colNumber, int rowNumber){
+        return grid.getBackground(squareIndex(colNumber, rowNumber));
     }
 
     /**
@@ -121,9 +701,7 @@ public class Board implements Drawable {
      * @param rowNumber row coordinate of the square
      */
     public void clearSquare(int colNumber, int rowNumber){
-        if(!coordinatesAreValid(colNumber, rowNumber))
-            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
-        this.getSquareOnGrid(colNumber, rowNumber).clear();
+        clearSquareAt(squareIndex(colNumber, rowNumber));
     }
 
     /**
@@ -135,12 +713,18 @@ public class Board implements Drawable {
      * @return true if at least one object has that property
      */
     public Boolean squareHasProperty(int colNumber, int rowNumber, Token property){
-        Objects.requireNonNull(property);
-        if(!coordinatesAreValid(colNumber, rowNumber))
-            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
-        if(Objects.requireNonNull(property).getType() != tokenType.property)
-            throw new IllegalArgumentException("Token has to be a property");
-        return this.getSquareOnGrid(colNumber, rowNumber).stream().anyMatch(obj -> obj.hasProperty(property));
+        return propertySquares(property).get(squareIndex(colNumber, rowNumber));
+    }
+
+    /**
+     * Computes the union of the properties of every object
+     * on the square located at (colNUmber, rowNumber).
+     * @param colNumber column coordinate of the square
+     * @param rowNumber row coordinate of the square
+     * @return the properties on the square
+     */
+    public PropertySet getSquareProperties(int colNumber, int rowNumber){
+        return PropertySet.fromMask(squarePropertyMask(squareIndex(colNumber, rowNumber)));
     }
 
     /**
@@ -153,11 +737,7 @@ public class Board implements Drawable {
      */
     public Boolean squareHasToken(int colNumber, int rowNumber, Token token){
         Objects.requireNonNull(token);
-        if(!coordinatesAreValid(colNumber, rowNumber))
-            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
-        return this.getSquareOnGrid(colNumber, rowNumber).
-                stream().
-                anyMatch(obj -> obj.getToken() == token);
+        return tokenIndex[token.ordinal()].get(squareIndex(colNumber, rowNumber));
     }
 
     /**
@@ -176,10 +756,12 @@ public class Board implements Drawable {
         if(!coordinatesAreValid(colNumber, rowNumber)){
             return Optional.empty();
         }
-        return this.getSquareOnGrid(colNumber, rowNumber).
-                stream().
-                filter(obj -> obj.getToken().getType() == type).
-                findFirst();
+        int square = squareIndex(colNumber, rowNumber);
+        for(int i = 0; i != grid.size(square); i++){
+            if(TOKENS[grid.tokenId(square, i)].getType() == type)
+                return Optional.of(grid.get(square, i));
+        }
+        return Optional.empty();
     }
 
     /**
@@ -198,10 +780,9 @@ public class Board implements Drawable {
         if(!coordinatesAreValid(colNumber, rowNumber)){
             return Optional.empty();
         }
-        return this.getSquareOnGrid(colNumber, rowNumber).
-                stream().
-                filter(obj -> obj.getToken() == token).
-                findFirst();
+        int square = squareIndex(colNumber, rowNumber);
+        int position = grid.indexOfToken(square, token.ordinal());
+        return position == -1 ? Optional.empty() : Optional.of(grid.get(square, position));
     }
 
     /**
@@ -213,14 +794,18 @@ public class Board implements Drawable {
      * @return List containing those objects
      */
     public List<TileObject> getObjectsOnSquareWithProperty(int colNumber, int rowNumber, Token property){
-        if(!coordinatesAreValid(colNumber, rowNumber))
-            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
         if(property.getType() != tokenType.property)
             throw new IllegalArgumentException("Token has to be a property");
-        return  getSquareOnGrid(colNumber, rowNumber).
-                stream().
-                filter(obj -> obj.hasProperty(property)).
-                collect(Collectors.toList());
+        int square = squareIndex(colNumber, rowNumber);
+        var objects = new ArrayList<TileObject>();
+        if(!propertyIndex[property.ordinal()].get(square))
+            return objects;
+        long propertyBit = 1L << property.ordinal();
+        for(int i = 0; i != grid.size(square); i++){
+            if((propertyMaskOf(grid.get(square, i)) & propertyBit) != 0)
+                objects.add(grid.get(square, i));
+        }
+        return objects;
     }
 
     /**
@@ -232,9 +817,46 @@ public class Board implements Drawable {
      */
     public void removeObjectFromSquare(TileObject obj, int colNumber, int rowNumber){
         Objects.requireNonNull(obj);
-        if(!coordinatesAreValid(colNumber, rowNumber))
-            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
-        getSquareOnGrid(colNumber, rowNumber).remove(obj);
+        int square = squareIndex(colNumber, rowNumber);
+        int position = grid.indexOf(square, obj);
+        if(position != -1)
+            removeObjectAt(square, position);
+    }
+
+    /**
+     * Removes every object having at least one of the specified properties
+     * from the square located at (colNUmber, rowNumber).
+     * @param properties properties of the objects to be removed
+     * @param colNumber column coordinate of the square
+     * @param rowNumber row coordinate of the square
+     */
+    public void removeObjectsWithProperties(PropertySet properties, int colNumber, int rowNumber){
+        long mask = properties.toMask();
+        int square = squareIndex(colNumber, rowNumber);
+        for(int i = grid.size(square) - 1; i >= 0; i--){
+            if((propertyMaskOf(grid.get(square, i)) & mask) != 0)
+                removeObjectAt(square, i);
+        }
+    }
+
+    /**
+     * Replaces the specified object of the square located at (colNUmber, rowNumber)
+     * by another one, which takes its place in the square's stack.
+     * If the object is not there, nothing happens.
+     * @param obj object to be replaced
+     * @param replacement object taking its place
+     * @param colNumber column coordinate of the square
+     * @param rowNumber row coordinate of the square
+     */
+    public void replaceObjectOnSquare(TileObject obj, TileObject replacement, int colNumber, int rowNumber){
+        Objects.requireNonNull(obj);
+        Objects.requireNonNull(replacement);
+        int square = squareIndex(colNumber, rowNumber);
+        int position = grid.indexOf(square, obj);
+        if(position != -1){
+            removeObjectAt(square, position);
+            insertObject(square, position, replacement);
+        }
     }
 
     /**
@@ -244,9 +866,6 @@ public class Board implements Drawable {
      * @param rowNumber row coordinate of the square
      */
     public void addObjectToSquare(TileObject obj, int colNumber, int rowNumber){
-        Objects.requireNonNull(obj);
-        if(!coordinatesAreValid(colNumber, rowNumber))
-            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
         setObjectOnSquare(obj, colNumber, rowNumber);
     }
 
@@ -272,14 +891,7 @@ public class Board implements Drawable {
      * @return if the player has won or not.
      */
     public Boolean won(){
-        for (int i = 0; i < this.numberOfCol; i++) {
-            for (int j = 0; j < this.numberOfRow; j++) {
-                if(this.squareHasProperty(i, j, Token.You)
-                        && this.squareHasProperty(i, j, Token.Win))
-                    return true;
-            }
-        }
-        return false;
+        return propertyIndex[Token.You.ordinal()].intersects(propertyIndex[Token.Win.ordinal()]);
     }
 
     /**
@@ -287,14 +899,7 @@ public class Board implements Drawable {
      * @return if the player has lost or not.
      */
     public Boolean lost(){
-        for (int i = 0; i < this.numberOfCol; i++) {
-            for (int j = 0; j < this.numberOfRow; j++) {
-                if(this.squareHasProperty(i, j, Token.You)){
-                    return false;
-                }
-            }
-        }
-        return true;
+        return propertyIndex[Token.You.ordinal()].isEmpty();
     }
 
     @Override
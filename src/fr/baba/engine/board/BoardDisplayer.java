@@ -1,5 +1,7 @@
 package fr.baba.engine.board;
 
+import fr.baba.engine.boardElement.Token;
+
 import java.awt.*;
 import java.awt.geom.Rectangle2D;
 
@@ -13,66 +15,99 @@ class BoardDisplayer {
     private int topLeftY;
     private int squareHeight;
     private int squareWidth;
+    private static final int MIN_SQUARE_SIZE = 1; // pixels
+    private int displayedCols = Board.MAX_NUMBER_OF_COLS; // boards larger than the maximum are shrunk to fit
+    private int displayedRows = Board.MAX_NUMBER_OF_ROWS;
+    private int firstCol; // first column of the board shown, when it doesn't fit even with the smallest squares
+    private int firstRow;
+    private int shownCols; // number of columns of the board shown
+    private int shownRows;
     private float heightPaddingSize = PADDING * height /100;
     private float widthPaddingSize = PADDING * width /100;
 
     /**
      * Updates the display attributes in case the screen dimensions were to change.
+     * Squares are at least MIN_SQUARE_SIZE pixels large: a board with more columns
+     * or rows than fit at that size is shown through a viewport centred on its first YOU object.
+     * @param board board to be drawn
      * @param topLeftX top left x coordinate of the board drawing
      * @param topLeftY top left y coordinate of the board drawing
      * @param heightSize height of the board drawing
      * @param widthSize width of the board drawing
      */
-    private void updateDisplayAttributes(int topLeftX, int topLeftY, int heightSize, int widthSize){
+    private void updateDisplayAttributes(Board board, int topLeftX, int topLeftY, int heightSize, int widthSize){
         this.height = heightSize;
         this.width = widthSize;
         this.topLeftX = topLeftX;
         this.topLeftY = topLeftY;
         this.heightPaddingSize = PADDING * this.height /100;
         this.widthPaddingSize = PADDING * this.width /100;
-        this.squareHeight = (int) ((this.height - (this.heightPaddingSize * 2) - (Board.MAX_NUMBER_OF_ROWS + 1) * GRID_SIZE) / Board.MAX_NUMBER_OF_ROWS);
-        this.squareWidth = (int) ((this.width - (this.widthPaddingSize * 2) - (Board.MAX_NUMBER_OF_COLS + 1) * GRID_SIZE) / Board.MAX_NUMBER_OF_COLS);
+        this.displayedCols = Math.min(Math.max(Board.MAX_NUMBER_OF_COLS, board.getNumberOfCol()), maxSquares(this.width - this.widthPaddingSize * 2));
+        this.displayedRows = Math.min(Math.max(Board.MAX_NUMBER_OF_ROWS, board.getNumberOfRow()), maxSquares(this.height - this.heightPaddingSize * 2));
+        this.squareHeight = Math.max(MIN_SQUARE_SIZE, (int) ((this.height - (this.heightPaddingSize * 2) - (this.displayedRows + 1) * GRID_SIZE) / this.displayedRows));
+        this.squareWidth = Math.max(MIN_SQUARE_SIZE, (int) ((this.width - (this.widthPaddingSize * 2) - (this.displayedCols + 1) * GRID_SIZE) / this.displayedCols));
+        this.shownCols = Math.min(board.getNumberOfCol(), this.displayedCols);
+        this.shownRows = Math.min(board.getNumberOfRow(), this.displayedRows);
+        int you = board.nextSquareWithProperty(Token.You, 0);
+        int centerCol = you == -1 ? 0 : board.getColOfSquare(you);
+        int centerRow = you == -1 ? 0 : board.getRowOfSquare(you);
+        this.firstCol = Math.max(0, Math.min(centerCol - this.shownCols / 2, board.getNumberOfCol() - this.shownCols));
+        this.firstRow = Math.max(0, Math.min(centerRow - this.shownRows / 2, board.getNumberOfRow() - this.shownRows));
+    }
+
+    /**
+     * @param length length available, in pixels
+     * @return the number of squares of MIN_SQUARE_SIZE pixels, with their grid lines, fitting in that length, at least 1
+     */
+    private static int maxSquares(float length){
+        return Math.max(1, (int) ((length - GRID_SIZE) / (GRID_SIZE + MIN_SQUARE_SIZE)));
+    }
+
+    /**
+     * @param col column coordinate of a square of the board, shown in the viewport
+     * @return the x coordinate of the drawing of the square
+     */
+    private int squareX(int col){
+        return (int) (this.topLeftX + this.widthPaddingSize + (((this.displayedCols - this.shownCols) * this.squareWidth) / 2) + (col - this.firstCol) * (GRID_SIZE + this.squareWidth) + GRID_SIZE);
+    }
+
+    /**
+     * @param row row coordinate of a square of the board, shown in the viewport
+     * @return the y coordinate of the drawing of the square
+     */
+    private int squareY(int row){
+        return (int) (this.topLeftY + this.heightPaddingSize + (((this.displayedRows - this.shownRows) * this.squareHeight) / 2) + (row - this.firstRow) * (GRID_SIZE + this.squareHeight) + GRID_SIZE);
     }
 
     /**
      * Draws the grid background
-     * @param board board from which the background will be set
      * @param graphics graphics in which the background will be drawn
      */
-    private void drawGridBackground(Board board, Graphics2D graphics){
-        int x = (int) (this.topLeftX + this.widthPaddingSize + (((Board.MAX_NUMBER_OF_COLS - board.getNumberOfCol()) * this.squareWidth) / 2) + GRID_SIZE);
-        int y = (int) (this.topLeftY + this.heightPaddingSize + (((Board.MAX_NUMBER_OF_ROWS - board.getNumberOfRow()) * this.squareHeight) / 2) + GRID_SIZE);
+    private void drawGridBackground(Graphics2D graphics){
         graphics.setColor(boardBackgroundColor);
         graphics.fill(new Rectangle2D.Float(
-                x,
-                y,
-                board.getNumberOfCol() * (GRID_SIZE + this.squareWidth),
-                board.getNumberOfRow() * (GRID_SIZE + this.squareHeight)
+                squareX(this.firstCol),
+                squareY(this.firstRow),
+                this.shownCols * (GRID_SIZE + this.squareWidth),
+                this.shownRows * (GRID_SIZE + this.squareHeight)
         ));
     }
 
     /**
-     * Draws all the objects present on the board, including the background objects.
+     * Draws all the objects present on the shown squares of the board, including the background objects.
      * @param board board on which the objects are
      * @param graphics graphics in which the board will be drawn
      */
     private void drawObjectsOnBoard(Board board, Graphics2D graphics){
-        for(int i = 0; i != board.getNumberOfCol(); i++){
-            for(int j = 0; j != board.getNumberOfRow(); j++){
-                if(board.getBackgroundObjectOnGrid(i, j) != null) // background objects{
-                    board.getBackgroundObjectOnGrid(i, j).draw(graphics,
-                            (int) (this.topLeftX + this.widthPaddingSize + (((Board.MAX_NUMBER_OF_COLS - board.getNumberOfCol()) * this.squareWidth) / 2) + i * (GRID_SIZE + this.squareWidth) + GRID_SIZE),
-                            (int) (this.topLeftY + this.heightPaddingSize + (((Board.MAX_NUMBER_OF_ROWS - board.getNumberOfRow()) * this.squareHeight) / 2) + j * (GRID_SIZE + this.squareHeight) + GRID_SIZE),
-                            this.squareHeight,
-                            this.squareWidth
-                    );
-                for(var object : board.getSquareOnGrid(i, j)){
-                    object.draw(graphics,
-                            (int) (this.topLeftX + this.widthPaddingSize + (((Board.MAX_NUMBER_OF_COLS - board.getNumberOfCol()) * this.squareWidth) / 2) + i * (GRID_SIZE + this.squareWidth) + GRID_SIZE),
-                            (int) (this.topLeftY + this.heightPaddingSize + (((Board.MAX_NUMBER_OF_ROWS - board.getNumberOfRow()) * this.squareHeight) / 2) + j * (GRID_SIZE + this.squareHeight) + GRID_SIZE),
-                            this.squareHeight,
-                            this.squareWidth
-                    );
+        for(int i = this.firstCol; i != this.firstCol + this.shownCols; i++){
+            int columnStart = i * board.getNumberOfRow();
+            int end = columnStart + this.firstRow + this.shownRows;
+            for(int square = board.nextUsedSquare(columnStart + this.firstRow); square != -1 && square < end; square = board.nextUsedSquare(square + 1)){
+                int j = board.getRowOfSquare(square);
+                if(board.getBackgroundObjectOnGrid(i, j) != null) // background objects
+                    board.getBackgroundObjectOnGrid(i, j).draw(graphics, squareX(i), squareY(j), this.squareHeight, this.squareWidth);
+                for(int k = 0; k != board.getSquareSize(i, j); k++){
+                    board.getObjectOnSquare(i, j, k).draw(graphics, squareX(i), squareY(j), this.squareHeight, this.squareWidth);
                 }
             }
         }
@@ -84,7 +119,8 @@ class BoardDisplayer {
 
     /**
      * Draws the board to fit the rectangle located at
-     * (topLeftX, topLeftY), with the specified dimensions.
+     * (topLeftX, topLeftY), with the specified dimensions,
+     * or the part of the board around its first YOU object if it doesn't fit.
      * @param board board to be drawn
      * @param graphics graphics in which the board will be drawn
      * @param topLeftX top left x coordinate of the drawing
@@ -93,9 +129,9 @@ class BoardDisplayer {
      * @param widthSize width of the drawing
      */
     void drawBoard(Board board, Graphics2D graphics, int topLeftX, int topLeftY, int heightSize, int widthSize){
-        this.updateDisplayAttributes(topLeftX, topLeftY, heightSize, widthSize);
+        this.updateDisplayAttributes(board, topLeftX, topLeftY, heightSize, widthSize);
         this.clearScreen(graphics);
-        this.drawGridBackground(board, graphics);
+        this.drawGridBackground(graphics);
         this.drawObjectsOnBoard(board, graphics);
     }
 }
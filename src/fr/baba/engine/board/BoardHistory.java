@@ -0,0 +1,290 @@
+package fr.baba.engine.board;
+
+import fr.baba.engine.boardElement.TileObject;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Undo/redo history of a board.
+ * Every insertion or removal of an object (and thus every move, conversion
+ * or destruction) is recorded as a delta of the current turn, so that a turn
+ * can be rewound or replayed in a time proportional to its number of changes.
+ * Only the last depth turns are kept as deltas. Older history is compacted into
+ * full snapshots of the board taken every checkpointInterval turns, a bounded
+ * number of them being kept, so that memory stays bounded on long sessions.
+ * Rules are not recorded: they only depend on the position of the text
+ * objects and are collected again from the rewound board.
+ */
+public final class BoardHistory {
+    public static final int DEFAULT_DEPTH = 1000;
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 100;
+    public static final int DEFAULT_MAX_CHECKPOINTS = 50;
+
+    private final Board board;
+    private final int depth;
+    private final int checkpointInterval;
+    private final int maxCheckpoints;
+    private final ArrayDeque<Turn> undoStack = new ArrayDeque<>();
+    private final ArrayDeque<Turn> redoStack = new ArrayDeque<>();
+    private final ArrayDeque<Checkpoint> checkpoints = new ArrayDeque<>();
+    private final Checkpoint initialCheckpoint;
+    private Turn currentTurn = new Turn();
+    private int turnNumber;
+    private boolean replaying;
+
+    /**
+     * Starts recording the history of board with the default depth and checkpoints.
+     * @param board board whose mutations will be recorded
+     */
+    public BoardHistory(Board board){
+        this(board, DEFAULT_DEPTH, DEFAULT_CHECKPOINT_INTERVAL, DEFAULT_MAX_CHECKPOINTS);
+    }
+
+    /**
+     * Starts recording the history of board.
+     * @param board board whose mutations will be recorded
+     * @param depth maximum number of turns kept as deltas
+     * @param checkpointInterval number of turns between two snapshots of the board
+     * @param maxCheckpoints maximum number of snapshots kept, besides the initial board
+     */
+    public BoardHistory(Board board, int depth, int checkpointInterval, int maxCheckpoints){
+        Objects.requireNonNull(board);
+        if(depth < 0 || checkpointInterval <= 0 || maxCheckpoints < 0)
+            throw new IllegalArgumentException("depth and number of checkpoints can't be negative, checkpoint interval has to be positive");
+        this.board = board;
+        this.depth = depth;
+        this.checkpointInterval = checkpointInterval;
+        this.maxCheckpoints = maxCheckpoints;
+        this.initialCheckpoint = new Checkpoint(0, board);
+        board.setHistory(this);
+    }
+
+    /**
+     * Records the insertion of obj at the specified position of the square.
+     * @param square index of the square
+     * @param position position of the object in the square's stack
+     * @param obj inserted object
+     */
+    void recordInsertion(int square, int position, TileObject obj){
+        if(!replaying)
+            currentTurn.add(square, position, obj);
+    }
+
+    /**
+     * Records the removal of obj from the specified position of the square.
+     * @param square index of the square
+     * @param position position the object had in the square's stack
+     * @param obj removed object
+     */
+    void recordRemoval(int square, int position, TileObject obj){
+        if(!replaying)
+            currentTurn.add(square, -position - 1, obj);
+    }
+
+    /**
+     * Closes the current turn: the changes recorded since the last call
+     * can now be undone at once. Turns without any change are not kept.
+     */
+    public void endTurn(){
+        if(currentTurn.isEmpty())
+            return;
+        undoStack.addLast(currentTurn);
+        currentTurn = new Turn();
+        redoStack.clear();
+        turnNumber++;
+        while(!checkpoints.isEmpty() && checkpoints.peekLast().turnNumber >= turnNumber)
+            checkpoints.pollLast(); // snapshots of an abandoned (undone) branch
+        if(turnNumber % checkpointInterval == 0 && maxCheckpoints != 0){
+            checkpoints.addLast(new Checkpoint(turnNumber, board));
+            if(checkpoints.size() > maxCheckpoints)
+                checkpoints.pollFirst();
+        }
+        while(undoStack.size() > depth)
+            undoStack.pollFirst();
+    }
+
+    /**
+     * Rewinds the board by one turn. Once the turns kept as deltas are exhausted,
+     * the board is rewound to the latest older snapshot instead.
+     * @return false if there is nothing left to undo
+     */
+    public boolean undo(){
+        endTurn();
+        if(undoStack.isEmpty())
+            return restoreCheckpoint();
+        var turn = undoStack.pollLast();
+        replaying = true;
+        turn.revert(board);
+        replaying = false;
+        redoStack.addLast(turn);
+        turnNumber--;
+        return true;
+    }
+
+    /**
+     * Replays the last undone turn.
+     * @return false if there is nothing to redo
+     */
+    public boolean redo(){
+        if(!currentTurn.isEmpty() || redoStack.isEmpty())
+            return false;
+        var turn = redoStack.pollLast();
+        replaying = true;
+        turn.replay(board);
+        replaying = false;
+        undoStack.addLast(turn);
+        turnNumber++;
+        return true;
+    }
+
+    /**
+     * Restores the latest snapshot older than the current turn.
+     * @return false if there is none
+     */
+    private boolean restoreCheckpoint(){
+        if(turnNumber == 0)
+            return false;
+        while(!checkpoints.isEmpty() && checkpoints.peekLast().turnNumber >= turnNumber)
+            checkpoints.pollLast();
+        var checkpoint = checkpoints.isEmpty() ? initialCheckpoint : checkpoints.peekLast();
+        replaying = true;
+        checkpoint.restore(board);
+        replaying = false;
+        redoStack.clear();
+        turnNumber = checkpoint.turnNumber;
+        return true;
+    }
+
+    /**
+     * @return an estimate of the memory taken by the recorded turns and snapshots, in bytes
+     */
+    public long getMemoryFootprint(){
+        long bytes = currentTurn.bytes() + initialCheckpoint.bytes();
+        for(var turn : undoStack){
+            bytes += turn.bytes();
+        }
+        for(var turn : redoStack){
+            bytes += turn.bytes();
+        }
+        for(var checkpoint : checkpoints){
+            bytes += checkpoint.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the number of turns played since the beginning, minus the undone ones
+     */
+    public int getTurnNumber(){
+        return turnNumber;
+    }
+
+    /**
+     * Changes made to a board during one turn, in the order they were made.
+     * The position of each change is stored as is for an insertion,
+     * and as -position - 1 for a removal.
+     */
+    private static final class Turn {
+        private int[] squares = new int[8];
+        private int[] positions = new int[8];
+        private TileObject[] objects = new TileObject[8];
+        private int size;
+
+        private void add(int square, int position, TileObject obj){
+            if(size == squares.length){
+                squares = Arrays.copyOf(squares, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+                objects = Arrays.copyOf(objects, size * 2);
+            }
+            squares[size] = square;
+            positions[size] = position;
+            objects[size] = obj;
+            size++;
+        }
+
+        private boolean isEmpty(){
+            return size == 0;
+        }
+
+        private long bytes(){
+            return MemoryFootprint.ofObject(3 * MemoryFootprint.REFERENCE_BYTES + 4)
+                    + 2 * MemoryFootprint.ofArray(squares.length, 4)
+                    + MemoryFootprint.ofArray(objects.length, MemoryFootprint.REFERENCE_BYTES);
+        }
+
+        private void revert(Board board){
+            for(int i = size - 1; i >= 0; i--){
+                if(positions[i] >= 0)
+                    board.removeObjectAt(squares[i], positions[i]);
+                else
+                    board.insertObject(squares[i], -positions[i] - 1, objects[i]);
+            }
+        }
+
+        private void replay(Board board){
+            for(int i = 0; i != size; i++){
+                if(positions[i] >= 0)
+                    board.insertObject(squares[i], positions[i], objects[i]);
+                else
+                    board.removeObjectAt(squares[i], -positions[i] - 1);
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the objects of a board (background excluded) at a given turn.
+     */
+    private static final class Checkpoint {
+        private final int turnNumber;
+        private final int[] squares;
+        private final TileObject[][] stacks;
+
+        private Checkpoint(int turnNumber, Board board){
+            this.turnNumber = turnNumber;
+            int count = 0;
+            var squares = new int[16];
+            var stacks = new TileObject[16][];
+            for(int square = board.nextUsedSquare(0); square != -1; square = board.nextUsedSquare(square + 1)){
+                int size = board.sizeOfSquare(square);
+                if(size == 0)
+                    continue;
+                if(count == squares.length){
+                    squares = Arrays.copyOf(squares, count * 2);
+                    stacks = Arrays.copyOf(stacks, count * 2);
+                }
+                var stack = new TileObject[size];
+                for(int i = 0; i != size; i++){
+                    stack[i] = board.objectOnSquare(square, i);
+                }
+                squares[count] = square;
+                stacks[count] = stack;
+                count++;
+            }
+            this.squares = Arrays.copyOf(squares, count);
+            this.stacks = Arrays.copyOf(stacks, count);
+        }
+
+        private long bytes(){
+            long bytes = MemoryFootprint.ofObject(4 + 2 * MemoryFootprint.REFERENCE_BYTES)
+                    + MemoryFootprint.ofArray(squares.length, 4)
+                    + MemoryFootprint.ofArray(stacks.length, MemoryFootprint.REFERENCE_BYTES);
+            for(var stack : stacks){
+                bytes += MemoryFootprint.ofArray(stack.length, MemoryFootprint.REFERENCE_BYTES);
+            }
+            return bytes;
+        }
+
+        private void restore(Board board){
+            for(int square = board.nextUsedSquare(0); square != -1; square = board.nextUsedSquare(square + 1)){
+                board.clearSquareAt(square);
+            }
+            for(int i = 0; i != squares.length; i++){
+                for(int j = 0; j != stacks[i].length; j++){
+                    board.insertObject(squares[i], j, stacks[i][j]);
+                }
+            }
+        }
+    }
+}
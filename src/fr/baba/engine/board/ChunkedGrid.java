@@ -0,0 +1,282 @@
+package fr.baba.engine.board;
+
+import fr.baba.engine.boardElement.TileObject;
+
+import java.util.Arrays;
+
+/**
+ * Sparse storage of the squares of a board, meant for very large and
+ * mostly empty levels.
+ * The board is split into chunks of CHUNK_SIDE x CHUNK_SIDE squares,
+ * each chunk being a small FlatGrid allocated the first time
+ * something is put on one of its squares.
+ * The table of the chunks is itself split into pages allocated on demand,
+ * as a SquareSet is, so an empty board takes no memory whatever its size.
+ */
+final class ChunkedGrid implements Grid {
+    private static final int CHUNK_SHIFT = 3;
+    private static final int CHUNK_SIDE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIDE - 1;
+    private static final int PAGE_SHIFT = 10; // 1024 chunks per page
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+    private static final FlatGrid[][] NO_PAGES = new FlatGrid[0][];
+
+    private final int numberOfCol;
+    private final int numberOfRow;
+    private final int chunksPerCol; // number of chunks in a column of chunks
+    private final int numberOfChunks;
+    private FlatGrid[][] pages = NO_PAGES; // chunks by index, see chunkIndex
+
+    /**
+     * Initializes an empty grid of numberOfCol x numberOfRow squares.
+     * @param numberOfCol number of columns of the grid
+     * @param numberOfRow number of rows of the grid
+     */
+    ChunkedGrid(int numberOfCol, int numberOfRow){
+        if(numberOfCol < 0 || numberOfRow < 0)
+            throw new IllegalArgumentException("there has to be at least one row and/or one column");
+        long chunkCols = ((long) numberOfCol + CHUNK_MASK) >> CHUNK_SHIFT;
+        long chunksPerCol = ((long) numberOfRow + CHUNK_MASK) >> CHUNK_SHIFT;
+        if(chunkCols * chunksPerCol > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("board too large to be split into chunks");
+        this.numberOfCol = numberOfCol;
+        this.numberOfRow = numberOfRow;
+        this.chunksPerCol = (int) chunksPerCol;
+        this.numberOfChunks = (int) (chunkCols * chunksPerCol);
+    }
+
+    /**
+     * Initializes a copy of grid.
+     * @param grid grid to be copied
+     */
+    private ChunkedGrid(ChunkedGrid grid){
+        this.numberOfCol = grid.numberOfCol;
+        this.numberOfRow = grid.numberOfRow;
+        this.chunksPerCol = grid.chunksPerCol;
+        this.numberOfChunks = grid.numberOfChunks;
+        this.pages = new FlatGrid[grid.pages.length][];
+        for(int page = 0; page != pages.length; page++){
+            var chunks = grid.pages[page];
+            if(chunks == null)
+                continue;
+            pages[page] = new FlatGrid[chunks.length];
+            for(int i = 0; i != chunks.length; i++){
+                if(chunks[i] != null)
+                    pages[page][i] = chunks[i].copy();
+            }
+        }
+    }
+
+    @Override
+    public ChunkedGrid copy(){
+        return new ChunkedGrid(this);
+    }
+
+    /**
+     * @param col column coordinate of a square
+     * @param row row coordinate of a square
+     * @return the index of the chunk holding that square
+     */
+    private int chunkIndex(int col, int row){
+        return (col >> CHUNK_SHIFT) * chunksPerCol + (row >> CHUNK_SHIFT);
+    }
+
+    /**
+     * @param col column coordinate of a square
+     * @param row row coordinate of a square
+     * @return the index of that square inside its chunk
+     */
+    private static int localIndex(int col, int row){
+        return ((col & CHUNK_MASK) << CHUNK_SHIFT) | (row & CHUNK_MASK);
+    }
+
+    /**
+     * @param chunk index of a chunk
+     * @return the chunk, null if it has never been used
+     */
+    private FlatGrid chunk(int chunk){
+        int page = chunk >>> PAGE_SHIFT;
+        if(page >= pages.length || pages[page] == null)
+            return null;
+        return pages[page][chunk & PAGE_MASK];
+    }
+
+    /**
+     * @param square index of the square
+     * @return the chunk holding the square, null if it has never been used
+     */
+    private FlatGrid chunkOf(int square){
+        return chunk(chunkIndex(square / numberOfRow, square % numberOfRow));
+    }
+
+    /**
+     * @param square index of the square
+     * @return the index of the square inside its chunk
+     */
+    private int localIndex(int square){
+        return localIndex(square / numberOfRow, square % numberOfRow);
+    }
+
+    /**
+     * Returns the chunk holding the square, allocating it (and its page) if needed.
+     * @param square index of the square
+     * @return the chunk holding the square
+     */
+    private FlatGrid allocatedChunkOf(int square){
+        int chunk = chunkIndex(square / numberOfRow, square % numberOfRow);
+        int page = chunk >>> PAGE_SHIFT;
+        if(page >= pages.length){
+            int numberOfPages = (int) (((long) numberOfChunks + PAGE_MASK) >> PAGE_SHIFT);
+            pages = Arrays.copyOf(pages, (int) Math.min(Math.max(page + 1, 2L * pages.length), numberOfPages));
+        }
+        if(pages[page] == null)
+            pages[page] = new FlatGrid[1 << PAGE_SHIFT];
+        var chunks = pages[page];
+        if(chunks[chunk & PAGE_MASK] == null)
+            chunks[chunk & PAGE_MASK] = new FlatGrid(CHUNK_SIDE * CHUNK_SIDE);
+        return chunks[chunk & PAGE_MASK];
+    }
+
+    /**
+     * @param fromChunk index of the first chunk to be checked
+     * @return the index of the first chunk allocated from fromChunk, -1 if there is none
+     */
+    private int nextAllocatedChunk(int fromChunk){
+        for(int page = fromChunk >>> PAGE_SHIFT; page < pages.length; page++){
+            var chunks = pages[page];
+            if(chunks == null)
+                continue;
+            for(int i = page == fromChunk >>> PAGE_SHIFT ? fromChunk & PAGE_MASK : 0; i != chunks.length; i++){
+                if(chunks[i] != null)
+                    return page << PAGE_SHIFT | i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size(int square){
+        var chunk = chunkOf(square);
+        return chunk == null ? 0 : chunk.size(localIndex(square));
+    }
+
+    @Override
+    public TileObject get(int square, int position){
+        var chunk = chunkOf(square);
+        if(chunk == null)
+            throw new IndexOutOfBoundsException("position " + position + " out of the square's stack");
+        return chunk.get(localIndex(square), position);
+    }
+
+    @Override
+    public int tokenId(int square, int position){
+        var chunk = chunkOf(square);
+        if(chunk == null)
+            throw new IndexOutOfBoundsException("position " + position + " out of the square's stack");
+        return chunk.tokenId(localIndex(square), position);
+    }
+
+    @Override
+    public int indexOf(int square, TileObject obj){
+        var chunk = chunkOf(square);
+        return chunk == null ? -1 : chunk.indexOf(localIndex(square), obj);
+    }
+
+    @Override
+    public int indexOfToken(int square, int tokenId){
+        var chunk = chunkOf(square);
+        return chunk == null ? -1 : chunk.indexOfToken(localIndex(square), tokenId);
+    }
+
+    @Override
+    public void insert(int square, int position, TileObject obj){
+        allocatedChunkOf(square).insert(localIndex(square), position, obj);
+    }
+
+    @Override
+    public TileObject removeAt(int square, int position){
+        var chunk = chunkOf(square);
+        if(chunk == null)
+            throw new IndexOutOfBoundsException("position " + position + " out of the square's stack");
+        return chunk.removeAt(localIndex(square), position);
+    }
+
+    @Override
+    public void clear(int square){
+        var chunk = chunkOf(square);
+        if(chunk != null)
+            chunk.clear(localIndex(square));
+    }
+
+    @Override
+    public TileObject getBackground(int square){
+        var chunk = chunkOf(square);
+        return chunk == null ? null : chunk.getBackground(localIndex(square));
+    }
+
+    @Override
+    public void setBackground(int square, TileObject obj){
+        allocatedChunkOf(square).setBackground(localIndex(square), obj);
+    }
+
+    @Override
+    public long bytes(){
+        long bytes = MemoryFootprint.ofObject(4 * 4 + MemoryFootprint.REFERENCE_BYTES)
+                + MemoryFootprint.ofArray(pages.length, MemoryFootprint.REFERENCE_BYTES);
+        for(var chunks : pages){
+            if(chunks == null)
+                continue;
+            bytes += MemoryFootprint.ofArray(chunks.length, MemoryFootprint.REFERENCE_BYTES);
+            for(var chunk : chunks){
+                if(chunk != null)
+                    bytes += chunk.bytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Chunks, and whole columns of chunks, that have never been used are skipped at once.
+     */
+    @Override
+    public int nextUsedSquare(int fromSquare){
+        if(fromSquare < 0)
+            fromSquare = 0;
+        if(numberOfRow == 0 || fromSquare >= (long) numberOfCol * numberOfRow)
+            return -1;
+        int col = fromSquare / numberOfRow;
+        int row = fromSquare % numberOfRow;
+        while(col < numberOfCol){
+            int chunkIndex = chunkIndex(col, row);
+            var chunk = chunk(chunkIndex);
+            if(chunk == null){
+                int next = nextAllocatedChunk(chunkIndex);
+                int chunkCol = col >> CHUNK_SHIFT;
+                int first = nextAllocatedChunk(chunkCol * chunksPerCol);
+                if(next != -1 && next / chunksPerCol == chunkCol){ // further down the same column of chunks
+                    row = (next % chunksPerCol) << CHUNK_SHIFT;
+                }else if(first != -1 && first < chunkIndex){ // the next column of squares may use the chunks above
+                    col++;
+                    row = 0;
+                }else if(next == -1){
+                    return -1;
+                }else{
+                    col = (next / chunksPerCol) << CHUNK_SHIFT;
+                    row = (next % chunksPerCol) << CHUNK_SHIFT;
+                }
+                continue;
+            }
+            int chunkEnd = (int) Math.min(((long) (row >> CHUNK_SHIFT) + 1) << CHUNK_SHIFT, numberOfRow);
+            for(; row != chunkEnd; row++){
+                int local = localIndex(col, row);
+                if(chunk.size(local) != 0 || chunk.getBackground(local) != null)
+                    return col * numberOfRow + row;
+            }
+            if(row == numberOfRow){
+                col++;
+                row = 0;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,167 @@
+package fr.baba.engine.board;
+
+import fr.baba.engine.boardElement.TileObject;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Storage of the squares of a board in flat arrays,
+ * one entry per square.
+ * Each square holds a compact stack of objects, allocated on first use,
+ * along with the primitive id (ordinal) of each object's token.
+ */
+final class FlatGrid implements Grid {
+    private static final int INITIAL_STACK_CAPACITY = 2;
+    private static final TileObject[] EMPTY_STACK = new TileObject[0];
+    private static final byte[] EMPTY_TOKENS = new byte[0];
+
+    private final TileObject[][] objects;
+    private final byte[][] tokens;
+    private final int[] sizes;
+    private final TileObject[] background;
+
+    /**
+     * Initializes a grid of numberOfSquares empty squares.
+     * @param numberOfSquares number of squares of the grid
+     */
+    FlatGrid(int numberOfSquares){
+        if(numberOfSquares < 0)
+            throw new IllegalArgumentException("number of squares can't be negative");
+        this.objects = new TileObject[numberOfSquares][];
+        this.tokens = new byte[numberOfSquares][];
+        this.sizes = new int[numberOfSquares];
+        this.background = new TileObject[numberOfSquares];
+        Arrays.fill(this.objects, EMPTY_STACK);
+        Arrays.fill(this.tokens, EMPTY_TOKENS);
+    }
+
+    /**
+     * Initializes a copy of grid.
+     * @param grid grid to be copied
+     */
+    private FlatGrid(FlatGrid grid){
+        int numberOfSquares = grid.sizes.length;
+        this.objects = new TileObject[numberOfSquares][];
+        this.tokens = new byte[numberOfSquares][];
+        this.sizes = grid.sizes.clone();
+        this.background = grid.background.clone();
+        for(int square = 0; square != numberOfSquares; square++){
+            this.objects[square] = sizes[square] == 0 ? EMPTY_STACK : Arrays.copyOf(grid.objects[square], sizes[square]);
+            this.tokens[square] = sizes[square] == 0 ? EMPTY_TOKENS : Arrays.copyOf(grid.tokens[square], sizes[square]);
+        }
+    }
+
+    @Override
+    public FlatGrid copy(){
+        return new FlatGrid(this);
+    }
+
+    @Override
+    public int size(int square){
+        return sizes[square];
+    }
+
+    @Override
+    public TileObject get(int square, int position){
+        return objects[square][position];
+    }
+
+    @Override
+    public int tokenId(int square, int position){
+        return tokens[square][position];
+    }
+
+    @Override
+    public int indexOf(int square, TileObject obj){
+        var stack = objects[square];
+        for(int i = 0; i != sizes[square]; i++){
+            if(stack[i] == obj)
+                return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public int indexOfToken(int square, int tokenId){
+        var ids = tokens[square];
+        for(int i = 0; i != sizes[square]; i++){
+            if(ids[i] == tokenId)
+                return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public void insert(int square, int position, TileObject obj){
+        Objects.requireNonNull(obj);
+        int size = sizes[square];
+        if(position < 0 || position > size)
+            throw new IndexOutOfBoundsException("position " + position + " out of the square's stack");
+        if(size == objects[square].length){
+            int capacity = Math.max(INITIAL_STACK_CAPACITY, size * 2);
+            objects[square] = Arrays.copyOf(objects[square], capacity);
+            tokens[square] = Arrays.copyOf(tokens[square], capacity);
+        }
+        var stack = objects[square];
+        var ids = tokens[square];
+        System.arraycopy(stack, position, stack, position + 1, size - position);
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        stack[position] = obj;
+        ids[position] = (byte) obj.getToken().ordinal();
+        sizes[square] = size + 1;
+    }
+
+    @Override
+    public TileObject removeAt(int square, int position){
+        int size = sizes[square];
+        if(position < 0 || position >= size)
+            throw new IndexOutOfBoundsException("position " + position + " out of the square's stack");
+        var stack = objects[square];
+        var ids = tokens[square];
+        var removed = stack[position];
+        System.arraycopy(stack, position + 1, stack, position, size - position - 1);
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        stack[size - 1] = null;
+        sizes[square] = size - 1;
+        return removed;
+    }
+
+    @Override
+    public void clear(int square){
+        Arrays.fill(objects[square], 0, sizes[square], null);
+        sizes[square] = 0;
+    }
+
+    @Override
+    public TileObject getBackground(int square){
+        return background[square];
+    }
+
+    @Override
+    public void setBackground(int square, TileObject obj){
+        background[square] = obj;
+    }
+
+    @Override
+    public long bytes(){
+        int numberOfSquares = sizes.length;
+        long bytes = MemoryFootprint.ofObject(4 * MemoryFootprint.REFERENCE_BYTES)
+                + 3 * MemoryFootprint.ofArray(numberOfSquares, MemoryFootprint.REFERENCE_BYTES)
+                + MemoryFootprint.ofArray(numberOfSquares, 4);
+        for(int square = 0; square != numberOfSquares; square++){
+            if(objects[square] != EMPTY_STACK)
+                bytes += MemoryFootprint.ofArray(objects[square].length, MemoryFootprint.REFERENCE_BYTES) + MemoryFootprint.ofArray(tokens[square].length, 1);
+        }
+        return bytes;
+    }
+
+    @Override
+    public int nextUsedSquare(int fromSquare){
+        for(int square = Math.max(fromSquare, 0); square < sizes.length; square++){
+            if(sizes[square] != 0 || background[square] != null)
+                return square;
+        }
+        return -1;
+    }
+}
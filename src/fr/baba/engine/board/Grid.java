@@ -0,0 +1,102 @@
+package fr.baba.engine.board;
+
+import fr.baba.engine.boardElement.TileObject;
+
+/**
+ * Storage of the squares of a board.
+ * Every square is designated by a single index (col * numberOfRow + row),
+ * which is also the order in which the board is scanned (column by column).
+ * Each square holds a stack of objects, along with the primitive
+ * id (ordinal) of each object's token, and an optional background object.
+ */
+interface Grid {
+    /**
+     * @param square index of the square
+     * @return the number of objects on the square
+     */
+    int size(int square);
+
+    /**
+     * @param square index of the square
+     * @param position position of the object in the square's stack
+     * @return the object at that position
+     */
+    TileObject get(int square, int position);
+
+    /**
+     * @param square index of the square
+     * @param position position of the object in the square's stack
+     * @return the token id (ordinal) of the object at that position
+     */
+    int tokenId(int square, int position);
+
+    /**
+     * Looks for the position of obj in the square's stack.
+     * @param square index of the square
+     * @param obj object to be found
+     * @return the position of obj, or -1 if it is not on the square
+     */
+    int indexOf(int square, TileObject obj);
+
+    /**
+     * Looks for the first object of the square with the specified token id.
+     * @param square index of the square
+     * @param tokenId token id to be found
+     * @return the position of that object, or -1 if there is none
+     */
+    int indexOfToken(int square, int tokenId);
+
+    /**
+     * Puts obj at the specified position of the square's stack,
+     * shifting the objects above it.
+     * @param square index of the square
+     * @param position position of the object once inserted
+     * @param obj object to be inserted
+     */
+    void insert(int square, int position, TileObject obj);
+
+    /**
+     * Removes the object at the specified position of the square's stack,
+     * keeping the order of the remaining objects.
+     * @param square index of the square
+     * @param position position of the object to be removed
+     * @return the removed object
+     */
+    TileObject removeAt(int square, int position);
+
+    /**
+     * Empties the square.
+     * @param square index of the square
+     */
+    void clear(int square);
+
+    /**
+     * @param square index of the square
+     * @return the background object of the square, null if there is none
+     */
+    TileObject getBackground(int square);
+
+    /**
+     * @param square index of the square
+     * @param obj background object of the square
+     */
+    void setBackground(int square, TileObject obj);
+
+    /**
+     * Looks for the next square holding objects or a background object.
+     * @param fromSquare index of the first square to be checked
+     * @return the index of that square, or -1 if there is none
+     */
+    int nextUsedSquare(int fromSquare);
+
+    /**
+     * Copies the grid. Objects are immutable, so they are shared by both grids.
+     * @return a grid holding the same objects on the same squares
+     */
+    Grid copy();
+
+    /**
+     * @return an estimate of the memory taken by the grid, in bytes (objects excluded, as they are shared)
+     */
+    long bytes();
+}
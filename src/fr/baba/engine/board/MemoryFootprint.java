@@ -0,0 +1,39 @@
+package fr.baba.engine.board;
+
+/**
+ * Estimates of the memory taken by the storage of boards, on a 64 bits JVM
+ * with compressed references: objects have a 12 bytes header (16 for arrays)
+ * and take a multiple of 8 bytes.
+ */
+final class MemoryFootprint {
+    static final int REFERENCE_BYTES = 4;
+    static final int OBJECT_HEADER_BYTES = 12;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private MemoryFootprint(){}
+
+    /**
+     * @param length number of elements of an array
+     * @param elementBytes size of an element, in bytes
+     * @return the memory taken by the array, in bytes
+     */
+    static long ofArray(long length, int elementBytes){
+        return align(ARRAY_HEADER_BYTES + length * elementBytes);
+    }
+
+    /**
+     * @param fieldBytes size of the fields of an object, in bytes
+     * @return the memory taken by the object, in bytes
+     */
+    static long ofObject(int fieldBytes){
+        return align(OBJECT_HEADER_BYTES + fieldBytes);
+    }
+
+    /**
+     * @param bytes a size
+     * @return the size rounded up to a multiple of 8
+     */
+    private static long align(long bytes){
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,232 @@
+package fr.baba.engine.board;
+
+import java.util.Arrays;
+
+/**
+ * Set of square indices, stored as a bitset split into pages
+ * allocated the first time one of their squares is added.
+ * It behaves like a java.util.BitSet, but only costs memory
+ * for the regions of the board that are actually used,
+ * which matters on very large and mostly empty boards.
+ */
+public final class SquareSet {
+    private static final int PAGE_SHIFT = 12; // 4096 squares per page
+    private static final int WORDS_PER_PAGE = 1 << (PAGE_SHIFT - 6);
+    private static final long[][] NO_PAGES = new long[0][];
+
+    private long[][] pages = NO_PAGES;
+    private int size;
+
+    /**
+     * @param square index of a square
+     * @return the page holding the square, allocated if needed
+     */
+    private long[] allocatedPage(int square){
+        int page = square >>> PAGE_SHIFT;
+        if(page >= pages.length)
+            pages = Arrays.copyOf(pages, Math.max(page + 1, pages.length * 2));
+        if(pages[page] == null)
+            pages[page] = new long[WORDS_PER_PAGE];
+        return pages[page];
+    }
+
+    /**
+     * Adds the square to the set.
+     * @param square index of the square
+     */
+    public void set(int square){
+        if(square < 0)
+            throw new IndexOutOfBoundsException("square index can't be negative");
+        var page = allocatedPage(square);
+        int word = (square >> 6) & (WORDS_PER_PAGE - 1);
+        long bit = 1L << square;
+        if((page[word] & bit) == 0){
+            page[word] |= bit;
+            size++;
+        }
+    }
+
+    /**
+     * Removes the square from the set.
+     * @param square index of the square
+     */
+    public void clear(int square){
+        int pageIndex = square >>> PAGE_SHIFT;
+        if(square < 0 || pageIndex >= pages.length || pages[pageIndex] == null)
+            return;
+        var page = pages[pageIndex];
+        int word = (square >> 6) & (WORDS_PER_PAGE - 1);
+        long bit = 1L << square;
+        if((page[word] & bit) != 0){
+            page[word] &= ~bit;
+            size--;
+        }
+    }
+
+    /**
+     * Adds or removes the square from the set.
+     * @param square index of the square
+     * @param value whether the square is added or removed
+     */
+    public void set(int square, boolean value){
+        if(value)
+            set(square);
+        else
+            clear(square);
+    }
+
+    /**
+     * Removes every square from the set, keeping its pages for later use.
+     */
+    public void clear(){
+        for(var page : pages){
+            if(page != null)
+                Arrays.fill(page, 0);
+        }
+        size = 0;
+    }
+
+    /**
+     * @param square index of the square
+     * @return whether the square is in the set
+     */
+    public boolean get(int square){
+        int pageIndex = square >>> PAGE_SHIFT;
+        if(square < 0 || pageIndex >= pages.length || pages[pageIndex] == null)
+            return false;
+        return (pages[pageIndex][(square >> 6) & (WORDS_PER_PAGE - 1)] & (1L << square)) != 0;
+    }
+
+    /**
+     * @return the number of squares in the set
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * @return whether the set is empty
+     */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Looks for the first square of the set whose index is fromSquare or more.
+     * @param fromSquare index from which to look
+     * @return the index of that square, -1 if there is none
+     */
+    public int nextSetBit(int fromSquare){
+        if(fromSquare < 0)
+            fromSquare = 0;
+        for(int pageIndex = fromSquare >>> PAGE_SHIFT; pageIndex < pages.length; pageIndex++){
+            var page = pages[pageIndex];
+            if(page == null)
+                continue;
+            int firstSquare = pageIndex << PAGE_SHIFT;
+            int word = fromSquare > firstSquare ? (fromSquare - firstSquare) >> 6 : 0;
+            long bits = fromSquare > firstSquare ? page[word] & (-1L << fromSquare) : page[word];
+            while(true){
+                if(bits != 0)
+                    return firstSquare + (word << 6) + Long.numberOfTrailingZeros(bits);
+                if(++word == WORDS_PER_PAGE)
+                    break;
+                bits = page[word];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param other another set
+     * @return whether both sets have at least one square in common
+     */
+    public boolean intersects(SquareSet other){
+        int length = Math.min(pages.length, other.pages.length);
+        for(int pageIndex = 0; pageIndex != length; pageIndex++){
+            var page = pages[pageIndex];
+            var otherPage = other.pages[pageIndex];
+            if(page == null || otherPage == null)
+                continue;
+            for(int word = 0; word != WORDS_PER_PAGE; word++){
+                if((page[word] & otherPage[word]) != 0)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds every square of other to this set.
+     * @param other set to be added
+     */
+    public void or(SquareSet other){
+        for(int pageIndex = 0; pageIndex != other.pages.length; pageIndex++){
+            var otherPage = other.pages[pageIndex];
+            if(otherPage == null)
+                continue;
+            var page = allocatedPage(pageIndex << PAGE_SHIFT);
+            for(int word = 0; word != WORDS_PER_PAGE; word++){
+                size += Long.bitCount(otherPage[word] & ~page[word]);
+                page[word] |= otherPage[word];
+            }
+        }
+    }
+
+    /**
+     * Removes every square that is not in other from this set.
+     * @param other set to be intersected with
+     */
+    public void and(SquareSet other){
+        for(int pageIndex = 0; pageIndex != pages.length; pageIndex++){
+            var page = pages[pageIndex];
+            if(page == null)
+                continue;
+            var otherPage = pageIndex < other.pages.length ? other.pages[pageIndex] : null;
+            for(int word = 0; word != WORDS_PER_PAGE; word++){
+                long kept = otherPage == null ? 0 : page[word] & otherPage[word];
+                size -= Long.bitCount(page[word] & ~kept);
+                page[word] = kept;
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the set
+     */
+    public SquareSet copy(){
+        var copy = new SquareSet();
+        copy.pages = new long[pages.length][];
+        for(int pageIndex = 0; pageIndex != pages.length; pageIndex++){
+            if(pages[pageIndex] != null)
+                copy.pages[pageIndex] = pages[pageIndex].clone();
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * @return an estimate of the memory taken by the set, in bytes
+     */
+    public long bytes(){
+        long bytes = MemoryFootprint.ofObject(MemoryFootprint.REFERENCE_BYTES + 4)
+                + MemoryFootprint.ofArray(pages.length, MemoryFootprint.REFERENCE_BYTES);
+        for(var page : pages){
+            if(page != null)
+                bytes += MemoryFootprint.ofArray(WORDS_PER_PAGE, 8);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the squares of the set, in increasing order
+     */
+    public int[] toArray(){
+        var squares = new int[size];
+        int i = 0;
+        for(int square = nextSetBit(0); square != -1; square = nextSetBit(square + 1)){
+            squares[i++] = square;
+        }
+        return squares;
+    }
+}
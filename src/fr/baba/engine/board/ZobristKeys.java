@@ -0,0 +1,47 @@
+package fr.baba.engine.board;
+
+/**
+ * Random 64 bits keys of the Zobrist hash of a board.
+ * The hash of a board is the sum of the keys of its objects (one per object,
+ * depending on its square and its token) and of the keys of the properties
+ * of its tokens. Adding or removing an object, or changing the properties
+ * of a token, thus updates the hash in constant time.
+ * Keys are not stored in tables but derived from their inputs by a mixing
+ * function (SplitMix64), so that even huge sparse boards cost no memory.
+ * The keys are the same on every run, so hashes can be saved and compared later.
+ */
+final class ZobristKeys {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long PROPERTY_SEED = 0x5851F42D4C957F2DL;
+
+    private ZobristKeys(){}
+
+    /**
+     * @param square index of a square
+     * @param tokenId token id (ordinal) of an object
+     * @return the key of an object with that token on that square
+     */
+    static long objectKey(int square, int tokenId){
+        return mix(((long) square << 6 | tokenId) * GOLDEN_GAMMA + GOLDEN_GAMMA);
+    }
+
+    /**
+     * @param tokenId token id (ordinal)
+     * @param propertyMask mask of the properties of the token, see RuleSet.propertyBit
+     * @return the key of the token having those properties
+     */
+    static long propertyKey(int tokenId, long propertyMask){
+        return mix(mix((tokenId + 1) * PROPERTY_SEED) ^ propertyMask);
+    }
+
+    /**
+     * Spreads the bits of value (finalizer of SplitMix64).
+     * @param value a value
+     * @return the mixed value
+     */
+    private static long mix(long value){
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -1,18 +1,15 @@
 package fr.baba.engine.boardElement;
 
-import fr.baba.engine.property.PropertySet;
-
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AbstractTileObject implements TileObject {
     protected final Token token;
-    private static final HashMap<Token, Image> imageLoader = new HashMap<>();
-    protected static final HashMap<Token, PropertySet> tokenProperties = new HashMap<>();
+    private static final ConcurrentHashMap<Token, Image> imageLoader = new ConcurrentHashMap<>(); // images may be preloaded by another thread
 
     /**
      * @param token token to be assigned to the TileObject
@@ -20,7 +17,6 @@ public class AbstractTileObject implements TileObject {
     AbstractTileObject(Token token){
         Objects.requireNonNull(token);
         this.token = token;
-        this.initTokenProperties();
     }
 
     @Override
@@ -55,40 +51,24 @@ public class AbstractTileObject implements TileObject {
      * @return Image object representing the token
      */
     private Image getImage() {
-        if(!imageLoader.containsKey(this.token)){
-            try {
-                imageLoader.put(this.token, ImageIO.read(new File(this.token.getImagePath())));
-            }catch (IOException e){
-                e.printStackTrace();
-            }
-        }
-        return imageLoader.get(this.token);
+        return loadImage(this.token);
     }
 
     /**
-     * Initializes the properties of the TileObject's token if
-     * it has not been done already.
+     * Reads the image of token, unless it has already been read.
+     * Can be called from any thread, for instance to load images before they are drawn.
+     * @param token token whose image is to be loaded
+     * @return Image object representing the token, null if it couldn't be read
      */
-    private void initTokenProperties(){
-        if(!tokenProperties.containsKey(this.token)){
-            tokenProperties.put(this.token, new PropertySet());
-        }
-    }
-
-    @Override
-    public boolean hasProperty(Token property){
-        if(property.getType() != tokenType.property){
-            throw new IllegalArgumentException("Token has to be a property");
-        }
-        return tokenProperties.get(this.token).hasProperty(property);
-    }
-
-    @Override
-    public void setProperty(Boolean is, Token property){
-        Objects.requireNonNull(property);
-        if(property.getType() != tokenType.property){
-            throw new IllegalArgumentException("Token has to be a property");
-        }
-        tokenProperties.get(this.token).setProperty(is, property);
+    public static Image loadImage(Token token) {
+        Objects.requireNonNull(token);
+        return imageLoader.computeIfAbsent(token, key -> {
+            try {
+                return ImageIO.read(new File(key.getImagePath()));
+            }catch (IOException e){
+                e.printStackTrace();
+                return null;
+            }
+        });
     }
 }
@@ -12,7 +12,6 @@ public class Noun extends AbstractTileObject {
         if(token.getType() != tokenType.noun){
             throw new IllegalArgumentException("Noun object has to have a noun token");
         }
-        this.setProperty(true, Token.Push);
     }
 
     /**
@@ -21,17 +20,4 @@ public class Noun extends AbstractTileObject {
     Token getRep(){
         return this.token.getRep();
     }
-
-    /**
-     * Adds or removes a property to the sprite designated by the noun itself
-     * @param is whether the property will be added or removed
-     * @param propToAssign property to be assigned
-     */
-    public void setRepProperty(boolean is, Token propToAssign){
-        Objects.requireNonNull(propToAssign);
-        if(propToAssign.getType() != tokenType.property){
-            throw new IllegalArgumentException("Token has to be a property");
-        }
-        new Sprite(this.getRep()).setProperty(is, propToAssign);
-    }
 }
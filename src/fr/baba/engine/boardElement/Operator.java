@@ -12,6 +12,5 @@ public class Operator extends AbstractTileObject {
         if(token.getType() != tokenType.operator){
             throw new IllegalArgumentException("Operator object has to have a operator token");
         }
-        this.setProperty(true, Token.Push);
     }
 }
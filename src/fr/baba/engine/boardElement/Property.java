@@ -10,7 +10,6 @@ public class Property extends AbstractTileObject {
         if(token.getType() != tokenType.property){
             throw new IllegalArgumentException("Property object has to have a property token");
         }
-        this.setProperty(true, Token.Push);
     }
 
 
@@ -5,74 +5,289 @@ import fr.baba.engine.boardElement.TileObject;
 import fr.baba.engine.boardElement.Token;
 import fr.baba.engine.board.*;
 
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class MoveProperties {
     /**
-     * Moves the object obj located at (colNumber, rowNumber) towards direction.
-     * The object may or may not be moved depending on :
+     * Number of YOU squares from which the moves are planned in parallel,
+     * and minimum number of YOU squares planned by a single task.
+     */
+    public static final int PARALLEL_THRESHOLD = 512;
+
+    /**
+     * Moves all you objects on the board towards direction, pushing
+     * the PUSH objects in front of them.
+     * All the moves are planned against the board as it is before any of them,
+     * then made at once, so that the result doesn't depend on the order
+     * the YOU objects are found in. An object moves at most once per turn.
+     * A YOU object may or may not be moved depending on :
      * Out of bounds move
      * Objects with STOP or PUSH property
-     * @param board board on which the movement will happen
-     * @param colNumber column number of the square where obj is located
-     * @param rowNumber row number of the square where obj is located
-     * @param obj to be moved object
-     * @param direction where the object is headed
-     * @return true if the object was successfully moved, else false
+     * Boards with at least PARALLEL_THRESHOLD YOU squares are planned
+     * in parallel on the common fork-join pool, if it has several threads.
+     * @param board board on which the action will be performed
+     * @param direction where the objects are headed
+     */
+    static public void moveAllYouObjects(Board board, Direction direction){
+        Objects.requireNonNull(board);
+        Objects.requireNonNull(direction);
+        var movers = board.getSquaresWithProperties(Token.You);
+        if(movers.length >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1){
+            planInParallel(board, direction, movers, ForkJoinPool.commonPool()).commit(board);
+            return;
+        }
+        var planner = new MovePlanner(board, direction);
+        for (var mover : movers){
+            planner.addMover(mover);
+        }
+        planner.plan().commit(board);
+    }
+
+    /**
+     * Moves all you objects on the board towards direction, as moveAllYouObjects does,
+     * planning the moves in parallel on pool whatever the number of YOU objects.
+     * The board ends up exactly as if the moves had been planned sequentially.
+     * @param board board on which the action will be performed
+     * @param direction where the objects are headed
+     * @param pool pool on which the moves are planned
      */
-    private static boolean moveObject(Board board, int colNumber, int rowNumber, TileObject obj, Direction direction){
-        if(!board.coordinatesAreValid(colNumber, rowNumber))
-            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
-        Objects.requireNonNull(direction); Objects.requireNonNull(obj);
-        int newColNumber = colNumber + direction.getVector().get(0);
-        int newRowNumber = rowNumber + direction.getVector().get(1);
-        if (!board.coordinatesAreValid(newColNumber, newRowNumber) || board.squareHasProperty(newColNumber, newRowNumber, Token.Stop))
-            return false;
-        if (moveAllPushObjects(board, newColNumber, newRowNumber, direction))
-            board.transferObject(obj, colNumber, rowNumber, newColNumber, newRowNumber);
-        else
-            return false;
-        return true;
+    static public void moveAllYouObjects(Board board, Direction direction, ForkJoinPool pool){
+        Objects.requireNonNull(board);
+        Objects.requireNonNull(direction);
+        Objects.requireNonNull(pool);
+        planInParallel(board, direction, board.getSquaresWithProperties(Token.You), pool).commit(board);
     }
 
     /**
-     * Moves all push objects at (colNumber, rowNumber) to
-     * the next square specified by direction.
-     * @param board board on which the movements will happen
-     * @param colNumber column number of the square
-     * @param rowNumber row number of the square
+     * Plans the moves of movers in parallel.
+     * A push chain never leaves the line (row or column) of its mover along direction,
+     * so the lines of the board are independent regions: movers are sorted by line,
+     * and each task plans a range of whole lines against the untouched board.
+     * Every object has a single origin and a single target, so the plans of the lines
+     * can be committed in any order; they are merged in line order to keep it deterministic.
+     * @param board board on which the moves will happen
      * @param direction where the objects are headed
-     * @return if the objects were moved or not
+     * @param movers squares holding YOU objects
+     * @param pool pool on which the moves are planned
+     * @return the planned moves
      */
-    static boolean moveAllPushObjects(Board board, int colNumber, int rowNumber, Direction direction){
-        if(!board.coordinatesAreValid(colNumber, rowNumber))
-            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
-        var push_objects =  board.getObjectsOnSquareWithProperty(colNumber, rowNumber, Token.Push);
-        for(var push_object : push_objects){
-            if(!moveObject(board, colNumber, rowNumber, push_object, direction)){
-                return false;
+    private static Plan planInParallel(Board board, Direction direction, int[] movers, ForkJoinPool pool){
+        boolean byRow = direction.getVector().get(0) != 0; // moves along rows
+        var keys = new long[movers.length];
+        for(int i = 0; i != movers.length; i++){
+            long line = byRow ? board.getRowOfSquare(movers[i]) : board.getColOfSquare(movers[i]);
+            keys[i] = line << 32 | movers[i];
+        }
+        Arrays.parallelSort(keys);
+        return pool.invoke(new PlanTask(board, direction, keys, 0, keys.length));
+    }
+
+    /**
+     * Plans the moves of a range of movers sorted by line, splitting it
+     * into halves (at a line boundary) while it is large enough.
+     */
+    private static final class PlanTask extends RecursiveTask<Plan> {
+        private static final long serialVersionUID = 1L;
+
+        private final Board board;
+        private final Direction direction;
+        private final long[] keys; // line << 32 | square, sorted
+        private final int from;
+        private final int to;
+
+        private PlanTask(Board board, Direction direction, long[] keys, int from, int to){
+            this.board = board;
+            this.direction = direction;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Plan compute(){
+            if(to - from >= 2 * PARALLEL_THRESHOLD){
+                int middle = (from + to) >>> 1;
+                while(middle < to && keys[middle] >>> 32 == keys[middle - 1] >>> 32)
+                    middle++;
+                if(middle < to){
+                    var right = new PlanTask(board, direction, keys, middle, to);
+                    right.fork();
+                    var plan = new PlanTask(board, direction, keys, from, middle).compute();
+                    plan.addAll(right.join());
+                    return plan;
+                }
             }
+            var planner = new MovePlanner(board, direction);
+            for(int i = from; i != to; i++){
+                planner.addMover((int) keys[i]);
+            }
+            return planner.plan();
         }
-        return true;
     }
 
     /**
-     * Moves all you objects on the board towards direction.
-     * @param board board on which the action will be performed
-     * @param direction where the objects are headed
+     * Plans the moves of a turn against the board as it is before any of them.
+     * Each square is resolved at most once, walking push chains iteratively,
+     * so the cost is linear in the number of squares involved in the moves.
+     * The board is only read, so several planners may work on it at once.
      */
-    static public void moveAllYouObjects(Board board, Direction direction){
-        Objects.requireNonNull(direction);
-        var alreadyMoved = new HashSet<TileObject>();
-        for (int i = 0; i != board.getNumberOfCol(); i++){
-            for(int j = 0; j != board.getNumberOfRow(); j++){
-                var you_objects = board.getObjectsOnSquareWithProperty(i, j, Token.You);
-                for(var you_object : you_objects){
-                    if(!alreadyMoved.contains(you_object))
-                        moveObject(board, i, j, you_object, direction);
-                    alreadyMoved.add(you_object);
+    private static final class MovePlanner {
+        private final Board board;
+        private final int deltaCol;
+        private final int deltaRow;
+        private final SquareSet resolved = new SquareSet(); // squares whose objects are known to be able to move or not
+        private final SquareSet movable = new SquareSet(); // resolved squares whose objects can move
+        private final SquareSet movingYou = new SquareSet(); // squares whose YOU objects move
+        private final SquareSet pushed = new SquareSet(); // squares whose PUSH objects are pushed
+
+        /**
+         * @param board board on which the moves will happen
+         * @param direction where the objects are headed
+         */
+        private MovePlanner(Board board, Direction direction){
+            this.board = board;
+            this.deltaCol = direction.getVector().get(0);
+            this.deltaRow = direction.getVector().get(1);
+        }
+
+        /**
+         * @param square index of a square
+         * @return the index of the next square towards the direction, or -1 if it is out of bounds
+         */
+        private int next(int square){
+            int col = board.getColOfSquare(square) + deltaCol;
+            int row = board.getRowOfSquare(square) + deltaRow;
+            if(!board.coordinatesAreValid(col, row))
+                return -1;
+            return col * board.getNumberOfRow() + row;
+        }
+
+        /**
+         * @param square index of a square
+         * @param property property to be had
+         * @return whether an object of the square has the property
+         */
+        private boolean squareHasProperty(int square, Token property){
+            return board.squareHasProperty(board.getColOfSquare(square), board.getRowOfSquare(square), property);
+        }
+
+        /**
+         * Checks if the objects of the square can move one step towards the direction:
+         * the next square has to be in bounds, without STOP object, and its PUSH objects
+         * (if any) have to be able to move as well.
+         * The chain of squares is walked forward until its outcome is known,
+         * then every square walked is resolved with that outcome.
+         * @param square index of the square
+         * @return whether the objects of the square can move
+         */
+        private boolean canMove(int square){
+            int length = 0;
+            var chain = new int[4];
+            int current = square;
+            boolean canMove;
+            while(true){
+                if(resolved.get(current)){
+                    canMove = movable.get(current);
+                    break;
+                }
+                if(length == chain.length)
+                    chain = Arrays.copyOf(chain, length * 2);
+                chain[length++] = current;
+                int target = next(current);
+                if(target == -1 || squareHasProperty(target, Token.Stop)){
+                    canMove = false;
+                    break;
                 }
+                if(!squareHasProperty(target, Token.Push)){
+                    canMove = true;
+                    break;
+                }
+                current = target;
+            }
+            for(int i = 0; i != length; i++){
+                resolved.set(chain[i]);
+                movable.set(chain[i], canMove);
+            }
+            return canMove;
+        }
+
+        /**
+         * Plans the move of the YOU objects of the square, if they can move,
+         * along with the PUSH objects in front of them.
+         * @param square index of a square holding YOU objects
+         */
+        private void addMover(int square){
+            if(!canMove(square))
+                return;
+            movingYou.set(square);
+            for(int target = next(square); !pushed.get(target) && squareHasProperty(target, Token.Push); target = next(target)){
+                pushed.set(target);
+            }
+        }
+
+        /**
+         * Lists the objects to be moved, in the order the board is scanned.
+         * An object which is both YOU and PUSH only moves once.
+         * @return the planned moves
+         */
+        private Plan plan(){
+            var squares = movingYou.copy();
+            squares.or(pushed);
+            var plan = new Plan();
+            for(int square = squares.nextSetBit(0); square != -1; square = squares.nextSetBit(square + 1)){
+                boolean you = movingYou.get(square);
+                boolean push = pushed.get(square);
+                int target = next(square);
+                for(var obj : board.getSquareOnGrid(board.getColOfSquare(square), board.getRowOfSquare(square))){
+                    if((you && board.hasProperty(obj, Token.You)) || (push && board.hasProperty(obj, Token.Push)))
+                        plan.add(obj, square, target);
+                }
+            }
+            return plan;
+        }
+    }
+
+    /**
+     * Moves planned for a turn, as (object, origin square, target square) triples.
+     */
+    private static final class Plan {
+        private TileObject[] objects = new TileObject[8];
+        private int[] origins = new int[8];
+        private int[] targets = new int[8];
+        private int size;
+
+        private void addAll(Plan other){
+            for(int i = 0; i != other.size; i++){
+                add(other.objects[i], other.origins[i], other.targets[i]);
+            }
+        }
+
+        private void add(TileObject obj, int origin, int target){
+            if(size == objects.length){
+                objects = Arrays.copyOf(objects, size * 2);
+                origins = Arrays.copyOf(origins, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            objects[size] = obj;
+            origins[size] = origin;
+            targets[size] = target;
+            size++;
+        }
+
+        /**
+         * Makes every planned move: all the objects are lifted from their square
+         * first, then dropped on their target, on top of its stack.
+         * @param board board on which the moves happen
+         */
+        private void commit(Board board){
+            for(int i = 0; i != size; i++){
+                board.removeObjectFromSquare(objects[i], board.getColOfSquare(origins[i]), board.getRowOfSquare(origins[i]));
+            }
+            for(int i = 0; i != size; i++){
+                board.addObjectToSquare(objects[i], board.getColOfSquare(targets[i]), board.getRowOfSquare(targets[i]));
             }
         }
     }
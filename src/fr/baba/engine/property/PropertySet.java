@@ -3,28 +3,22 @@ package fr.baba.engine.property;
 import fr.baba.engine.boardElement.Token;
 import fr.baba.engine.boardElement.tokenType;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.StringJoiner;
 
 /**
  * This class represents a set of properties.
- * Ideally, every token has properties, so every token
- * on the board should have an instance of this class
- * associated with it in some kind of way.
- * (Hashmaps being a fairly good idea,
- * see AbstractTileObject to see the implementation)
+ * Properties are stored as the bits of a single long (see RuleSet.propertyBit),
+ * so that checking, adding or removing a property costs one instruction,
+ * and that the bulk operations (union, intersection, difference and containment)
+ * work on whole sets at once, like those of an EnumSet.
  */
 
 public class PropertySet {
-    private static final List<Token> PROPERTY_LIST =
-            Collections.
-                unmodifiableList(
-                       Arrays.stream(Token.values()).
-                               filter(t -> t.getType() == tokenType.property).
-                               collect(Collectors.toList())
-                );
+    private static final Token[] TOKENS = Token.values();
+    private static final long PROPERTIES_MASK = propertiesMask();
 
-    private final ArrayList<Boolean> properties = new ArrayList<>(PROPERTY_LIST.size());
+    private long mask;
 
     /**
      * Initializes a PropertySet with no properties (= all properties set to false),
@@ -32,40 +26,62 @@ public class PropertySet {
      * @param propToAssign properties to be assigned
      */
     public PropertySet(Token... propToAssign){
-        for (var prop: propToAssign){
-            if(prop.getType() != tokenType.property){
-                Objects.requireNonNull(propToAssign);
-                throw new IllegalArgumentException("Token has to be a property");
-            }
-        }
-        for(int i = 0; i != PROPERTY_LIST.size(); i++){
-            properties.add(false);
-        }
+        Objects.requireNonNull(propToAssign);
         for(var prop: propToAssign){
             this.setProperty(true, prop);
         }
     }
 
+    /**
+     * @return the mask holding every property
+     */
+    private static long propertiesMask(){
+        long mask = 0;
+        for(var token : TOKENS){
+            if(token.getType() == tokenType.property)
+                mask |= RuleSet.propertyBit(token);
+        }
+        return mask;
+    }
+
+    /**
+     * Creates a PropertySet from a mask of properties.
+     * @param mask mask of properties, see RuleSet.propertyBit
+     * @return the PropertySet holding those properties
+     */
+    public static PropertySet fromMask(long mask){
+        if((mask & ~PROPERTIES_MASK) != 0)
+            throw new IllegalArgumentException("mask has to hold properties only");
+        var properties = new PropertySet();
+        properties.mask = mask;
+        return properties;
+    }
+
+    /**
+     * @return the mask of the properties of the set, see RuleSet.propertyBit
+     */
+    public long toMask(){
+        return mask;
+    }
+
     /**
      * Adds or remove the specified property from the PropertySet
      * @param is whether to add or remove that property
      * @param propToAssign property to be added or removed
      */
     public void setProperty(boolean is, Token propToAssign){
-        Objects.requireNonNull(propToAssign);
-        if(propToAssign.getType() != tokenType.property){
-            throw new IllegalArgumentException("Token has to be a property");
-        }
-        properties.set(PROPERTY_LIST.indexOf(propToAssign), is);
+        long bit = RuleSet.propertyBit(propToAssign);
+        if(is)
+            mask |= bit;
+        else
+            mask &= ~bit;
     }
 
     /**
      * Removes all properties contained in the PropertySet
      */
     public void clearProperties(){
-        for(int i = 0; i != properties.size(); i++){
-            properties.set(i, false);
-        }
+        mask = 0;
     }
 
     /**
@@ -74,10 +90,88 @@ public class PropertySet {
      * @return whether or not the PropertySet has that property
      */
     public boolean hasProperty(Token property){
-        Objects.requireNonNull(property);
-        if(property.getType() != tokenType.property){
-            throw new IllegalArgumentException("Token has to be a property");
+        return (mask & RuleSet.propertyBit(property)) != 0;
+    }
+
+    /**
+     * @return whether the PropertySet has no property
+     */
+    public boolean isEmpty(){
+        return mask == 0;
+    }
+
+    /**
+     * Adds every property of other to the PropertySet (union).
+     * @param other properties to be added
+     * @return this PropertySet
+     */
+    public PropertySet addAll(PropertySet other){
+        mask |= other.mask;
+        return this;
+    }
+
+    /**
+     * Keeps only the properties also contained in other (intersection).
+     * @param other properties to be kept
+     * @return this PropertySet
+     */
+    public PropertySet retainAll(PropertySet other){
+        mask &= other.mask;
+        return this;
+    }
+
+    /**
+     * Removes every property of other from the PropertySet (difference).
+     * @param other properties to be removed
+     * @return this PropertySet
+     */
+    public PropertySet removeAll(PropertySet other){
+        mask &= ~other.mask;
+        return this;
+    }
+
+    /**
+     * @param other some properties
+     * @return whether the PropertySet has every property of other
+     */
+    public boolean containsAll(PropertySet other){
+        return (mask & other.mask) == other.mask;
+    }
+
+    /**
+     * @param other some properties
+     * @return whether the PropertySet has at least one property of other
+     */
+    public boolean intersects(PropertySet other){
+        return (mask & other.mask) != 0;
+    }
+
+    /**
+     * @return a new PropertySet with the same properties
+     */
+    public PropertySet copy(){
+        var copy = new PropertySet();
+        copy.mask = mask;
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o){
+        return o instanceof PropertySet && ((PropertySet) o).mask == mask;
+    }
+
+    @Override
+    public int hashCode(){
+        return Long.hashCode(mask);
+    }
+
+    @Override
+    public String toString(){
+        var joiner = new StringJoiner(", ", "[", "]");
+        for(var token : TOKENS){
+            if((mask & (1L << token.ordinal())) != 0)
+                joiner.add(token.name());
         }
-        return properties.get(PROPERTY_LIST.indexOf(property));
+        return joiner.toString();
     }
 }
@@ -4,9 +4,16 @@ import fr.baba.engine.boardElement.*;
 import fr.baba.utils.Direction;
 import fr.baba.engine.board.*;
 
-import static java.lang.Math.abs;
+import java.util.Map;
 
 public class RemoveProperties {
+    private static final PropertySet SINK = new PropertySet(Token.Sink);
+    private static final PropertySet HOT_MELT = new PropertySet(Token.Hot, Token.Melt);
+    private static final PropertySet DEFEAT_YOU = new PropertySet(Token.Defeat, Token.You);
+    private static final PropertySet INTERACTIONS = new PropertySet(Token.Sink, Token.Hot, Token.Melt, Token.Defeat, Token.You);
+    private static final PropertySet MELT = new PropertySet(Token.Melt);
+    private static final PropertySet YOU = new PropertySet(Token.You);
+
     /**
      * Applies all remove-like properties, including
      *  IS NOUN, HOT/MELT and SINK.
@@ -15,60 +22,38 @@ public class RemoveProperties {
     static public void applyRemoveProperties(Board board){
         applyBoom(board);
         applySpriteConversion(board);
-        applySink(board);
-        applyHotMelt(board);
-        applyDefeatYou(board);
+        applyInteractions(board);
     }
 
     /**
-     * Applies the Hot/MELT property, subsequently removing all
-     * MELT objects overlapping a HOT object.
-     * @param board board on which the Hot/MELT property will be applied
+     * Applies the SINK, HOT/MELT and DEFEAT/YOU properties in a single sweep.
+     * Those properties only affect the square they are on, so each square holding
+     * one of them is visited once, and the effects are dispatched from the mask of
+     * the square's properties in the order they have always been applied in:
+     * SINK removes every object of the square (itself included) if it overlaps one,
+     * then HOT removes the MELT objects, then DEFEAT removes the YOU objects.
+     * Once they have been applied, a square is left without any of these interactions
+     * until its objects or their properties change, so only the dirty squares are visited.
+     * @param board board on which the properties will be applied
      */
-    static private void applyHotMelt(Board board){
-        for (int i = 0; i < board.getNumberOfCol(); i++) {
-            for (int j = 0; j < board.getNumberOfRow(); j++) {
-                if(board.squareHasProperty(i, j, Token.Hot) && board.squareHasProperty(i, j, Token.Melt)) {
-                    var melt_objects = board.getObjectsOnSquareWithProperty(i, j, Token.Melt);
-                    int finalI = i;
-                    int finalJ = j;
-                    melt_objects.forEach(obj -> board.removeObjectFromSquare(obj, finalI, finalJ));
-                }
+    static private void applyInteractions(Board board){
+        var squares = board.takeDirtySquares();
+        for (int square = squares.nextSetBit(0); square != -1; square = squares.nextSetBit(square + 1)){
+            int i = board.getColOfSquare(square);
+            int j = board.getRowOfSquare(square);
+            var properties = board.getSquareProperties(i, j);
+            if(!properties.intersects(INTERACTIONS))
+                continue;
+            if(properties.containsAll(SINK) && board.getSquareSize(i, j) != 1){
+                board.clearSquare(i, j);
+                continue;
             }
-        }
-    }
-
-    /**
-     * Applies the Defeat/You property, subsequently removing all
-     * You objects overlapping a Defeat object.
-     * @param board board on which the Defeat/You property will be applied
-     */
-    static private void applyDefeatYou(Board board){
-        for (int i = 0; i < board.getNumberOfCol(); i++) {
-            for (int j = 0; j < board.getNumberOfRow(); j++) {
-                if(board.squareHasProperty(i, j, Token.Defeat) && board.squareHasProperty(i, j, Token.You)) {
-                    var you_objects = board.getObjectsOnSquareWithProperty(i, j, Token.You);
-                    int finalI = i;
-                    int finalJ = j;
-                    you_objects.forEach(obj -> board.removeObjectFromSquare(obj, finalI, finalJ));
-                }
-            }
-        }
-    }
-
-    /**
-     * Applies the SINK property, subsequently removing all
-     * objects overlapping a SINK object, as well as the SINK object
-     * itself.
-     * @param board board on which the Sink property will be applied
-     */
-    static private void applySink(Board board){
-        for (int i = 0; i < board.getNumberOfCol(); i++) {
-            for (int j = 0; j < board.getNumberOfRow(); j++) {
-                if(board.squareHasProperty(i, j, Token.Sink) && board.getSquareOnGrid(i, j).size() != 1) {
-                    board.clearSquare(i, j);
-                }
+            if(properties.containsAll(HOT_MELT)){
+                board.removeObjectsWithProperties(MELT, i, j);
+                properties = board.getSquareProperties(i, j);
             }
+            if(properties.containsAll(DEFEAT_YOU))
+                board.removeObjectsWithProperties(YOU, i, j);
         }
     }
 
@@ -81,16 +66,17 @@ public class RemoveProperties {
      */
     static private void applyBoom(Board board){
         var v = Direction.values();
-        for (int i = 0; i < board.getNumberOfCol(); i++) {
-            for (int j = 0; j < board.getNumberOfRow(); j++) {
-                if(board.squareHasProperty(i, j, Token.Boom) && board.getSquareOnGrid(i, j).size() != 1) {
-                    for(int x=0; x < v.length; x++){
-                        if(board.coordinatesAreValid(i + v[x].getVector().get(0), j + v[x].getVector().get(1)))
-                            board.clearSquare(i + v[x].getVector().get(0), j + v[x].getVector().get(1));
-                        for (int y=x+1; y < v.length; y++){
-                            if(board.coordinatesAreValid(i + v[x].getVector().get(0) + v[y].getVector().get(0), j + v[x].getVector().get(1) + v[y].getVector().get(1)))
-                                board.clearSquare(i + v[x].getVector().get(0) + v[y].getVector().get(0), j + v[x].getVector().get(1) + v[y].getVector().get(1));
-                        }
+        for (var square : board.getSquaresWithProperties(Token.Boom)) {
+            int i = board.getColOfSquare(square);
+            int j = board.getRowOfSquare(square);
+            // an earlier explosion may have cleared this square already
+            if(board.squareHasProperty(i, j, Token.Boom) && board.getSquareSize(i, j) != 1) {
+                for(int x=0; x < v.length; x++){
+                    if(board.coordinatesAreValid(i + v[x].getVector().get(0), j + v[x].getVector().get(1)))
+                        board.clearSquare(i + v[x].getVector().get(0), j + v[x].getVector().get(1));
+                    for (int y=x+1; y < v.length; y++){
+                        if(board.coordinatesAreValid(i + v[x].getVector().get(0) + v[y].getVector().get(0), j + v[x].getVector().get(1) + v[y].getVector().get(1)))
+                            board.clearSquare(i + v[x].getVector().get(0) + v[y].getVector().get(0), j + v[x].getVector().get(1) + v[y].getVector().get(1));
                     }
                 }
             }
@@ -99,60 +85,42 @@ public class RemoveProperties {
 
     /**
      * Applies and detect every NOUN IS NOUN conversion on the board.
+     * All the conversions are applied at once, to the board as it was before
+     * any of them, so that ROCK IS BABA and BABA IS ROCK swap rocks and babas.
+     * A NOUN IS (same) NOUN rule prevents any conversion of that noun's sprites.
      * @param board board on which the conversion will take place
      */
     static private void applySpriteConversion(Board board){
-        for (int i = 0; i < board.getNumberOfCol(); i++) {
-            for (int j = 0; j < board.getNumberOfRow(); j++) {
-                applyNounIsNoun(board, i, j);
-            }
-        }
+        var tracker = board.getRuleTracker();
+        tracker.update(board);
+        convertSpriteObjects(board, tracker.getRuleSet().getSpriteTransforms());
     }
 
     /**
-     * Checks if there is a IS operator at (colNumber, rowNumber) and
-     * nouns next to it. If there is, a conversion of all the sprites
-     * designated by the first noun are replaced by the sprite designated
-     * by the second noun.
-     * For example, LAVA IS WATER will convert every LAVA sprite to a WATER sprite
-     * @param board board on which the NounIsNoun property will be applied
-     * @param colNumber column number of the square
-     * @param rowNumber row number of the square
+     * Converts every Sprite object on the board whose token is a key of conversions
+     * into a new Sprite object with the associated token.
+     * Only the squares holding those sprites are visited.
+     * @param board board on which the conversion will take place
+     * @param conversions new token, by old token
      */
-    static private void applyNounIsNoun(Board board, int colNumber, int rowNumber){
-        Direction directions[] = {Direction.north, Direction.west};
-        if (!board.coordinatesAreValid(colNumber, rowNumber))
-            throw new IllegalArgumentException("colNumber or/and rowNumber out of bounds of the grid");
-        if (board.squareHasToken(colNumber, rowNumber, Token.Is)){
-            for (var vector : directions){
-                var leftObj = board.getObjectOnSquareOfType(colNumber + vector.getVector().get(0), rowNumber + vector.getVector().get(1), tokenType.noun);
-                leftObj.ifPresent(left -> {
-                    var rightObj = board.getObjectOnSquareOfType(colNumber + abs(vector.getVector().get(0)), rowNumber + abs(vector.getVector().get(1)), tokenType.noun);
-                    rightObj.ifPresent(right -> convertSpriteObjects(board, left.getToken().getRep(), right.getToken().getRep()));
-                });
+    static private void convertSpriteObjects(Board board, Map<Token, Token> conversions){
+        var squares = new SquareSet();
+        for (var entry : conversions.entrySet()){
+            if(entry.getKey().getType() != tokenType.sprite || entry.getValue().getType() != tokenType.sprite)
+                throw new IllegalArgumentException("token have to be of type Sprite");
+            if(entry.getKey() == entry.getValue())
+                continue;
+            for (var square : board.getSquaresWithToken(entry.getKey())){
+                squares.set(square);
             }
         }
-    }
-
-    /**
-     * Converts every Sprite object on the board which have an old token
-     * into a new Sprite object with a neww token.
-     * @param board board on which the conversion will take place
-     * @param old old token
-     * @param neww new token
-     */
-    static private void convertSpriteObjects(Board board, Token old, Token neww){
-        if(old.getType() != tokenType.sprite || neww.getType() != tokenType.sprite)
-            throw new IllegalArgumentException("token have to be of type Sprite");
-        for (int i = 0; i < board.getNumberOfCol(); i++) {
-            for (int j = 0; j < board.getNumberOfRow(); j++) {
-                while(true){
-                    var obj = board.getObjectOnSquareOfToken(i, j, old);
-                    if(obj.isEmpty())
-                        break;
-                    board.removeObjectFromSquare(obj.get(), i, j);
-                    board.addObjectToSquare(new Sprite(neww), i, j);
-                }
+        for (int square = squares.nextSetBit(0); square != -1; square = squares.nextSetBit(square + 1)){
+            int i = board.getColOfSquare(square);
+            int j = board.getRowOfSquare(square);
+            for (var obj : board.getSquareOnGrid(i, j)){
+                var neww = conversions.get(obj.getToken());
+                if(neww != null && neww != obj.getToken())
+                    board.replaceObjectOnSquare(obj, new Sprite(neww), i, j);
             }
         }
     }
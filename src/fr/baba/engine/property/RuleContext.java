@@ -0,0 +1,84 @@
+package fr.baba.engine.property;
+
+import fr.baba.engine.boardElement.Token;
+import fr.baba.engine.boardElement.tokenType;
+
+import java.util.Objects;
+
+/**
+ * Properties of every token on one board, as given by the rules written on it.
+ * Text objects (nouns, operators and properties) are always PUSH; sprites get
+ * the properties the rules give to the noun designating them.
+ * Each board has its own context, so that boards never share rules
+ * and can be played on different threads.
+ */
+public final class RuleContext {
+    private static final Token[] TOKENS = Token.values();
+    private static final long TEXT_PROPERTIES = RuleSet.propertyBit(Token.Push);
+
+    private final long[] propertyMasks = new long[TOKENS.length]; // properties of each token, by token ordinal
+    private RuleSet ruleSet = RuleSet.EMPTY;
+
+    /**
+     * Initializes a context without any rule.
+     */
+    public RuleContext(){
+        for(var token : TOKENS){
+            if(token.getType() != tokenType.sprite)
+                propertyMasks[token.ordinal()] = TEXT_PROPERTIES;
+        }
+    }
+
+    /**
+     * Gives the tokens the properties of ruleSet, instead of the previous rules.
+     * @param ruleSet rules to be applied
+     * @return false if ruleSet says the same thing as the rules already applied
+     */
+    public boolean apply(RuleSet ruleSet){
+        Objects.requireNonNull(ruleSet);
+        if(ruleSet.equals(this.ruleSet))
+            return false;
+        this.ruleSet = ruleSet;
+        for(var token : TOKENS){
+            if(token.getType() == tokenType.sprite)
+                propertyMasks[token.ordinal()] = 0;
+        }
+        for(var noun : TOKENS){
+            if(noun.getType() == tokenType.noun)
+                propertyMasks[noun.getRep().ordinal()] |= ruleSet.getPropertyMask(noun);
+        }
+        return true;
+    }
+
+    /**
+     * @return the rules currently applied
+     */
+    public RuleSet getRuleSet(){
+        return ruleSet;
+    }
+
+    /**
+     * @param token a token
+     * @return the mask of the properties of the token, see RuleSet.propertyBit
+     */
+    public long getPropertyMask(Token token){
+        return propertyMasks[token.ordinal()];
+    }
+
+    /**
+     * @param token a token
+     * @return the properties of the token
+     */
+    public PropertySet getProperties(Token token){
+        return PropertySet.fromMask(getPropertyMask(token));
+    }
+
+    /**
+     * @param token a token
+     * @param property a property
+     * @return whether objects with that token have that property
+     */
+    public boolean hasProperty(Token token, Token property){
+        return (getPropertyMask(token) & RuleSet.propertyBit(property)) != 0;
+    }
+}
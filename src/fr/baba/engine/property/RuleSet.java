@@ -0,0 +1,158 @@
+package fr.baba.engine.property;
+
+import fr.baba.engine.boardElement.Token;
+import fr.baba.engine.boardElement.tokenType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable set of the rules written on a board, compiled once per change:
+ * the properties given to each noun (NOUN IS PROPERTY)
+ * and the noun each noun is transformed into (NOUN IS NOUN).
+ * Two rule sets saying the same things are equal, whatever the position
+ * of their words on the board, so that unchanged rules can be detected
+ * from one turn to the next.
+ */
+public final class RuleSet {
+    private static final Token[] TOKENS = Token.values();
+
+    /**
+     * Rule set of a board without any rule.
+     */
+    public static final RuleSet EMPTY = new Builder().build();
+
+    private final long[] propertyMasks; // properties of each noun, by noun ordinal
+    private final Token[] transforms; // noun each noun is transformed into, by noun ordinal
+    private final Map<Token, Token> spriteTransforms;
+
+    /**
+     * Use a Builder to create a RuleSet.
+     * @param builder builder containing the rules
+     */
+    private RuleSet(Builder builder){
+        this.propertyMasks = builder.propertyMasks.clone();
+        this.transforms = builder.transforms.clone();
+        var sprites = new EnumMap<Token, Token>(Token.class);
+        for(var noun : TOKENS){
+            var transform = transforms[noun.ordinal()];
+            if(transform != null)
+                sprites.put(noun.getRep(), transform.getRep());
+        }
+        this.spriteTransforms = Collections.unmodifiableMap(sprites);
+    }
+
+    /**
+     * @param property a property
+     * @return the bit standing for that property in property masks
+     */
+    public static long propertyBit(Token property){
+        Objects.requireNonNull(property);
+        if(property.getType() != tokenType.property)
+            throw new IllegalArgumentException("Token has to be a property");
+        return 1L << property.ordinal();
+    }
+
+    /**
+     * @param noun a noun
+     * @return the mask of the properties given to the noun's sprite
+     */
+    public long getPropertyMask(Token noun){
+        return propertyMasks[checkNoun(noun).ordinal()];
+    }
+
+    /**
+     * @param noun a noun
+     * @param property a property
+     * @return whether the rules give that property to the noun's sprite
+     */
+    public boolean hasProperty(Token noun, Token property){
+        return (getPropertyMask(noun) & propertyBit(property)) != 0;
+    }
+
+    /**
+     * @param noun a noun
+     * @return the noun into which the noun's sprites are transformed, null if there is none.
+     * A noun transformed into itself can't be transformed into anything else.
+     */
+    public Token getTransform(Token noun){
+        return transforms[checkNoun(noun).ordinal()];
+    }
+
+    /**
+     * @return the sprite into which sprites are transformed, by sprite to be transformed
+     */
+    public Map<Token, Token> getSpriteTransforms(){
+        return spriteTransforms;
+    }
+
+    /**
+     * @param noun token to be checked
+     * @return noun
+     */
+    private static Token checkNoun(Token noun){
+        Objects.requireNonNull(noun);
+        if(noun.getType() != tokenType.noun)
+            throw new IllegalArgumentException("Token has to be a noun");
+        return noun;
+    }
+
+    @Override
+    public boolean equals(Object o){
+        if(!(o instanceof RuleSet))
+            return false;
+        var other = (RuleSet) o;
+        return Arrays.equals(propertyMasks, other.propertyMasks) && Arrays.equals(transforms, other.transforms);
+    }
+
+    @Override
+    public int hashCode(){
+        return Arrays.hashCode(propertyMasks) * 31 + Arrays.hashCode(transforms);
+    }
+
+    /**
+     * Compiles rules into a RuleSet.
+     * Rules are to be added in the order the board is read. Whatever the syntax
+     * they are written with, rules end up as calls to this builder.
+     */
+    public static final class Builder {
+        private final long[] propertyMasks = new long[TOKENS.length];
+        private final Token[] transforms = new Token[TOKENS.length];
+
+        /**
+         * Adds a NOUN IS PROPERTY rule.
+         * @param noun subject of the rule
+         * @param property property given to the noun's sprite
+         * @return this builder
+         */
+        public Builder addProperty(Token noun, Token property){
+            propertyMasks[checkNoun(noun).ordinal()] |= propertyBit(property);
+            return this;
+        }
+
+        /**
+         * Adds a NOUN IS NOUN rule. The first transform of a noun is the one kept,
+         * unless the noun is transformed into itself, which prevents any transform.
+         * @param noun subject of the rule
+         * @param target noun into which the subject's sprites are transformed
+         * @return this builder
+         */
+        public Builder addTransform(Token noun, Token target){
+            int index = checkNoun(noun).ordinal();
+            checkNoun(target);
+            if(noun == target || transforms[index] == null)
+                transforms[index] = target;
+            return this;
+        }
+
+        /**
+         * @return the RuleSet compiled from the rules added so far
+         */
+        public RuleSet build(){
+            return new RuleSet(this);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package fr.baba.engine.property;
+
+import fr.baba.engine.board.Board;
+import fr.baba.engine.board.SquareSet;
+import fr.baba.engine.boardElement.Token;
+import fr.baba.engine.boardElement.tokenType;
+import fr.baba.utils.Direction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import static java.lang.Math.abs;
+
+/**
+ * Keeps track of the rules (NOUN IS PROPERTY and NOUN IS NOUN) written on a board.
+ * Rules are stored by the square of their IS operator, and only the IS operators
+ * around the squares whose text objects changed since the last update are parsed again,
+ * so that turns in which no text object moved cost nothing.
+ * The rules are then compiled into a RuleSet, which is only rebuilt when they change.
+ */
+public final class RuleTracker {
+    private static final Direction[] DIRECTIONS = {Direction.north, Direction.west};
+    private static final Token[] NO_RULES = new Token[0];
+
+    // rules by square of their IS operator, stored as (subject noun, complement) pairs
+    private final TreeMap<Integer, Token[]> rulesBySquare = new TreeMap<>();
+    private RuleSet ruleSet = RuleSet.EMPTY;
+
+    /**
+     * @return a tracker knowing the same rules, to be used by a copy of the board
+     */
+    public RuleTracker copy(){
+        var copy = new RuleTracker();
+        copy.rulesBySquare.putAll(rulesBySquare);
+        copy.ruleSet = ruleSet;
+        return copy;
+    }
+
+    /**
+     * Parses again the rules crossing the squares whose text objects changed
+     * since the last update.
+     * @param board board on which the rules are written
+     * @return whether the rules have changed
+     */
+    public boolean update(Board board){
+        Objects.requireNonNull(board);
+        var changes = board.takeTextChanges();
+        if(changes.isEmpty())
+            return false;
+        var isSquares = new SquareSet(); // squares whose IS operator may have gained or lost a rule
+        for(int square = changes.nextSetBit(0); square != -1; square = changes.nextSetBit(square + 1)){
+            int col = board.getColOfSquare(square);
+            int row = board.getRowOfSquare(square);
+            isSquares.set(square);
+            if(row > 0)
+                isSquares.set(square - 1);
+            if(row + 1 < board.getNumberOfRow())
+                isSquares.set(square + 1);
+            if(col > 0)
+                isSquares.set(square - board.getNumberOfRow());
+            if(col + 1 < board.getNumberOfCol())
+                isSquares.set(square + board.getNumberOfRow());
+        }
+        boolean changed = false;
+        for(int square = isSquares.nextSetBit(0); square != -1; square = isSquares.nextSetBit(square + 1)){
+            var rules = parseRules(board, board.getColOfSquare(square), board.getRowOfSquare(square));
+            var previousRules = rulesBySquare.getOrDefault(square, NO_RULES);
+            if(sameRules(rules, previousRules))
+                continue;
+            changed = true;
+            if(rules.length == 0)
+                rulesBySquare.remove(square);
+            else
+                rulesBySquare.put(square, rules);
+        }
+        if(changed)
+            ruleSet = compile();
+        return changed;
+    }
+
+    /**
+     * Reads the rules whose IS operator is at (colNumber, rowNumber), if there is one.
+     * Rules are read from north to south and from west to east.
+     * @param board board on which the rules are written
+     * @param colNumber column number of the square
+     * @param rowNumber row number of the square
+     * @return the rules found, as (subject noun, complement) pairs
+     */
+    private static Token[] parseRules(Board board, int colNumber, int rowNumber){
+        if(!board.squareHasToken(colNumber, rowNumber, Token.Is))
+            return NO_RULES;
+        var rules = new ArrayList<Token>();
+        for(var vector : DIRECTIONS){
+            var nounObj = board.getObjectOnSquareOfType(colNumber + vector.getVector().get(0), rowNumber + vector.getVector().get(1), tokenType.noun);
+            nounObj.ifPresent(noun -> {
+                int complementCol = colNumber + abs(vector.getVector().get(0));
+                int complementRow = rowNumber + abs(vector.getVector().get(1));
+                board.getObjectOnSquareOfType(complementCol, complementRow, tokenType.property).ifPresent(property -> {
+                    rules.add(noun.getToken());
+                    rules.add(property.getToken());
+                });
+                board.getObjectOnSquareOfType(complementCol, complementRow, tokenType.noun).ifPresent(complement -> {
+                    rules.add(noun.getToken());
+                    rules.add(complement.getToken());
+                });
+            });
+        }
+        return rules.toArray(NO_RULES);
+    }
+
+    /**
+     * @param rules some rules
+     * @param otherRules other rules
+     * @return whether both rules say the same thing
+     */
+    private static boolean sameRules(Token[] rules, Token[] otherRules){
+        return Arrays.equals(rules, otherRules);
+    }
+
+    /**
+     * Compiles every rule of the board into a RuleSet, in the order
+     * the board is scanned (column by column) to find their IS operator.
+     * @return the compiled rules
+     */
+    private RuleSet compile(){
+        var builder = new RuleSet.Builder();
+        for(var squareRules : rulesBySquare.values()){
+            for(int i = 0; i != squareRules.length; i += 2){
+                if(squareRules[i + 1].getType() == tokenType.property)
+                    builder.addProperty(squareRules[i], squareRules[i + 1]);
+                else
+                    builder.addTransform(squareRules[i], squareRules[i + 1]);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the rules of the board, as of the last update
+     */
+    public RuleSet getRuleSet(){
+        return ruleSet;
+    }
+}
@@ -0,0 +1,78 @@
+package fr.baba.engine.solver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set of the states already reached by a parallel search, shared by its workers
+ * without any lock: like a TranspositionTable, each state is stored as its 64 bits
+ * hash in an open addressing table, but slots are claimed by compare-and-set.
+ * The table never grows: its slots are allocated once for the maximum number of
+ * states of the search, so that its memory is known before the search starts.
+ */
+final class ConcurrentTranspositionTable {
+    private static final long EMPTY = 0;
+
+    private final AtomicLongArray fingerprints;
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxSize;
+
+    /**
+     * @param maxSize maximum number of states held by the table
+     */
+    ConcurrentTranspositionTable(int maxSize){
+        if(maxSize <= 0 || maxSize > 1 << 29)
+            throw new IllegalArgumentException("maximum size has to be between 1 and 2^29");
+        this.maxSize = maxSize;
+        this.fingerprints = new AtomicLongArray(Integer.highestOneBit(2 * maxSize - 1) << 1);
+    }
+
+    /**
+     * Adds a state to the table, unless the table is full.
+     * Whatever the number of threads adding the same state at once, only one of them succeeds.
+     * @param fingerprint fingerprint of the state
+     * @return false if the state was already in the table, or if the table is full
+     */
+    boolean add(long fingerprint){
+        if(fingerprint == EMPTY)
+            fingerprint = 1; // EMPTY marks free slots
+        int mask = fingerprints.length() - 1;
+        for(int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask; ; slot = (slot + 1) & mask){
+            long current = fingerprints.get(slot);
+            if(current == fingerprint)
+                return false;
+            if(current != EMPTY)
+                continue;
+            if(size.incrementAndGet() > maxSize){
+                size.decrementAndGet();
+                return false;
+            }
+            if(fingerprints.compareAndSet(slot, EMPTY, fingerprint))
+                return true;
+            size.decrementAndGet();
+            if(fingerprints.get(slot) == fingerprint)
+                return false;
+        }
+    }
+
+    /**
+     * @return the number of states in the table
+     */
+    int size(){
+        return size.get();
+    }
+
+    /**
+     * @return whether the table holds its maximum number of states
+     */
+    boolean isFull(){
+        return size.get() >= maxSize;
+    }
+
+    /**
+     * @return the memory taken by the table, in bytes
+     */
+    long bytes(){
+        return 8L * fingerprints.length();
+    }
+}
@@ -0,0 +1,85 @@
+package fr.baba.engine.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Speed of the parallel search of a level depending on the number of threads
+ * (1, 2, 4... up to a maximum), to size the machines running whole packs of levels.
+ * The speedup of a number of threads is its number of states expanded per second
+ * over that of a single thread, and its efficiency is its speedup per thread.
+ */
+public final class ScalingReport {
+    private final List<Solution> solutions;
+
+    /**
+     * @param solutions solutions of the same search with 1, 2, 4... threads
+     */
+    private ScalingReport(List<Solution> solutions){
+        this.solutions = List.copyOf(solutions);
+    }
+
+    /**
+     * Solves the level of solver in parallel with 1, 2, 4... threads, up to maxThreads
+     * (maxThreads being measured as well), each on its own pool.
+     * The search is run once beforehand, so that the code is compiled before anything is measured.
+     * @param solver solver of the level
+     * @param maxThreads maximum number of threads
+     * @return the report
+     */
+    public static ScalingReport measure(Solver solver, int maxThreads){
+        Objects.requireNonNull(solver);
+        if(maxThreads <= 0)
+            throw new IllegalArgumentException("there has to be at least one thread");
+        var solutions = new ArrayList<Solution>();
+        for(int threads = 1; ; threads = Math.min(threads * 2, maxThreads)){
+            var pool = new ForkJoinPool(threads);
+            try{
+                if(threads == 1)
+                    solver.solveInParallel(pool);
+                solutions.add(solver.solveInParallel(pool));
+            }finally{
+                pool.shutdown();
+            }
+            if(threads == maxThreads)
+                break;
+        }
+        return new ScalingReport(solutions);
+    }
+
+    /**
+     * @return the solutions of the search with 1, 2, 4... threads
+     */
+    public List<Solution> getSolutions(){
+        return solutions;
+    }
+
+    /**
+     * @param solution one of the solutions of the report
+     * @return its number of states expanded per second over that of a single thread
+     */
+    public double speedupOf(Solution solution){
+        double reference = solutions.get(0).getNodesPerSecond();
+        return reference == 0 ? 0 : solution.getNodesPerSecond() / reference;
+    }
+
+    /**
+     * @param solution one of the solutions of the report
+     * @return its speedup per thread, 1 meaning a perfect scaling
+     */
+    public double efficiencyOf(Solution solution){
+        return speedupOf(solution) / solution.getThreads();
+    }
+
+    @Override
+    public String toString(){
+        var builder = new StringBuilder(String.format("%8s %12s %8s %10s%n", "threads", "nodes/s", "speedup", "efficiency"));
+        for(var solution : solutions){
+            builder.append(String.format("%8d %12.0f %8.2f %9.0f%%%n", solution.getThreads(), solution.getNodesPerSecond(),
+                    speedupOf(solution), 100 * efficiencyOf(solution)));
+        }
+        return builder.append(solutions.get(solutions.size() - 1).getStatus()).toString();
+    }
+}
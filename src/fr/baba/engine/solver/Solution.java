@@ -0,0 +1,121 @@
+package fr.baba.engine.solver;
+
+import fr.baba.utils.Direction;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Result of a search, along with statistics about it.
+ */
+public final class Solution {
+    /**
+     * Outcome of a search.
+     */
+    public enum Status {
+        solved,     // a winning sequence of moves has been found
+        unsolvable, // every reachable state has been explored without winning
+        aborted     // the search stopped after the maximum number of states or frontier memory
+    }
+
+    private final Status status;
+    private final List<Direction> moves;
+    private final long expandedNodes;
+    private final long storedStates;
+    private final long elapsedNanos;
+    private final long tableBytes;
+    private final int peakFrontier;
+    private final int threads;
+
+    /**
+     * @param status outcome of the search
+     * @param moves winning moves, empty if there is none
+     * @param expandedNodes number of states whose moves have been tried
+     * @param storedStates number of distinct states reached
+     * @param elapsedNanos duration of the search
+     * @param tableBytes memory taken by the transposition table
+     * @param peakFrontier maximum number of states waiting to be expanded at once
+     * @param threads number of threads the search has been spread over
+     */
+    Solution(Status status, List<Direction> moves, long expandedNodes, long storedStates, long elapsedNanos, long tableBytes, int peakFrontier, int threads){
+        this.status = Objects.requireNonNull(status);
+        this.moves = List.copyOf(moves);
+        this.expandedNodes = expandedNodes;
+        this.storedStates = storedStates;
+        this.elapsedNanos = elapsedNanos;
+        this.tableBytes = tableBytes;
+        this.peakFrontier = peakFrontier;
+        this.threads = threads;
+    }
+
+    /**
+     * @return outcome of the search
+     */
+    public Status getStatus(){
+        return status;
+    }
+
+    /**
+     * @return the winning moves, empty if the level hasn't been solved
+     */
+    public List<Direction> getMoves(){
+        return moves;
+    }
+
+    /**
+     * @return number of states whose moves have been tried
+     */
+    public long getExpandedNodes(){
+        return expandedNodes;
+    }
+
+    /**
+     * @return number of distinct states reached
+     */
+    public long getStoredStates(){
+        return storedStates;
+    }
+
+    /**
+     * @return duration of the search, in nanoseconds
+     */
+    public long getElapsedNanos(){
+        return elapsedNanos;
+    }
+
+    /**
+     * @return number of states expanded per second
+     */
+    public double getNodesPerSecond(){
+        return elapsedNanos == 0 ? 0 : expandedNodes * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return memory taken by the transposition table, in bytes
+     */
+    public long getTableBytes(){
+        return tableBytes;
+    }
+
+    /**
+     * @return maximum number of states waiting to be expanded at once,
+     * each of them holding the encoding of its objects
+     */
+    public int getPeakFrontier(){
+        return peakFrontier;
+    }
+
+    /**
+     * @return number of threads the search has been spread over
+     */
+    public int getThreads(){
+        return threads;
+    }
+
+    @Override
+    public String toString(){
+        return status + " in " + moves.size() + " moves " + moves
+                + String.format("%n%d nodes expanded, %d states, %.0f nodes/s, %.1f ms on %d thread(s)%n", expandedNodes, storedStates, getNodesPerSecond(), elapsedNanos / 1e6, threads)
+                + String.format("table %d KB, peak frontier %d states", tableBytes / 1024, peakFrontier);
+    }
+}
@@ -0,0 +1,367 @@
+package fr.baba.engine.solver;
+
+import fr.baba.engine.Simulation;
+import fr.baba.engine.board.Board;
+import fr.baba.engine.boardElement.Token;
+import fr.baba.utils.Direction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Looks for the shortest sequence of moves winning a level, by exploring
+ * the states reachable from its board with the engine's own turns.
+ * States already reached are skipped thanks to a transposition table of their
+ * Zobrist hashes (see Board.getStateHash), so states which only differ by the order
+ * of the objects stacked on a square are considered the same, and states in which the level is lost are not explored any further.
+ */
+public final class Solver {
+    /**
+     * Default maximum number of distinct states reached before a search is aborted.
+     */
+    public static final int DEFAULT_MAX_STATES = 1_000_000;
+    /**
+     * Default maximum memory taken by the states waiting to be expanded, in bytes.
+     */
+    public static final long DEFAULT_MAX_FRONTIER_BYTES = 256L << 20;
+    /**
+     * Number of states from which a parallel search splits the expansion of a depth
+     * between several tasks, and minimum number of states expanded by a single task.
+     */
+    public static final int PARALLEL_GRAIN = 32;
+    private static final int STATE_OVERHEAD_BYTES = 64; // memory taken by a waiting state besides its objects
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Order in which the states are explored.
+     */
+    public enum Strategy {
+        bfs,  // breadth-first: the solution found is always a shortest one
+        astar // best-first on moves played + distance from YOU to WIN
+    }
+
+    private final Board board;
+    private final int maxStates;
+    private final long maxFrontierBytes;
+
+    /**
+     * State waiting to be expanded.
+     */
+    private static final class Node {
+        private final int[] state; // see Board.getStateEncoding
+        private final int id;
+        private final int depth;
+        private final int estimate; // depth + heuristic, for A*
+        private final Simulation.Status status;
+
+        private Node(int[] state, int id, int depth, int estimate, Simulation.Status status){
+            this.state = state;
+            this.id = id;
+            this.depth = depth;
+            this.estimate = estimate;
+            this.status = status;
+        }
+    }
+
+    /**
+     * Creates a solver for the level on board, with the default memory caps.
+     * @param board board of the level, which is left untouched
+     */
+    public Solver(Board board){
+        this(board, DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * Creates a solver for the level on board, with the default maximum frontier memory.
+     * @param board board of the level, which is left untouched
+     * @param maxStates maximum number of distinct states reached before a search is aborted
+     */
+    public Solver(Board board, int maxStates){
+        this(board, maxStates, DEFAULT_MAX_FRONTIER_BYTES);
+    }
+
+    /**
+     * Creates a solver for the level on board.
+     * A search takes about 16 bytes per distinct state reached for its transposition table,
+     * plus the memory of the states waiting to be expanded: both are capped, a search
+     * reaching either cap being aborted.
+     * @param board board of the level, which is left untouched
+     * @param maxStates maximum number of distinct states reached before a search is aborted
+     * @param maxFrontierBytes maximum memory taken by the states waiting to be expanded
+     *                         before a search is aborted, in bytes
+     */
+    public Solver(Board board, int maxStates, long maxFrontierBytes){
+        if(maxStates <= 0 || maxFrontierBytes <= 0)
+            throw new IllegalArgumentException("maximum number of states and frontier memory have to be positive");
+        this.board = Objects.requireNonNull(board);
+        this.maxStates = maxStates;
+        this.maxFrontierBytes = maxFrontierBytes;
+    }
+
+    /**
+     * @param state encoding of a state, see Board.getStateEncoding
+     * @return the memory taken by the state while it waits to be expanded, in bytes
+     */
+    private static long frontierBytes(int[] state){
+        return STATE_OVERHEAD_BYTES + 4L * state.length;
+    }
+
+    /**
+     * Looks for a sequence of moves winning the level.
+     * With bfs, the sequence found is a shortest one. A* usually expands far fewer
+     * states, but as rules can be rewritten (making something else WIN or YOU),
+     * the distance from YOU to WIN may overestimate, so its solution may be longer.
+     * @param strategy order in which the states are explored
+     * @return the solution, with statistics about the search
+     */
+    public Solution solve(Strategy strategy){
+        Objects.requireNonNull(strategy);
+        long start = System.nanoTime();
+        var table = new TranspositionTable();
+        var parents = new int[64];
+        var moves = new byte[64];
+        int nodes = 0;
+        long expanded = 0;
+        int peakFrontier = 0;
+        long frontierBytes = 0;
+        Queue<Node> frontier = strategy == Strategy.astar
+                ? new PriorityQueue<>(Comparator.<Node>comparingInt(node -> node.estimate).thenComparingInt(node -> node.id))
+                : new ArrayDeque<>();
+
+        var codec = new StateCodec(board);
+        var root = board.copy();
+        var status = new Simulation(root).getStatus();
+        var rootState = root.getStateEncoding();
+        table.add(root.getStateHash());
+        parents[nodes++] = -1;
+        frontier.add(new Node(rootState, 0, 0, distanceToWin(root), status));
+        frontierBytes += frontierBytes(rootState);
+        while(!frontier.isEmpty()){
+            var node = frontier.poll();
+            frontierBytes -= frontierBytes(node.state);
+            if(node.status == Simulation.Status.won)
+                return new Solution(Solution.Status.solved, path(node.id, parents, moves), expanded, table.size(), System.nanoTime() - start, table.bytes(), peakFrontier, 1);
+            if(node.status == Simulation.Status.lost)
+                continue;
+            if(table.size() >= maxStates || frontierBytes > maxFrontierBytes)
+                return new Solution(Solution.Status.aborted, List.of(), expanded, table.size(), System.nanoTime() - start, table.bytes(), peakFrontier, 1);
+            expanded++;
+            var expandedBoard = codec.decode(node.state);
+            for(var direction : DIRECTIONS){
+                var child = expandedBoard.copy();
+                var childStatus = new Simulation(child).step(direction).getStatus();
+                if(!table.add(child.getStateHash()))
+                    continue;
+                var childState = child.getStateEncoding();
+                if(nodes == parents.length){
+                    parents = Arrays.copyOf(parents, nodes * 2);
+                    moves = Arrays.copyOf(moves, nodes * 2);
+                }
+                parents[nodes] = node.id;
+                moves[nodes] = (byte) direction.ordinal();
+                int estimate = strategy == Strategy.astar ? node.depth + 1 + distanceToWin(child) : 0;
+                frontier.add(new Node(childState, nodes++, node.depth + 1, estimate, childStatus));
+                frontierBytes += frontierBytes(childState);
+            }
+            peakFrontier = Math.max(peakFrontier, frontier.size());
+        }
+        return new Solution(Solution.Status.unsolvable, List.of(), expanded, table.size(), System.nanoTime() - start, table.bytes(), peakFrontier, 1);
+    }
+
+    /**
+     * Looks for a shortest sequence of moves winning the level, breadth-first like bfs,
+     * expanding the states of each depth in parallel on pool.
+     * Every task decodes and plays its own boards, each with its own rules, and all
+     * the tasks share a lock-free transposition table allocated once for maxStates.
+     * When a state is reached from several states at once, which of them gets it is not
+     * determined: the moves found may differ from one search to another, but not their number.
+     * @param pool pool on which the states are expanded
+     * @return the solution, with statistics about the search
+     */
+    public Solution solveInParallel(ForkJoinPool pool){
+        Objects.requireNonNull(pool);
+        long start = System.nanoTime();
+        var table = new ConcurrentTranspositionTable(maxStates);
+        var codec = new StateCodec(board);
+        var root = board.copy();
+        var layer = new Layer();
+        table.add(root.getStateHash());
+        layer.add(root.getStateEncoding(), -1, 0, new Simulation(root).getStatus());
+        var layers = new ArrayList<Layer>();
+        layers.add(layer);
+        long expanded = 0;
+        int peakFrontier = layer.size;
+        var frontierBytes = new AtomicLong(layer.bytes);
+        while(layer.won == -1 && layer.size != 0){
+            if(frontierBytes.get() > maxFrontierBytes)
+                return new Solution(Solution.Status.aborted, List.of(), expanded, table.size(), System.nanoTime() - start, table.bytes(), peakFrontier, pool.getParallelism());
+            var next = pool.invoke(new ExpandTask(codec, table, frontierBytes, maxFrontierBytes, layer, 0, layer.size));
+            expanded += layer.size;
+            frontierBytes.addAndGet(-layer.bytes);
+            layer.states = null; // only the way back to the initial state is kept
+            layer = next;
+            layers.add(layer);
+            peakFrontier = Math.max(peakFrontier, layer.size);
+            if((layer.truncated || table.isFull()) && layer.won == -1)
+                return new Solution(Solution.Status.aborted, List.of(), expanded, table.size(), System.nanoTime() - start, table.bytes(), peakFrontier, pool.getParallelism());
+        }
+        if(layer.won == -1)
+            return new Solution(Solution.Status.unsolvable, List.of(), expanded, table.size(), System.nanoTime() - start, table.bytes(), peakFrontier, pool.getParallelism());
+        var path = new ArrayList<Direction>();
+        for(int depth = layers.size() - 1, index = layer.won; depth != 0; index = layers.get(depth--).parents[index]){
+            path.add(DIRECTIONS[layers.get(depth).moves[index]]);
+        }
+        Collections.reverse(path);
+        return new Solution(Solution.Status.solved, path, expanded, table.size(), System.nanoTime() - start, table.bytes(), peakFrontier, pool.getParallelism());
+    }
+
+    /**
+     * States of a depth of a parallel search which are neither lost nor already reached,
+     * in the order of the states they have been reached from.
+     */
+    private static final class Layer {
+        private int[][] states = new int[8][]; // see Board.getStateEncoding
+        private int[] parents = new int[8]; // index of the state each state has been reached from, in the previous layer
+        private byte[] moves = new byte[8]; // direction of the move which led to each state
+        private int size;
+        private int won = -1; // index of the first won state, -1 if there is none
+        private long bytes; // memory taken by the states, see frontierBytes
+        private boolean truncated; // whether some states of the previous layer have not been expanded
+
+        private void add(int[] state, int parent, int move, Simulation.Status status){
+            if(status == Simulation.Status.lost)
+                return;
+            if(size == states.length){
+                states = Arrays.copyOf(states, size * 2);
+                parents = Arrays.copyOf(parents, size * 2);
+                moves = Arrays.copyOf(moves, size * 2);
+            }
+            if(won == -1 && status == Simulation.Status.won)
+                won = size;
+            states[size] = state;
+            parents[size] = parent;
+            moves[size] = (byte) move;
+            bytes += frontierBytes(state);
+            size++;
+        }
+
+        private void addAll(Layer other){
+            if(won == -1 && other.won != -1)
+                won = size + other.won;
+            if(size + other.size > states.length){
+                int capacity = Math.max(size + other.size, states.length * 2);
+                states = Arrays.copyOf(states, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                moves = Arrays.copyOf(moves, capacity);
+            }
+            System.arraycopy(other.states, 0, states, size, other.size);
+            System.arraycopy(other.parents, 0, parents, size, other.size);
+            System.arraycopy(other.moves, 0, moves, size, other.size);
+            size += other.size;
+            bytes += other.bytes;
+            truncated |= other.truncated;
+        }
+    }
+
+    /**
+     * Expands a range of the states of a layer, splitting it into halves
+     * while it is large enough. States are not expanded any more once
+     * the frontier takes more than its maximum memory.
+     */
+    private static final class ExpandTask extends RecursiveTask<Layer> {
+        private static final long serialVersionUID = 1L;
+
+        private final StateCodec codec;
+        private final ConcurrentTranspositionTable table;
+        private final AtomicLong frontierBytes;
+        private final long maxFrontierBytes;
+        private final Layer layer;
+        private final int from;
+        private final int to;
+
+        private ExpandTask(StateCodec codec, ConcurrentTranspositionTable table, AtomicLong frontierBytes, long maxFrontierBytes, Layer layer, int from, int to){
+            this.codec = codec;
+            this.table = table;
+            this.frontierBytes = frontierBytes;
+            this.maxFrontierBytes = maxFrontierBytes;
+            this.layer = layer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Layer compute(){
+            if(to - from >= 2 * PARALLEL_GRAIN){
+                int middle = (from + to) >>> 1;
+                var right = new ExpandTask(codec, table, frontierBytes, maxFrontierBytes, layer, middle, to);
+                right.fork();
+                var next = new ExpandTask(codec, table, frontierBytes, maxFrontierBytes, layer, from, middle).compute();
+                next.addAll(right.join());
+                return next;
+            }
+            var next = new Layer();
+            for(int i = from; i != to; i++){
+                if(frontierBytes.get() > maxFrontierBytes){
+                    next.truncated = true;
+                    break;
+                }
+                var expandedBoard = codec.decode(layer.states[i]);
+                long bytes = next.bytes;
+                for(var direction : DIRECTIONS){
+                    var child = expandedBoard.copy();
+                    var childStatus = new Simulation(child).step(direction).getStatus();
+                    if(table.add(child.getStateHash()))
+                        next.add(child.getStateEncoding(), i, direction.ordinal(), childStatus);
+                }
+                frontierBytes.addAndGet(next.bytes - bytes);
+            }
+            return next;
+        }
+    }
+
+    /**
+     * @param id id of a state
+     * @param parents id of the state each state has been reached from, by id
+     * @param moves direction of the move which led to each state, by id
+     * @return the moves leading from the initial state to the state
+     */
+    private static List<Direction> path(int id, int[] parents, byte[] moves){
+        var path = new ArrayList<Direction>();
+        for(int current = id; parents[current] != -1; current = parents[current]){
+            path.add(DIRECTIONS[moves[current]]);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Computes the smallest Manhattan distance between a YOU square and a WIN square.
+     * @param board a board whose properties have been collected
+     * @return that distance, 0 if there is no YOU or no WIN square
+     */
+    private static int distanceToWin(Board board){
+        var you = board.getSquaresWithProperties(Token.You);
+        var win = board.getSquaresWithProperties(Token.Win);
+        if(you.length == 0 || win.length == 0)
+            return 0;
+        int distance = Integer.MAX_VALUE;
+        for(var youSquare : you){
+            for(var winSquare : win){
+                distance = Math.min(distance,
+                        Math.abs(board.getColOfSquare(youSquare) - board.getColOfSquare(winSquare))
+                        + Math.abs(board.getRowOfSquare(youSquare) - board.getRowOfSquare(winSquare)));
+            }
+        }
+        return distance;
+    }
+}
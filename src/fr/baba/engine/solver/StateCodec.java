@@ -0,0 +1,34 @@
+package fr.baba.engine.solver;
+
+import fr.baba.engine.board.Board;
+/**
+ * Decodes the states of the boards of a search, encoded by Board.getStateEncoding
+ * (one int per object), so that the states waiting to be explored don't each hold a whole board.
+ * Decoding gives a new board on which the game goes on exactly as on the encoded one:
+ * its rules are read again, and all its squares are checked once for interactions.
+ * A codec is only read once created, so it can decode states on several threads at once.
+ */
+final class StateCodec {
+    private final int numberOfCol;
+    private final int numberOfRow;
+
+    /**
+     * @param board board of the level being searched
+     */
+    StateCodec(Board board){
+        if(!board.isStateEncodable())
+            throw new IllegalArgumentException("board is too large to be searched");
+        this.numberOfCol = board.getNumberOfCol();
+        this.numberOfRow = board.getNumberOfRow();
+    }
+
+    /**
+     * @param state encoding of the objects of a board
+     * @return a new board holding those objects
+     */
+    Board decode(int[] state){
+        var board = new Board(numberOfCol, numberOfRow);
+        board.restoreState(state);
+        return board;
+    }
+}
@@ -0,0 +1,75 @@
+package fr.baba.engine.solver;
+
+/**
+ * Set of the states already reached by a search, each state being stored
+ * as its 64 bits fingerprint only, in an open addressing hash table.
+ * A state thus costs 8 bytes (16 at most, with the table's load factor).
+ * Two different states sharing a fingerprint would be taken for one another,
+ * which is unlikely enough with well mixed 64 bits fingerprints.
+ */
+final class TranspositionTable {
+    private static final int INITIAL_CAPACITY = 1 << 10; // has to be a power of 2
+    private static final long EMPTY = 0;
+
+    private long[] fingerprints = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds a state to the table.
+     * @param fingerprint fingerprint of the state
+     * @return false if the state was already in the table
+     */
+    boolean add(long fingerprint){
+        if(fingerprint == EMPTY)
+            fingerprint = 1; // EMPTY marks free slots
+        if(2 * (size + 1) > fingerprints.length)
+            grow();
+        if(!insert(fingerprints, fingerprint))
+            return false;
+        size++;
+        return true;
+    }
+
+    /**
+     * @param table slots of a table
+     * @param fingerprint fingerprint to be inserted
+     * @return false if the fingerprint was already in the table
+     */
+    private static boolean insert(long[] table, long fingerprint){
+        int mask = table.length - 1;
+        for(int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask; ; slot = (slot + 1) & mask){
+            if(table[slot] == fingerprint)
+                return false;
+            if(table[slot] == EMPTY){
+                table[slot] = fingerprint;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Doubles the number of slots of the table.
+     */
+    private void grow(){
+        var table = new long[fingerprints.length * 2];
+        for(var fingerprint : fingerprints){
+            if(fingerprint != EMPTY)
+                insert(table, fingerprint);
+        }
+        fingerprints = table;
+    }
+
+    /**
+     * @return the number of states in the table
+     */
+    int size(){
+        return size;
+    }
+
+    /**
+     * @return the memory taken by the table, in bytes
+     */
+    long bytes(){
+        return 8L * fingerprints.length;
+    }
+}
@@ -0,0 +1,217 @@
+package fr.baba.server;
+
+import fr.baba.engine.LevelCache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server hosting many games at once, without any display: each client connected
+ * to its local TCP port plays its own session, run by its own thread.
+ * The protocol is made of lines of text (UTF-8, ended by '\n'). Commands are:
+ * - LOAD level : loads a level of the levels directory, answered by "LEVEL cols rows"
+ *   then the whole board, as a delta of all the squares used;
+ * - MOVE north|east|south|west : plays a turn, answered by the delta of the turn;
+ * - UNDO, REDO : undoes or redoes a turn, answered by the delta of the change;
+ * - STATS : answered by "STATS turn n bytes n sessions n", bytes being an estimate
+ *   of the memory taken by the board of the session and its history;
+ * - QUIT : answered by "BYE", then the connection is closed.
+ * A delta is a "DELTA turn status count" line (status being won, lost or continuing),
+ * followed by one "SQUARE col row token..." line for each of the count squares which
+ * have changed, listing the tokens of their objects from the bottom up.
+ * Errors are answered by an "ERROR message" line.
+ */
+public final class GameServer implements Closeable {
+    public static final int DEFAULT_MAX_SESSIONS = 10_000;
+    public static final long DEFAULT_MAX_SESSION_BYTES = 16L << 20;
+    private static final int IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+    private static final long MIN_ACCEPT_BACKOFF_MILLIS = 10;
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000;
+
+    private final Path levelsDirectory;
+    private final int maxSessions;
+    private final long maxSessionBytes;
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessionThreads;
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final LevelCache levelCache = new LevelCache(LevelCache.DEFAULT_MAX_BYTES); // shared by the sessions
+    private final Thread acceptThread;
+
+    /**
+     * Starts a server on the loopback interface, with the default limits.
+     * @param levelsDirectory directory containing the levels the clients can load
+     * @param port port to listen to, 0 for any free port
+     * @throws IOException if the port couldn't be opened
+     */
+    public GameServer(Path levelsDirectory, int port) throws IOException {
+        this(levelsDirectory, port, DEFAULT_MAX_SESSIONS, DEFAULT_MAX_SESSION_BYTES);
+    }
+
+    /**
+     * Starts a server on the loopback interface.
+     * @param levelsDirectory directory containing the levels the clients can load
+     * @param port port to listen to, 0 for any free port
+     * @param maxSessions maximum number of sessions at once, clients beyond it being turned away
+     * @param maxSessionBytes maximum memory taken by a session (see STATS) before it is closed
+     * @throws IOException if the port couldn't be opened
+     */
+    public GameServer(Path levelsDirectory, int port, int maxSessions, long maxSessionBytes) throws IOException {
+        Objects.requireNonNull(levelsDirectory);
+        if(maxSessions <= 0 || maxSessionBytes <= 0)
+            throw new IllegalArgumentException("maximum number of sessions and session memory have to be positive");
+        this.levelsDirectory = levelsDirectory.toRealPath();
+        this.maxSessions = maxSessions;
+        this.maxSessionBytes = maxSessionBytes;
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.sessionThreads = Executors.newCachedThreadPool(runnable -> {
+            var thread = new Thread(runnable, "session");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.acceptThread = new Thread(this::acceptClients, "server");
+        acceptThread.start();
+    }
+
+    /**
+     * @return the port the server listens to
+     */
+    public int getPort(){
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the number of sessions currently open
+     */
+    public int getSessionCount(){
+        return sessions.size();
+    }
+
+    /**
+     * @return an estimate of the memory taken by all the sessions, in bytes
+     */
+    public long getMemoryFootprint(){
+        return sessions.stream().mapToLong(Session::getMemoryFootprint).sum();
+    }
+
+    /**
+     * @return maximum memory taken by a session before it is closed, in bytes
+     */
+    long getMaxSessionBytes(){
+        return maxSessionBytes;
+    }
+
+    /**
+     * @return the cache of the levels loaded by the sessions
+     */
+    LevelCache getLevelCache(){
+        return levelCache;
+    }
+
+    /**
+     * Accepts clients until the server is closed, starting a session for each of them.
+     * After a failed accept, such as when no file descriptor is left, the next one
+     * is delayed, twice as long as the previous one while they keep failing.
+     */
+    private void acceptClients(){
+        long backoffMillis = 0;
+        while(!serverSocket.isClosed()){
+            Socket socket;
+            try{
+                socket = serverSocket.accept();
+                backoffMillis = 0;
+            }catch (IOException e){
+                if(serverSocket.isClosed())
+                    return;
+                backoffMillis = Math.min(Math.max(backoffMillis * 2, MIN_ACCEPT_BACKOFF_MILLIS), MAX_ACCEPT_BACKOFF_MILLIS);
+                try{
+                    Thread.sleep(backoffMillis);
+                }catch (InterruptedException interrupted){
+                    return;
+                }
+                continue;
+            }
+            try{
+                socket.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+                socket.setTcpNoDelay(true);
+                if(sessions.size() >= maxSessions){
+                    turnAway(socket);
+                    continue;
+                }
+                var session = new Session(this, socket);
+                sessions.add(session);
+                sessionThreads.execute(session);
+            }catch (IOException | RuntimeException e){
+                turnAway(socket);
+            }
+        }
+    }
+
+    /**
+     * Tells a client that the server is full, and disconnects it.
+     * @param socket connection to the client
+     */
+    private static void turnAway(Socket socket){
+        try(socket; OutputStream output = socket.getOutputStream()){
+            output.write("ERROR server full\n".getBytes(StandardCharsets.UTF_8));
+        }catch (IOException e){
+            // the client is gone anyway
+        }
+    }
+
+    /**
+     * Forgets a session which is over.
+     * @param session session to be forgotten
+     */
+    void remove(Session session){
+        sessions.remove(session);
+    }
+
+    /**
+     * Finds a level of the levels directory.
+     * @param name name of the level file, relative to the levels directory
+     * @return the path of the level file, null if there is no such level in the levels directory
+     */
+    Path resolveLevel(String name){
+        if(name.isEmpty())
+            return null;
+        try{
+            var path = levelsDirectory.resolve(name).toRealPath();
+            return path.startsWith(levelsDirectory) && Files.isRegularFile(path) ? path : null;
+        }catch (IOException | RuntimeException e){
+            return null;
+        }
+    }
+
+    /**
+     * Stops accepting clients, and closes the sessions still open: their connections
+     * are closed, which ends the threads waiting for their commands.
+     * @throws IOException if the port couldn't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        try{
+            acceptThread.join();
+            for(var session : sessions){
+                session.close();
+            }
+            sessionThreads.shutdown();
+            sessionThreads.awaitTermination(1, TimeUnit.SECONDS);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
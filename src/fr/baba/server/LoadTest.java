@@ -0,0 +1,234 @@
+package fr.baba.server;
+
+import fr.baba.utils.Direction;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures how many sessions a GameServer sustains: a server is started on a free port,
+ * then as many clients as sessions connect to it at once, each one playing random moves
+ * on the same level (loading it again whenever it is over), and measuring the time taken
+ * by the server to answer each move.
+ */
+public final class LoadTest {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int sessions;
+    private final int cores;
+    private final long turns;
+    private final long errors;
+    private final long elapsedNanos;
+    private final long[] latencies; // of every move, in nanoseconds, sorted
+    private final long sessionBytes; // total over the sessions, at the end of the test
+
+    private LoadTest(int sessions, long turns, long errors, long elapsedNanos, long[] latencies, long sessionBytes){
+        this.sessions = sessions;
+        this.cores = Runtime.getRuntime().availableProcessors();
+        this.turns = turns;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+        this.sessionBytes = sessionBytes;
+    }
+
+    /**
+     * Runs a load test.
+     * @param levelsDirectory directory containing the level
+     * @param level name of the level file, in levelsDirectory
+     * @param sessions number of sessions played at once
+     * @param turnsPerSession number of moves played by each session
+     * @return the results of the test
+     * @throws IOException if the server couldn't be started
+     */
+    public static LoadTest run(Path levelsDirectory, String level, int sessions, int turnsPerSession) throws IOException {
+        Objects.requireNonNull(levelsDirectory);
+        Objects.requireNonNull(level);
+        if(sessions <= 0 || turnsPerSession <= 0)
+            throw new IllegalArgumentException("number of sessions and turns have to be positive");
+        try(var server = new GameServer(levelsDirectory, 0, sessions, GameServer.DEFAULT_MAX_SESSION_BYTES)){
+            var clients = Executors.newFixedThreadPool(sessions);
+            try{
+                var results = new ArrayList<Future<Client>>();
+                long start = System.nanoTime();
+                for(int i = 0; i != sessions; i++){
+                    var client = new Client(server.getPort(), level, turnsPerSession, new Random(i));
+                    results.add(clients.submit(() -> {
+                        client.play();
+                        return client;
+                    }));
+                }
+                var latencies = new long[sessions * turnsPerSession];
+                long errors = 0;
+                long sessionBytes = 0;
+                int turns = 0;
+                for(var result : results){
+                    var client = result.get();
+                    System.arraycopy(client.latencies, 0, latencies, turns, client.turns);
+                    turns += client.turns;
+                    errors += client.errors;
+                    sessionBytes += client.sessionBytes;
+                }
+                long elapsedNanos = System.nanoTime() - start;
+                latencies = Arrays.copyOf(latencies, turns);
+                Arrays.sort(latencies);
+                return new LoadTest(sessions, turns, errors, elapsedNanos, latencies, sessionBytes);
+            }catch (ExecutionException e){
+                throw new IOException("a client has failed", e.getCause());
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new IOException("load test interrupted", e);
+            }finally{
+                clients.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Player connected to the server, measuring the latency of its moves.
+     */
+    private static final class Client {
+        private final int port;
+        private final String level;
+        private final Random random;
+        private final long[] latencies;
+        private int turns;
+        private int errors;
+        private long sessionBytes;
+
+        private Client(int port, String level, int maxTurns, Random random){
+            this.port = port;
+            this.level = level;
+            this.random = random;
+            this.latencies = new long[maxTurns];
+        }
+
+        /**
+         * Plays every move of the client, then reads the memory taken by its session.
+         * @throws IOException if the connection has failed
+         */
+        private void play() throws IOException {
+            try(var socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                var input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                var output = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)){
+                socket.setTcpNoDelay(true);
+                send(output, "LOAD " + level);
+                expect(input, "LEVEL");
+                var over = readDelta(input);
+                while(turns != latencies.length){
+                    if(over){
+                        send(output, "LOAD " + level);
+                        expect(input, "LEVEL");
+                        over = readDelta(input);
+                        continue;
+                    }
+                    long start = System.nanoTime();
+                    send(output, "MOVE " + DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+                    over = readDelta(input);
+                    latencies[turns++] = System.nanoTime() - start;
+                }
+                send(output, "STATS");
+                var stats = expect(input, "STATS").split(" ");
+                sessionBytes = Long.parseLong(stats[4]);
+                send(output, "QUIT");
+                expect(input, "BYE");
+            }
+        }
+
+        /**
+         * @param output output to the server
+         * @param command command sent to the server
+         * @throws IOException if the command couldn't be sent
+         */
+        private static void send(Writer output, String command) throws IOException {
+            output.write(command);
+            output.write('\n');
+            output.flush();
+        }
+
+        /**
+         * @param input input from the server
+         * @param answer expected first word of the answer
+         * @return the answer
+         * @throws IOException if the server has answered anything else
+         */
+        private static String expect(BufferedReader input, String answer) throws IOException {
+            var line = input.readLine();
+            if(line == null || !line.startsWith(answer))
+                throw new IOException("unexpected answer " + line);
+            return line;
+        }
+
+        /**
+         * Reads a delta, or an error.
+         * @param input input from the server
+         * @return whether the level is over
+         * @throws IOException if the server has answered anything else
+         */
+        private boolean readDelta(BufferedReader input) throws IOException {
+            var line = input.readLine();
+            if(line != null && line.startsWith("ERROR")){
+                errors++;
+                return true;
+            }
+            if(line == null || !line.startsWith("DELTA"))
+                throw new IOException("unexpected answer " + line);
+            var words = line.split(" ");
+            for(int count = Integer.parseInt(words[3]); count != 0; count--){
+                expect(input, "SQUARE");
+            }
+            return !words[2].equals("continuing");
+        }
+    }
+
+    /**
+     * @param quantile a quantile, between 0 and 1
+     * @return the latency of a move at that quantile, in nanoseconds
+     */
+    public long latencyAt(double quantile){
+        if(latencies.length == 0)
+            return 0;
+        int rank = (int) Math.ceil(quantile * latencies.length) - 1;
+        return latencies[Math.max(0, Math.min(latencies.length - 1, rank))];
+    }
+
+    /**
+     * @return the number of moves played per second, over all the sessions
+     */
+    public double getTurnsPerSecond(){
+        return turns * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return the mean memory taken by a session at the end of the test, in bytes
+     */
+    public long getMeanSessionBytes(){
+        return sessionBytes / sessions;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("sessions %d on %d cores (%.1f sessions/core), %d turns in %.1f ms, %d errors%n"
+                        + "throughput %.0f turns/s (%.0f turns/s/core)%n"
+                        + "latency p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms%n"
+                        + "memory %d bytes/session",
+                sessions, cores, (double) sessions / cores, turns, elapsedNanos / 1e6, errors,
+                getTurnsPerSecond(), getTurnsPerSecond() / cores,
+                latencyAt(0.5) / 1e6, latencyAt(0.9) / 1e6, latencyAt(0.99) / 1e6, latencyAt(1) / 1e6,
+                getMeanSessionBytes());
+    }
+}
@@ -0,0 +1,225 @@
+package fr.baba.server;
+
+import fr.baba.engine.Simulation;
+import fr.baba.engine.board.Board;
+import fr.baba.engine.board.BoardHistory;
+import fr.baba.engine.board.SquareSet;
+import fr.baba.utils.Direction;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Game played by one client of a GameServer, on its own board, see GameServer for the protocol.
+ * A session is run by a single thread, from the connection of its client to its disconnection.
+ */
+final class Session implements Runnable {
+    private static final int MAX_LINE_LENGTH = 256;
+
+    private final GameServer server;
+    private final Socket socket;
+    private Board board; // null until a level is loaded
+    private BoardHistory history;
+    private Simulation simulation;
+    private Simulation.Status status; // outcome of the last turn, or of the board as it is after a load, an undo or a redo
+    private volatile long memoryFootprint;
+
+    /**
+     * @param server server the client is connected to
+     * @param socket connection to the client
+     */
+    Session(GameServer server, Socket socket){
+        this.server = Objects.requireNonNull(server);
+        this.socket = Objects.requireNonNull(socket);
+    }
+
+    /**
+     * @return an estimate of the memory taken by the board of the session and its history, in bytes
+     */
+    long getMemoryFootprint(){
+        return memoryFootprint;
+    }
+
+    /**
+     * Answers the commands of the client until it quits or disconnects.
+     */
+    @Override
+    public void run(){
+        try(socket;
+            var input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            var output = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))){
+            String line;
+            while((line = readLine(input)) != null){
+                if(!answer(line.strip(), output))
+                    break;
+                output.flush();
+                if(memoryFootprint > server.getMaxSessionBytes()){
+                    output.write("ERROR session memory limit exceeded\n");
+                    break;
+                }
+            }
+            output.flush();
+        }catch (IOException e){
+            // the client is gone: the session ends
+        }finally{
+            server.remove(this);
+        }
+    }
+
+    /**
+     * Closes the connection to the client, which ends the session.
+     */
+    void close(){
+        try{
+            socket.close();
+        }catch (IOException e){
+            // the client is gone anyway
+        }
+    }
+
+    /**
+     * @param input input of the client
+     * @return the next line sent by the client, null if it has disconnected
+     * @throws IOException if the line is too long or couldn't be read
+     */
+    private static String readLine(Reader input) throws IOException {
+        var line = new StringBuilder();
+        int c;
+        while((c = input.read()) != '\n'){
+            if(c == -1)
+                return line.length() == 0 ? null : line.toString();
+            if(line.length() == MAX_LINE_LENGTH)
+                throw new IOException("line too long");
+            line.append((char) c);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Executes a command of the client and writes the answer.
+     * @param command line sent by the client
+     * @param output output to the client
+     * @return false if the session is over
+     * @throws IOException if the answer couldn't be written
+     */
+    private boolean answer(String command, Writer output) throws IOException {
+        var words = command.split(" +", 2);
+        var argument = words.length == 2 ? words[1] : "";
+        switch (words[0].toUpperCase(Locale.ROOT)) {
+            case "LOAD" -> load(argument, output);
+            case "MOVE" -> move(argument, output);
+            case "UNDO", "REDO" -> {
+                if(board == null){
+                    output.write("ERROR no level loaded\n");
+                    return true;
+                }
+                if(words[0].equalsIgnoreCase("UNDO"))
+                    history.undo();
+                else
+                    history.redo();
+                status = simulation.getStatus();
+                writeDelta(board.takeChangedSquares(), status, output);
+            }
+            case "STATS" -> output.write("STATS turn " + (history == null ? 0 : history.getTurnNumber())
+                    + " bytes " + memoryFootprint + " sessions " + server.getSessionCount() + "\n");
+            case "QUIT" -> {
+                output.write("BYE\n");
+                return false;
+            }
+            default -> output.write("ERROR unknown command\n");
+        }
+        return true;
+    }
+
+    /**
+     * Loads a level of the server, replacing the current one if any, and sends the whole board.
+     * @param level name of the level file, in the levels directory of the server
+     * @param output output to the client
+     * @throws IOException if the answer couldn't be written
+     */
+    private void load(String level, Writer output) throws IOException {
+        Path path = server.resolveLevel(level);
+        if(path == null){
+            output.write("ERROR unknown level\n");
+            return;
+        }
+        try{
+            simulation = new Simulation(server.getLevelCache().load(path.toString()));
+        }catch (IOException | RuntimeException e){
+            output.write("ERROR level can't be loaded\n");
+            return;
+        }
+        board = simulation.getBoard();
+        history = new BoardHistory(board);
+        board.takeChangedSquares();
+        var squares = new SquareSet();
+        for(int square = board.nextUsedSquare(0); square != -1; square = board.nextUsedSquare(square + 1)){
+            squares.set(square);
+        }
+        output.write("LEVEL " + board.getNumberOfCol() + " " + board.getNumberOfRow() + "\n");
+        status = simulation.getStatus();
+        writeDelta(squares, status, output);
+    }
+
+    /**
+     * Plays one turn and sends the squares it has changed.
+     * @param argument name of the direction of the move
+     * @param output output to the client
+     * @throws IOException if the answer couldn't be written
+     */
+    private void move(String argument, Writer output) throws IOException {
+        if(board == null){
+            output.write("ERROR no level loaded\n");
+            return;
+        }
+        Direction direction;
+        try{
+            direction = Direction.valueOf(argument.toLowerCase(Locale.ROOT));
+        }catch (IllegalArgumentException e){
+            output.write("ERROR unknown direction\n");
+            return;
+        }
+        if(status != Simulation.Status.continuing){
+            output.write("ERROR level is over\n");
+            return;
+        }
+        var outcome = simulation.step(direction);
+        history.endTurn();
+        status = outcome.getStatus();
+        writeDelta(outcome.getChangedSquares(), status, output);
+    }
+
+    /**
+     * Sends the content of squares: a "DELTA turn status count" line, then one
+     * "SQUARE col row token..." line per square, listing its objects from the bottom up.
+     * @param squares squares to be sent
+     * @param status outcome of the board
+     * @param output output to the client
+     * @throws IOException if the answer couldn't be written
+     */
+    private void writeDelta(SquareSet squares, Simulation.Status status, Writer output) throws IOException {
+        memoryFootprint = board.getMemoryFootprint() + history.getMemoryFootprint();
+        var delta = new StringBuilder("DELTA ").append(history.getTurnNumber()).append(' ').append(status)
+                .append(' ').append(squares.size()).append('\n');
+        for(int square = squares.nextSetBit(0); square != -1; square = squares.nextSetBit(square + 1)){
+            int col = board.getColOfSquare(square);
+            int row = board.getRowOfSquare(square);
+            delta.append("SQUARE ").append(col).append(' ').append(row);
+            for(int i = 0; i != board.getSquareSize(col, row); i++){
+                delta.append(' ').append(board.getObjectOnSquare(col, row, i).getToken().name());
+            }
+            delta.append('\n');
+        }
+        output.write(delta.toString());
+    }
+}
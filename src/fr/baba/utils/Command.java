@@ -0,0 +1,51 @@
+package fr.baba.utils;
+
+import java.util.Objects;
+
+
+/**
+ * Enumerates all the commands a player can give during a level
+ */
+public enum Command {
+    north(Direction.north),
+    east(Direction.east),
+    west(Direction.west),
+    south(Direction.south),
+    undo,
+    redo;
+
+    private final Direction direction; // only for moves
+
+    /**
+     * Use this constructor for every command which is not a move.
+     */
+    Command(){
+        this.direction = null;
+    }
+
+    /**
+     * This constructor is exclusive to moves
+     * @param direction where the move is headed
+     */
+    Command(Direction direction){
+        this.direction = Objects.requireNonNull(direction);
+    }
+
+    /**
+     * @return whether the command is a move
+     */
+    public boolean isMove(){
+        return this.direction != null;
+    }
+
+    /**
+     * This function is only to be called on moves !
+     * @return the direction of the move
+     */
+    public Direction getDirection(){
+        if(this.direction == null){
+            throw new IllegalCallerException("Only moves have a direction");
+        }
+        return this.direction;
+    }
+}
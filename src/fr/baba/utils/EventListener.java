@@ -32,4 +32,39 @@ public class EventListener {
             }
         }
     }
+
+    /**
+     * Waits for the next command given by the user, by means of arrow keys
+     * for moves, Z to undo the last move and Y to redo it.
+     * @param context context
+     * @return command given by the user
+     */
+    public static Command nextCommand(ApplicationContext context){
+        while(true){
+            Event event = context.pollOrWaitEvent(10);
+            if (event == null)
+                continue;
+            if(event.getAction() == Event.Action.KEY_PRESSED) {
+                switch (event.getKey()) {
+                    case Q:
+                        context.exit(1);
+                        break;
+                    case UP:
+                        return Command.north;
+                    case DOWN:
+                        return Command.south;
+                    case LEFT:
+                        return Command.west;
+                    case RIGHT:
+                        return Command.east;
+                    case Z:
+                        return Command.undo;
+                    case Y:
+                        return Command.redo;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,75 @@
+package fr.baba;
+
+import java.util.Objects;
+
+/**
+ * Checks made by the tests, throwing an AssertionError when they fail.
+ */
+public final class Assert {
+    private Assert(){}
+
+    /**
+     * Code expected to throw.
+     */
+    @FunctionalInterface
+    public interface ThrowingRunnable {
+        /**
+         * @throws Throwable whatever the code throws
+         */
+        void run() throws Throwable;
+    }
+
+    /**
+     * @param message description of the failed check
+     */
+    public static void fail(String message){
+        throw new AssertionError(message);
+    }
+
+    /**
+     * @param condition condition which has to hold
+     * @param message description of the check
+     */
+    public static void assertTrue(boolean condition, String message){
+        if(!condition)
+            throw new AssertionError(message);
+    }
+
+    /**
+     * @param expected expected value
+     * @param actual actual value
+     * @param message description of the check
+     */
+    public static void assertEquals(Object expected, Object actual, String message){
+        if(!Objects.equals(expected, actual))
+            throw new AssertionError(message + " : expected <" + expected + "> but was <" + actual + ">");
+    }
+
+    /**
+     * @param expected expected value
+     * @param actual actual value
+     * @param message description of the check
+     */
+    public static void assertEquals(long expected, long actual, String message){
+        if(expected != actual)
+            throw new AssertionError(message + " : expected <" + expected + "> but was <" + actual + ">");
+    }
+
+    /**
+     * @param type type of the exception expected
+     * @param code code expected to throw it
+     * @param message description of the check
+     * @param <T> type of the exception
+     * @return the exception thrown
+     */
+    public static <T extends Throwable> T assertThrows(Class<T> type, ThrowingRunnable code, String message){
+        try{
+            code.run();
+        }catch (Throwable e){
+            if(type.isInstance(e))
+                return type.cast(e);
+            throw new AssertionError(message + " : expected " + type.getSimpleName() + " but got " + e, e);
+        }
+        throw new AssertionError(message + " : expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+}
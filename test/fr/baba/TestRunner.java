@@ -0,0 +1,85 @@
+package fr.baba;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the tests of the project without any test library: every public static method
+ * without parameters whose name starts with "test", in every class whose name ends
+ * with "Test" in the directory of the compiled tests. A test fails if it throws.
+ * Tests read the levels relatively to the working directory, the root of the project.
+ */
+public final class TestRunner {
+    private TestRunner(){}
+
+    /**
+     * @param root directory of the compiled tests
+     * @return the names of the test classes, sorted
+     * @throws IOException if the directory couldn't be walked
+     */
+    private static List<String> testClasses(Path root) throws IOException {
+        var separator = root.getFileSystem().getSeparator();
+        try(var paths = Files.walk(root)){
+            return paths.map(path -> root.relativize(path).toString()).
+                    filter(name -> name.endsWith("Test.class") && !name.contains("$")).
+                    map(name -> name.substring(0, name.length() - ".class".length()).replace(separator, ".")).
+                    sorted().
+                    collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @param method a method of a test class
+     * @return whether it is a test
+     */
+    private static boolean isTest(Method method){
+        int modifiers = method.getModifiers();
+        return Modifier.isPublic(modifiers) && Modifier.isStatic(modifiers)
+                && method.getParameterCount() == 0 && method.getName().startsWith("test");
+    }
+
+    /**
+     * Runs the tests, and exits with status 1 if one of them fails.
+     * @param args directory of the compiled tests
+     * @throws IOException if the directory couldn't be walked
+     * @throws ReflectiveOperationException if a test class couldn't be loaded
+     */
+    public static void main(String[] args) throws IOException, ReflectiveOperationException {
+        if(args.length != 1){
+            System.out.println("-- Usage : TestRunner directory-of-the-compiled-tests --");
+            System.exit(2);
+        }
+        int passed = 0;
+        int failed = 0;
+        for(var className : testClasses(Path.of(args[0]))){
+            var methods = Arrays.stream(Class.forName(className).getMethods()).
+                    filter(TestRunner::isTest).
+                    sorted(Comparator.comparing(Method::getName)).
+                    collect(Collectors.toList());
+            for(var method : methods){
+                var name = className + "." + method.getName();
+                long start = System.nanoTime();
+                try{
+                    method.invoke(null);
+                    passed++;
+                    System.out.printf("PASS %s (%.1f ms)%n", name, (System.nanoTime() - start) / 1e6);
+                }catch (InvocationTargetException e){
+                    failed++;
+                    System.out.println("FAIL " + name);
+                    e.getCause().printStackTrace(System.out);
+                }
+            }
+        }
+        System.out.println("-- " + passed + " tests passed, " + failed + " failed. --");
+        if(failed != 0 || passed == 0)
+            System.exit(1);
+    }
+}
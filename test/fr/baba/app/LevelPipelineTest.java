@@ -0,0 +1,170 @@
+package fr.baba.app;
+
+import fr.baba.engine.board.Board;
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertThrows;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks the levels given by a LevelPipeline, the order and the threads they are loaded in,
+ * and the memory the pipeline keeps track of, with a loader recording its calls.
+ */
+public final class LevelPipelineTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+    private static final String BACKGROUND_THREAD = "level prefetch";
+
+    private LevelPipelineTest(){}
+
+    /**
+     * Loader of levels named "cols" (a board of cols x 1 squares holding a BABA),
+     * "io" (an IOException) and "bug" (an IllegalStateException), recording its calls.
+     */
+    private static final class RecordingLoader implements LevelPipeline.BoardLoader {
+        private final List<String> backgroundLoads = new CopyOnWriteArrayList<>(); // files loaded by the background thread, in order
+        private final List<String> directLoads = new CopyOnWriteArrayList<>(); // files loaded by other threads, in order
+        private final ConcurrentHashMap<String, CountDownLatch> gates = new ConcurrentHashMap<>(); // background loads waiting to be released, by file
+
+        @Override
+        public Board load(String file) throws IOException {
+            boolean background = Thread.currentThread().getName().equals(BACKGROUND_THREAD);
+            (background ? backgroundLoads : directLoads).add(file);
+            var gate = gates.get(file);
+            while(background && gate != null && gate.getCount() != 0){
+                try{
+                    gate.await();
+                }catch (InterruptedException e){
+                    // loaders don't have to stop when interrupted: this one goes on waiting
+                }
+            }
+            if(file.equals("io"))
+                throw new IOException("Error : level io can't be read");
+            if(file.equals("bug"))
+                throw new IllegalStateException("bug");
+            var board = new Board(Integer.parseInt(file), 1);
+            board.addObjectToSquare(TileObject.of(Token.sprBaba), 0, 0);
+            return board;
+        }
+    }
+
+    /**
+     * @param condition condition expected to become true
+     * @param message description of the condition
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while(!condition.getAsBoolean() && System.currentTimeMillis() < deadline){
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean(), message);
+    }
+
+    /**
+     * Levels taken in the order of the pipeline are the ones loaded ahead, in that order,
+     * by the background thread, and their memory is released once taken.
+     */
+    public static void testTakeInOrder() throws IOException, InterruptedException {
+        var loader = new RecordingLoader();
+        var files = List.of("2", "3", "4", "5", "6");
+        try(var pipeline = new LevelPipeline(files, loader, 2, Long.MAX_VALUE)){
+            await(() -> loader.backgroundLoads.size() == 2, "two levels loaded ahead");
+            await(() -> pipeline.getPendingBytes() > 0, "memory of the levels loaded ahead");
+            for(var file : files){
+                assertEquals(Integer.parseInt(file), pipeline.take(file).getNumberOfCol(), "level " + file);
+            }
+            assertEquals(files, loader.backgroundLoads, "levels loaded ahead, in order");
+            assertEquals(List.of(), loader.directLoads, "no level loaded by the player");
+            assertEquals(0L, pipeline.getPendingBytes(), "memory once every level is taken");
+        }
+    }
+
+    /**
+     * No level is loaded ahead beyond the memory of the pipeline,
+     * even though its depth would allow several of them.
+     */
+    public static void testMemoryBoundsLevelsLoadedAhead() throws IOException, InterruptedException {
+        var loader = new RecordingLoader();
+        try(var pipeline = new LevelPipeline(List.of("2", "3", "4", "5"), loader, 4, 1)){
+            await(() -> pipeline.getPendingBytes() > 0, "first level loaded ahead");
+            Thread.sleep(100);
+            assertEquals(List.of("2"), loader.backgroundLoads, "a single level loaded ahead");
+            assertEquals(2, pipeline.take("2").getNumberOfCol(), "first level");
+            await(() -> pipeline.getPendingBytes() > 0, "second level loaded ahead");
+            Thread.sleep(100);
+            assertEquals(List.of("2", "3"), loader.backgroundLoads, "a single level loaded ahead once the first one is taken");
+        }
+    }
+
+    /**
+     * A level which isn't the next one of the pipeline is loaded right away, and the pipeline goes on.
+     */
+    public static void testMismatchedFileIsLoadedDirectly() throws IOException, InterruptedException {
+        var loader = new RecordingLoader();
+        try(var pipeline = new LevelPipeline(List.of("2", "3", "4"), loader, 1, Long.MAX_VALUE)){
+            await(() -> loader.backgroundLoads.size() == 1, "first level loaded ahead");
+            assertEquals(7, pipeline.take("7").getNumberOfCol(), "level out of the pipeline");
+            assertEquals(List.of("7"), loader.directLoads, "level loaded by the player");
+            assertEquals(2, pipeline.take("2").getNumberOfCol(), "first level, still loaded ahead");
+            assertEquals(3, pipeline.take("3").getNumberOfCol(), "second level");
+        }
+        var empty = new RecordingLoader();
+        try(var pipeline = new LevelPipeline(List.of("2", "3"), empty, 0, Long.MAX_VALUE)){
+            assertEquals(2, pipeline.take("2").getNumberOfCol(), "level of a pipeline of depth 0");
+            assertEquals(List.of("2"), empty.directLoads, "level loaded by the player");
+            assertEquals(List.of(), empty.backgroundLoads, "no level loaded ahead");
+        }
+    }
+
+    /**
+     * A level which couldn't be loaded in the background fails when it is taken,
+     * with the exception of the loader, and the following levels are still given.
+     */
+    public static void testErrorsArePropagated() throws IOException {
+        var loader = new RecordingLoader();
+        try(var pipeline = new LevelPipeline(List.of("io", "bug", "4"), loader, 3, Long.MAX_VALUE)){
+            var ioException = assertThrows(IOException.class, () -> pipeline.take("io"), "level which can't be read");
+            assertEquals("Error : level io can't be read", ioException.getMessage(), "message of the loader");
+            var bug = assertThrows(IllegalStateException.class, () -> pipeline.take("bug"), "level whose loader fails");
+            assertEquals("bug", bug.getMessage(), "exception of the loader itself");
+            assertEquals(4, pipeline.take("4").getNumberOfCol(), "level following the errors");
+            assertEquals(List.of("io", "bug", "4"), loader.backgroundLoads, "levels loaded ahead");
+            assertEquals(0L, pipeline.getPendingBytes(), "memory once every level is taken");
+        }
+    }
+
+    /**
+     * A player interrupted while waiting for a level gets it anyway, loaded right away,
+     * keeps its interrupt status, and the memory of the level given up is not counted.
+     */
+    public static void testInterruptedTakeReleasesMemory() throws IOException, InterruptedException {
+        var loader = new RecordingLoader();
+        var gate = new CountDownLatch(1);
+        loader.gates.put("2", gate);
+        try(var pipeline = new LevelPipeline(List.of("2", "3"), loader, 1, Long.MAX_VALUE)){
+            await(() -> loader.backgroundLoads.size() == 1, "first level being loaded ahead");
+            Thread.currentThread().interrupt();
+            Board board;
+            try{
+                board = pipeline.take("2");
+            }finally{
+                assertTrue(Thread.interrupted(), "interrupt status kept");
+            }
+            assertEquals(2, board.getNumberOfCol(), "level loaded by the interrupted player");
+            assertEquals(List.of("2"), loader.directLoads, "level loaded by the player");
+            gate.countDown();
+            await(() -> loader.backgroundLoads.size() == 2, "second level loaded ahead once the first one is given up");
+            assertEquals(3, pipeline.take("3").getNumberOfCol(), "second level");
+            assertEquals(0L, pipeline.getPendingBytes(), "memory once every level is taken");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package fr.baba.engine;
+
+import fr.baba.engine.board.Board;
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertThrows;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks that compiled levels load as the boards they have been compiled from,
+ * and that corrupted ones are rejected.
+ */
+public final class CompiledLevelTest {
+    private static final Token[] TOKENS = Token.values();
+
+    private CompiledLevelTest(){}
+
+    /**
+     * @return the paths of the shipped levels
+     * @throws IOException if the levels directory couldn't be listed
+     */
+    static List<Path> shippedLevels() throws IOException {
+        try(var levels = Files.list(Path.of("levels"))){
+            return levels.sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @param expected board expected
+     * @param actual board to be checked
+     * @param message description of the board
+     */
+    static void assertSameLevel(Board expected, Board actual, String message){
+        assertTrue(expected.sameStateAs(actual), message + ", objects");
+        for(int col = 0; col != expected.getNumberOfCol(); col++){
+            for(int row = 0; row != expected.getNumberOfRow(); row++){
+                var background = expected.getBackgroundObjectOnGrid(col, row);
+                var actualBackground = actual.getBackgroundObjectOnGrid(col, row);
+                assertEquals(background == null ? null : background.getToken(), actualBackground == null ? null : actualBackground.getToken(), message + ", background of (" + col + ", " + row + ")");
+            }
+        }
+    }
+
+    /**
+     * Every shipped level, compiled to a file, loads as its text file does.
+     */
+    public static void testShippedLevelsRoundTrip() throws IOException {
+        var directory = Files.createTempDirectory("compiled");
+        try{
+            for(var level : shippedLevels()){
+                var compiled = directory.resolve(level.getFileName() + CompiledLevel.EXTENSION);
+                CompiledLevel.compile(level.toString(), compiled);
+                assertSameLevel(LevelLoader.loadLevel(level.toString()), LevelLoader.loadLevel(compiled.toString()), level.toString());
+                Files.delete(compiled);
+            }
+        }finally{
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Random boards, with stacks and background objects, dense and sparse, load as they have been compiled.
+     */
+    public static void testRandomBoardsRoundTrip(){
+        var random = new Random(22);
+        for(int run = 0; run != 50; run++){
+            var board = new Board(1 + random.nextInt(60), 1 + random.nextInt(40));
+            for(int i = random.nextInt(200); i != 0; i--){
+                int col = random.nextInt(board.getNumberOfCol());
+                int row = random.nextInt(board.getNumberOfRow());
+                if(random.nextInt(4) == 0)
+                    board.setObjectInBackground(TileObject.of(TOKENS[random.nextInt(TOKENS.length)]), col, row);
+                else
+                    board.addObjectToSquare(TileObject.of(TOKENS[random.nextInt(TOKENS.length)]), col, row);
+            }
+            assertSameLevel(board, CompiledLevel.load(ByteBuffer.wrap(CompiledLevel.compile(board))), "run " + run);
+        }
+    }
+
+    /**
+     * A compiled level with any byte changed, dimensions included, or truncated, is rejected.
+     */
+    public static void testCorruptedLevelsAreRejected() throws IOException {
+        var level = shippedLevels().stream().
+                max(Comparator.comparingLong(path -> path.toFile().length())).
+                orElseThrow();
+        var bytes = CompiledLevel.compile(LevelLoader.loadLevel(level.toString()));
+        for(int i = 0; i != bytes.length; i++){
+            var corrupted = bytes.clone();
+            corrupted[i] ^= 0x10;
+            assertThrows(IllegalArgumentException.class, () -> CompiledLevel.load(ByteBuffer.wrap(corrupted)), "byte " + i + " changed");
+        }
+        for(var length : new int[]{bytes.length - 1, bytes.length / 2}){
+            var truncated = ByteBuffer.wrap(bytes, 0, length).slice();
+            assertThrows(RuntimeException.class, () -> CompiledLevel.load(truncated), "truncated to " + length + " bytes");
+        }
+        var file = Files.createTempFile("corrupted", CompiledLevel.EXTENSION);
+        try{
+            bytes[bytes.length - 1] ^= 0x10;
+            Files.write(file, bytes);
+            assertThrows(IOException.class, () -> LevelLoader.loadLevel(file.toString()), "corrupted file");
+            assertTrue(!LevelLoader.findErrors(file.toString()).isEmpty(), "corrupted file reported by the validation");
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package fr.baba.engine;
+
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+import fr.baba.utils.Direction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks that boards served by a LevelCache are fresh copies of the level as its file holds it.
+ */
+public final class LevelCacheTest {
+    private LevelCacheTest(){}
+
+    /**
+     * Loads served from a template are equal to the level read from its file,
+     * and independent of each other.
+     */
+    public static void testHitsAreFreshCopies() throws IOException {
+        var cache = new LevelCache(LevelCache.DEFAULT_MAX_BYTES);
+        for(var level : CompiledLevelTest.shippedLevels()){
+            var expected = LevelLoader.loadLevel(level.toString());
+            var first = cache.load(level.toString());
+            CompiledLevelTest.assertSameLevel(expected, first, level + ", first load");
+            first.addObjectToSquare(TileObject.of(Token.sprRock), 0, 0);
+            new Simulation(first).step(Direction.east);
+            var second = cache.load(level.toString());
+            CompiledLevelTest.assertSameLevel(expected, second, level + ", load after the first board was played");
+        }
+        int levels = CompiledLevelTest.shippedLevels().size();
+        assertEquals(levels, cache.getMisses(), "misses");
+        assertEquals(levels, cache.getHits(), "hits");
+        assertEquals(levels, cache.size(), "levels in the cache");
+    }
+
+    /**
+     * A level whose file has changed is read again.
+     */
+    public static void testChangedFilesAreReadAgain() throws IOException {
+        var levels = CompiledLevelTest.shippedLevels();
+        var file = Files.createTempFile("level", ".txt");
+        try{
+            var cache = new LevelCache(LevelCache.DEFAULT_MAX_BYTES);
+            Files.copy(levels.get(0), file, StandardCopyOption.REPLACE_EXISTING);
+            CompiledLevelTest.assertSameLevel(LevelLoader.loadLevel(levels.get(0).toString()), cache.load(file.toString()), "first level");
+            Files.copy(levels.get(1), file, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10_000));
+            CompiledLevelTest.assertSameLevel(LevelLoader.loadLevel(levels.get(1).toString()), cache.load(file.toString()), "level copied over the first one");
+            assertEquals(2, cache.getMisses(), "misses");
+            assertEquals(1, cache.size(), "levels in the cache");
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * The templates never take more than the maximum memory of the cache.
+     */
+    public static void testTemplatesAreEvicted() throws IOException {
+        var levels = CompiledLevelTest.shippedLevels();
+        long maxBytes = LevelLoader.loadLevel(levels.get(0).toString()).getMemoryFootprint() * 2;
+        var cache = new LevelCache(maxBytes);
+        for(var level : levels){
+            CompiledLevelTest.assertSameLevel(LevelLoader.loadLevel(level.toString()), cache.load(level.toString()), level.toString());
+            assertTrue(cache.getBytes() <= maxBytes, "memory of the templates after loading " + level);
+        }
+        assertTrue(cache.size() < levels.size(), "templates evicted");
+        cache.clear();
+        assertEquals(0, cache.size(), "levels in the cleared cache");
+        assertEquals(0, cache.getBytes(), "memory of the cleared cache");
+    }
+}
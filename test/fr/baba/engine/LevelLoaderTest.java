@@ -0,0 +1,191 @@
+package fr.baba.engine;
+
+import fr.baba.engine.board.Board;
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertThrows;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks the boards read by LevelLoader, and the errors it reports, with their line and column,
+ * on small level files whose content is known.
+ */
+public final class LevelLoaderTest {
+    private LevelLoaderTest(){}
+
+    /**
+     * @param content content of a level file
+     * @return the errors found by findErrors in that file
+     * @throws IOException if the file couldn't be written
+     */
+    private static List<String> errors(byte[] content) throws IOException {
+        var file = Files.createTempFile("level", ".txt");
+        try{
+            Files.write(file, content);
+            return LevelLoader.findErrors(file.toString());
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * @param content content of a level file, as text
+     * @return the errors found by findErrors in that file
+     * @throws IOException if the file couldn't be written
+     */
+    private static List<String> errors(String content) throws IOException {
+        return errors(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param content content of a level file, as text
+     * @return the board loaded from that file
+     * @throws IOException if the file has an error
+     */
+    private static Board load(String content) throws IOException {
+        return LevelLoader.loadLevel("level.txt", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A level with stacked objects, comments, blank lines, separators of several kinds
+     * and both line terminators, read into the board it describes.
+     */
+    public static void testStackedRowsMatchExpectedBoard() throws IOException {
+        var content = "# stacked level\r\n"
+                + "\r\n"
+                + "4 3\r\n"
+                + "sprBaba & sprFlag EMPTY sprRock & sprRock & sprWall\n"
+                + "\tEMPTY  nounBaba & Is EMPTY   You\n"
+                + "# no third row: its squares are empty\n"
+                + "%\n"
+                + "sprGrass EMPTY EMPTY sprTile\n"
+                + "\n"
+                + "EMPTY sprGrass";
+        var expected = new Board(4, 3);
+        expected.addObjectToSquare(TileObject.of(Token.sprBaba), 0, 0);
+        expected.addObjectToSquare(TileObject.of(Token.sprFlag), 0, 0);
+        expected.addObjectToSquare(TileObject.of(Token.sprRock), 2, 0);
+        expected.addObjectToSquare(TileObject.of(Token.sprRock), 2, 0);
+        expected.addObjectToSquare(TileObject.of(Token.sprWall), 2, 0);
+        expected.addObjectToSquare(TileObject.of(Token.nounBaba), 1, 1);
+        expected.addObjectToSquare(TileObject.of(Token.Is), 1, 1);
+        expected.addObjectToSquare(TileObject.of(Token.You), 3, 1);
+        expected.setObjectInBackground(TileObject.of(Token.sprGrass), 0, 0);
+        expected.setObjectInBackground(TileObject.of(Token.sprTile), 3, 0);
+        expected.setObjectInBackground(TileObject.of(Token.sprGrass), 1, 1);
+        assertEquals(List.of(), errors(content), "no error");
+        var board = load(content);
+        CompiledLevelTest.assertSameLevel(expected, board, "stacked level");
+        assertEquals(List.of(Token.sprRock, Token.sprRock, Token.sprWall), List.of(board.getObjectOnSquare(2, 0, 0).getToken(), board.getObjectOnSquare(2, 0, 1).getToken(), board.getObjectOnSquare(2, 0, 2).getToken()), "stack of (2, 0), from the bottom up");
+    }
+
+    /**
+     * Each malformed file is reported by findErrors at the line and column of its error,
+     * and loadLevel stops at its first error, unless it is beyond the board.
+     */
+    public static void testErrorsHaveLineAndColumn() throws IOException {
+        String[][] cases = { // content of the file, then the errors expected
+                {"3 x\nsprBaba", "line 1, column 1 : invalid dimensions \"3 x\""},
+                {"\n  3 2 1\nsprBaba", "line 2, column 3 : invalid dimensions \"3 2 1\""},
+                {"3\nsprBaba", "line 1, column 1 : invalid dimensions \"3\""},
+                {"-3 2\nsprBaba", "line 1, column 1 : invalid dimensions \"-3 2\""},
+                {"99999999999 2\nsprBaba", "line 1, column 1 : invalid dimensions \"99999999999 2\""},
+                {"0 3\nsprBaba", "line 1, column 1 : dimensions have to be positive"},
+                {"3 1\nsprBaba foo EMPTY", "line 2, column 9 : unknown item \"foo\""},
+                {"3 1\nsprbaba Empty", "line 2, column 1 : unknown item \"sprbaba\"", "line 2, column 9 : unknown item \"Empty\""},
+                {"3 1\n& sprBaba", "line 2, column 1 : & has to stack a token on another one"},
+                {"3 1\nsprBaba &", "line 2, column 9 : & has to stack a token on another one"},
+                {"3 1\nsprBaba & & sprRock", "line 2, column 11 : & has to stack a token on another one"},
+                {"3 1\nEMPTY & sprRock", "line 2, column 7 : & has to stack a token on another one"},
+                {"3 1\nsprBaba & EMPTY", "line 2, column 9 : & has to stack a token on another one"},
+                {"2 1\nsprBaba\n%\nsprGrass\n  %", "line 5, column 3 : second % separator"},
+                {"2 1\nsprBaba\n%\n& sprGrass", "line 4, column 1 : unknown background item \"&\""},
+                {"2 1\nsprBaba\nsprRock", "line 3, column 1 : row of objects out of the board"},
+                {"2 1\nsprBaba sprRock sprWall", "line 2, column 17 : squares beyond the 2 columns of the board"},
+                {"2 1\nsprBaba sprRock & sprWall EMPTY", "line 2, column 27 : squares beyond the 2 columns of the board"},
+                {"2 1\nsprBaba\n%\nEMPTY\n sprGrass", "line 5, column 2 : background row out of the board"},
+                {"2 1\nsprBaba\n%\nEMPTY EMPTY sprGrass", "line 4, column 13 : background squares beyond the 2 columns of the board"},
+                {"# comment\r\n\r\n2 1\r\n\r\nfoo", "line 5, column 1 : unknown item \"foo\""},
+                {"# only a comment\n", "no dimensions"},
+                {"2 1\n# no row\n%\nsprGrass", "no row of objects"}
+        };
+        for(var testCase : cases){
+            var content = testCase[0];
+            var message = content.replace("\n", "\\n").replace("\r", "\\r");
+            assertEquals(List.of(testCase).subList(1, testCase.length), errors(content), message);
+            if(testCase[1].contains(" out of the board") || testCase[1].contains(" beyond the ")){
+                load(content); // skipped when loaded, see testLoadSkipsWhatIsBeyondTheBoard
+                continue;
+            }
+            var exception = assertThrows(IOException.class, () -> load(content), message + ", loaded");
+            assertEquals("Error : " + testCase[1], exception.getMessage(), message + ", first error when loaded");
+        }
+    }
+
+    /**
+     * Bytes which aren't UTF-8 are reported once, where they first are, along with the items they break.
+     */
+    public static void testNonUtf8BytesAreReported() throws IOException {
+        var content = "2 2\nspr?Baba EMPTY\nEMPTY ?\n".getBytes(StandardCharsets.US_ASCII);
+        for(int i = 0; i != content.length; i++){
+            if(content[i] == '?')
+                content[i] = (byte) 0xFF;
+        }
+        assertEquals(List.of(
+                "line 2, column 4 : bytes which aren't UTF-8, this isn't a text level",
+                "line 2, column 1 : unknown item \"spr\uFFFDBaba\"",
+                "line 3, column 7 : unknown item \"\uFFFD\""), errors(content), "errors");
+        assertThrows(IOException.class, () -> LevelLoader.loadLevel("level.txt", content), "loaded");
+    }
+
+    /**
+     * loadLevel skips the rows and squares beyond the board, which findErrors reports.
+     */
+    public static void testLoadSkipsWhatIsBeyondTheBoard() throws IOException {
+        var board = load("2 1\nsprBaba sprRock sprWall\nsprFlag\n%\nsprGrass EMPTY sprTile\nsprTile");
+        var expected = new Board(2, 1);
+        expected.addObjectToSquare(TileObject.of(Token.sprBaba), 0, 0);
+        expected.addObjectToSquare(TileObject.of(Token.sprRock), 1, 0);
+        expected.setObjectInBackground(TileObject.of(Token.sprGrass), 0, 0);
+        CompiledLevelTest.assertSameLevel(expected, board, "board");
+    }
+
+    /**
+     * Every token name is found by the perfect hash of the item names, as an object and as
+     * a background object, and names which differ from it by a single character are not.
+     */
+    public static void testEveryTokenNameResolves() throws IOException {
+        for(var token : Token.values()){
+            var name = token.name();
+            var board = load("2 1\n" + name + " & " + name + " EMPTY\n%\nEMPTY " + name);
+            assertEquals(2, board.getSquareSize(0, 0), name + ", objects on (0, 0)");
+            assertEquals(token, board.getObjectOnSquare(0, 0, 0).getToken(), name);
+            assertEquals(token, board.getObjectOnSquare(0, 0, 1).getToken(), name + ", stacked");
+            assertEquals(0, board.getSquareSize(1, 0), name + ", nothing on EMPTY");
+            assertEquals(token, board.getBackgroundObjectOnGrid(1, 0).getToken(), name + ", background");
+            var misspellings = List.of(name + "s", name.substring(1), name.substring(0, name.length() - 1), name.toUpperCase(Locale.ROOT), name.toLowerCase(Locale.ROOT));
+            for(var misspelling : misspellings){
+                if(misspelling.isEmpty() || misspelling.equals(name) || misspelling.equals("EMPTY"))
+                    continue;
+                assertTrue(isUnknown(misspelling), name + ", misspelling " + misspelling);
+            }
+        }
+    }
+
+    /**
+     * @param item an item
+     * @return whether findErrors reports it as unknown
+     * @throws IOException if the file couldn't be written
+     */
+    private static boolean isUnknown(String item) throws IOException {
+        return errors("1 1\n" + item).equals(List.of("line 2, column 1 : unknown item \"" + item + "\""));
+    }
+}
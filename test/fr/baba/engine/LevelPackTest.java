@@ -0,0 +1,142 @@
+package fr.baba.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertThrows;
+import static fr.baba.Assert.fail;
+
+/**
+ * Checks that the levels of a pack load as their text files do,
+ * and that corrupted packs and levels are rejected.
+ */
+public final class LevelPackTest {
+    private LevelPackTest(){}
+
+    /**
+     * @return the paths of the shipped levels, as strings
+     * @throws IOException if the levels directory couldn't be listed
+     */
+    private static List<String> levelFiles() throws IOException {
+        return CompiledLevelTest.shippedLevels().stream().
+                map(Path::toString).
+                collect(Collectors.toList());
+    }
+
+    /**
+     * Every level of a pack of the shipped levels loads, by index and by name,
+     * as its text file does, from several threads at once.
+     */
+    public static void testPackRoundTrip() throws IOException {
+        var files = levelFiles();
+        var file = Files.createTempFile("levels", LevelPack.EXTENSION);
+        try{
+            LevelPack.write(files, file);
+            try(var pack = LevelPack.open(file)){
+                assertEquals(files.size(), pack.size(), "number of levels");
+                for(int i = 0; i != files.size(); i++){
+                    var name = Path.of(files.get(i)).getFileName().toString();
+                    var expected = LevelLoader.loadLevel(files.get(i));
+                    assertEquals(name, pack.getNames().get(i), "name of level " + i);
+                    assertEquals(i, pack.indexOf(name), "index of " + name);
+                    CompiledLevelTest.assertSameLevel(expected, pack.loadLevel(i), name + " by index");
+                    CompiledLevelTest.assertSameLevel(expected, pack.loadLevel(name), name + " by name");
+                }
+                assertEquals(-1, pack.indexOf("no such level"), "index of an unknown level");
+                assertThrows(IOException.class, () -> pack.loadLevel("no such level"), "unknown level");
+                assertThrows(IndexOutOfBoundsException.class, () -> pack.loadLevel(files.size()), "index out of the pack");
+                IntStream.range(0, 200).parallel().forEach(i -> {
+                    int index = i % files.size();
+                    try{
+                        CompiledLevelTest.assertSameLevel(LevelLoader.loadLevel(files.get(index)), pack.loadLevel(index), "concurrent load " + i);
+                    }catch (IOException e){
+                        fail("concurrent load " + i + " : " + e.getMessage());
+                    }
+                });
+            }
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Two levels with the same name can't be packed together.
+     */
+    public static void testDuplicateNamesAreRejected() throws IOException {
+        var file = Files.createTempFile("levels", LevelPack.EXTENSION);
+        try{
+            var level = levelFiles().get(0);
+            assertThrows(IOException.class, () -> LevelPack.write(List.of(level, level), file), "same level twice");
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * A pack whose header or table of contents is corrupted doesn't open,
+     * and a corrupted level doesn't load, while the other levels still do.
+     */
+    public static void testCorruptedPacksAreRejected() throws IOException {
+        var files = levelFiles();
+        var file = Files.createTempFile("levels", LevelPack.EXTENSION);
+        try{
+            LevelPack.write(files, file);
+            var bytes = Files.readAllBytes(file);
+            for(var index : new int[]{0, 5, 9, 13, 17, 24, 30, 40}){ // header, then table of contents
+                var corrupted = bytes.clone();
+                corrupted[index] ^= 0x10;
+                Files.write(file, corrupted);
+                assertThrows(IOException.class, () -> LevelPack.open(file).close(), "byte " + index + " changed");
+            }
+            Files.write(file, Arrays.copyOf(bytes, 20));
+            assertThrows(IOException.class, () -> LevelPack.open(file).close(), "truncated header");
+            var corrupted = bytes.clone();
+            corrupted[bytes.length - 1] ^= 0x10;
+            Files.write(file, corrupted);
+            try(var pack = LevelPack.open(file)){
+                int last = pack.size() - 1;
+                assertThrows(IOException.class, () -> pack.loadLevel(last), "corrupted last level");
+                for(int i = 0; i != last; i++){
+                    CompiledLevelTest.assertSameLevel(LevelLoader.loadLevel(files.get(i)), pack.loadLevel(i), "level " + i + " of a pack with a corrupted level");
+                }
+            }
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * A pack whose number of levels is changed, to a smaller or a larger one, doesn't open:
+     * neither with the hash of its header left as it was, nor with a hash matching the change.
+     */
+    public static void testChangedLevelCountsAreRejected() throws IOException {
+        var files = levelFiles();
+        var file = Files.createTempFile("levels", LevelPack.EXTENSION);
+        try{
+            LevelPack.write(files, file);
+            var bytes = Files.readAllBytes(file);
+            int count = ByteBuffer.wrap(bytes).getInt(8);
+            assertEquals(files.size(), count, "number of levels written");
+            int tocBytes = ByteBuffer.wrap(bytes).getInt(12);
+            for(var changed : new int[]{count - 1, 0, count + 1, Integer.MAX_VALUE, -1}){
+                var corrupted = ByteBuffer.wrap(bytes.clone());
+                corrupted.putInt(8, changed);
+                Files.write(file, corrupted.array());
+                assertThrows(IOException.class, () -> LevelPack.open(file).close(), count + " levels changed to " + changed);
+                var hashed = ByteBuffer.allocate(16 + tocBytes).put(corrupted.array(), 0, 16).put(corrupted.array(), 24, tocBytes);
+                corrupted.putLong(16, CompiledLevel.hash(hashed.flip(), 0));
+                Files.write(file, corrupted.array());
+                assertThrows(IOException.class, () -> LevelPack.open(file).close(), count + " levels changed to " + changed + ", hash updated");
+            }
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+}
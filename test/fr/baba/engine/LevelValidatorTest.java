@@ -0,0 +1,88 @@
+package fr.baba.engine;
+
+import fr.baba.engine.board.Board;
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+import fr.baba.engine.solver.Solution;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks the reports of LevelValidator on shipped levels and on levels it can't search.
+ */
+public final class LevelValidatorTest {
+    private LevelValidatorTest(){}
+
+    /**
+     * @param content content of a level file
+     * @param suffix suffix of the name of the file
+     * @return the report of the level, searched up to 1000 states
+     * @throws IOException if the file couldn't be written
+     */
+    private static LevelValidator.Report validate(byte[] content, String suffix) throws IOException {
+        var file = Files.createTempFile("level", suffix);
+        try{
+            Files.write(file, content);
+            return LevelValidator.validate(file.toString(), 1_000);
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * @param dimensions dimensions line of a level
+     * @return a level with those dimensions, on which BABA IS YOU
+     */
+    private static byte[] level(String dimensions){
+        return ("# large level\n" + dimensions + "\nnounBaba Is You\nsprBaba\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A shipped level which can be solved is valid, and solved.
+     */
+    public static void testShippedLevelIsSolved(){
+        var report = LevelValidator.validate("levels/level_0", 1_000);
+        assertTrue(report.isValid(), "level_0 is valid: " + report.getErrors());
+        assertEquals(Solution.Status.solved, report.getSolution().getStatus(), "level_0 is solved");
+        assertEquals(List.of(), report.getWarnings(), "no warning");
+    }
+
+    /**
+     * Dimensions the board can't hold, or too large for the solver, are reported
+     * at the line and column of the dimensions, without any exception class name.
+     */
+    public static void testOversizedDimensionsAreReportedAtTheirLine() throws IOException {
+        var maximum = LevelLoader.MAX_SEARCHED_SQUARES;
+        String[][] cases = { // dimensions, and expected error
+                {"  46340 46340", "line 2, column 3 : board of 46340 x 46340 squares is too large to be searched, the maximum is " + maximum + " squares"},
+                {"5793 5793", "line 2, column 1 : board of 5793 x 5793 squares is too large to be searched, the maximum is " + maximum + " squares"},
+                {"46341 46341", "line 2, column 1 : number of Rows or Columns exceeded the authorized maximum"},
+                {"2147483647 2", "line 2, column 1 : number of Rows or Columns exceeded the authorized maximum"},
+                {"2147483648 1", "line 2, column 1 : invalid dimensions \"2147483648 1\""}
+        };
+        for(var testCase : cases){
+            var report = validate(level(testCase[0]), ".txt");
+            assertEquals(List.of(testCase[1]), report.getErrors(), testCase[0]);
+            assertEquals(null, report.getSolution(), testCase[0] + ", no search");
+        }
+        var report = validate(level("5792 5792"), ".txt");
+        assertTrue(report.isValid(), "the largest square board which can be searched is valid: " + report.getErrors());
+        assertEquals(Solution.Status.aborted, report.getSolution().getStatus(), "the largest board is searched");
+    }
+
+    /**
+     * A compiled level too large for the solver is reported, without any exception class name.
+     */
+    public static void testOversizedCompiledLevelIsReported() throws IOException {
+        var board = new Board(46_340, 46_340);
+        board.addObjectToSquare(TileObject.of(Token.sprBaba), 46_339, 46_339);
+        var report = validate(CompiledLevel.compile(board), CompiledLevel.EXTENSION);
+        assertEquals(List.of("board of 46340 x 46340 squares is too large to be searched, the maximum is " + LevelLoader.MAX_SEARCHED_SQUARES + " squares"), report.getErrors(), "errors");
+    }
+}
@@ -0,0 +1,194 @@
+package fr.baba.engine;
+
+import fr.baba.engine.board.Board;
+import fr.baba.engine.board.BoardHistory;
+import fr.baba.engine.property.PropertyUpdater;
+import fr.baba.utils.Direction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertThrows;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks replays recorded as a running level records them, moves undone and redone included,
+ * against the boards played: written and read back, verified, and sought turn by turn.
+ */
+public final class ReplayTest {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int CHECKPOINT_INTERVAL = 8;
+
+    private ReplayTest(){}
+
+    /**
+     * Result of a game played on a level.
+     */
+    private static final class Game {
+        private final Board initial; // board before any move, untouched
+        private final Replay replay;
+        private final List<Board> boards; // boards by turn number, rules collected, of the moves which were not undone
+
+        private Game(Board initial, Replay replay, List<Board> boards){
+            this.initial = initial;
+            this.replay = replay;
+            this.boards = boards;
+        }
+    }
+
+    /**
+     * Plays random moves, undoing and redoing some of them, as Level.run does.
+     * @param level path of the level
+     * @param seed seed of the moves
+     * @param moves number of commands
+     * @return the game played
+     * @throws IOException if the level couldn't be read
+     */
+    private static Game play(String level, int seed, int moves) throws IOException {
+        var random = new Random(seed);
+        var simulation = Simulation.load(level);
+        var board = simulation.getBoard();
+        var initial = board.copy();
+        var history = new BoardHistory(board);
+        var recorder = new Replay.Recorder(board, CHECKPOINT_INTERVAL);
+        var boards = new ArrayList<Board>();
+        boards.add(board.copy());
+        for(int move = 0; move != moves; move++){
+            PropertyUpdater.collectProperties(board);
+            int command = random.nextInt(10);
+            if(command == 0){
+                history.undo();
+                recorder.moveTo(history.getTurnNumber());
+                continue;
+            }
+            if(command == 1){
+                history.redo();
+                recorder.moveTo(history.getTurnNumber());
+                continue;
+            }
+            int turnNumber = history.getTurnNumber();
+            var direction = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+            var outcome = simulation.step(direction);
+            history.endTurn();
+            if(history.getTurnNumber() != turnNumber){
+                recorder.record(direction);
+                boards.subList(history.getTurnNumber(), boards.size()).clear();
+                var played = board.copy();
+                PropertyUpdater.collectProperties(played);
+                boards.add(played);
+            }
+            if(outcome.getStatus() != Simulation.Status.continuing)
+                break;
+        }
+        assertEquals(history.getTurnNumber(), recorder.getLength(), "length of the replay");
+        return new Game(initial, recorder.toReplay(), boards.subList(0, history.getTurnNumber() + 1));
+    }
+
+    /**
+     * @param game a game
+     * @param replay replay of the game
+     * @param message description of the game
+     */
+    private static void assertReplays(Game game, Replay replay, String message){
+        assertEquals(Replay.Verdict.valid, replay.verify(game.initial), message + ", verdict");
+        assertEquals(game.boards.size() - 1, replay.getLength(), message + ", length");
+        for(int turn = 0; turn <= replay.getLength(); turn++){
+            assertTrue(replay.seek(game.initial, turn).sameStateAs(game.boards.get(turn)), message + ", board at turn " + turn);
+        }
+    }
+
+    /**
+     * Replays of random games on every shipped level lead to the boards played,
+     * before and after being written to a file and read back.
+     */
+    public static void testRecordedGamesReplay() throws IOException {
+        var file = Files.createTempFile("replay", ".babr");
+        try{
+            for(var level : List.of("levels/default-level.txt", "levels/level_1", "levels/level_4", "levels/level_6")){
+                for(int seed = 0; seed != 4; seed++){
+                    var game = play(level, seed, 120);
+                    var message = level + " seed " + seed;
+                    assertReplays(game, game.replay, message);
+                    game.replay.write(file);
+                    var read = Replay.read(file);
+                    assertEquals(game.replay.getMoves(), read.getMoves(), message + ", moves read");
+                    assertEquals(game.replay.getLevelHash(), read.getLevelHash(), message + ", level hash read");
+                    assertEquals(game.replay.getFinalHash(), read.getFinalHash(), message + ", final hash read");
+                    assertEquals(game.replay.getEngineVersion(), read.getEngineVersion(), message + ", engine version read");
+                    assertReplays(game, read, message + ", read");
+                }
+            }
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Replays of another level, of another engine version, or which don't lead
+     * to the recorded board are told apart, and files which aren't replays are rejected.
+     */
+    public static void testMismatchesAreReported() throws IOException {
+        var game = play("levels/level_6", 1, 120);
+        assertTrue(game.replay.getLength() > 0, "moves recorded");
+        assertEquals(Replay.Verdict.otherLevel, game.replay.verify(Simulation.load("levels/level_1").getBoard()), "other level");
+        var file = Files.createTempFile("replay", ".babr");
+        try{
+            game.replay.write(file);
+            var bytes = Files.readAllBytes(file);
+            bytes[11] ^= 1; // engine version
+            Files.write(file, bytes);
+            assertEquals(Replay.Verdict.otherEngineVersion, Replay.read(file).verify(game.initial), "other engine version");
+            bytes[11] ^= 1;
+            bytes[27] ^= 1; // final hash
+            Files.write(file, bytes);
+            assertEquals(Replay.Verdict.diverged, Replay.read(file).verify(game.initial), "other final board");
+            bytes[0] ^= 1; // magic number
+            Files.write(file, bytes);
+            assertThrows(IOException.class, () -> Replay.read(file), "not a replay");
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Files whose lengths don't match their size, however large the lengths, are rejected
+     * with an IOException before anything is allocated for them.
+     */
+    public static void testCorruptedLengthsAreRejected() throws IOException {
+        var game = play("levels/level_6", 2, 120);
+        int length = game.replay.getLength();
+        assertTrue(length >= CHECKPOINT_INTERVAL, "checkpoints recorded");
+        var file = Files.createTempFile("replay", ".babr");
+        try{
+            game.replay.write(file);
+            var bytes = Files.readAllBytes(file);
+            int interval = 32 + ((length + 3) >> 2);
+            int[][] corruptions = { // offset of an int, and value written at that offset
+                    {28, Integer.MAX_VALUE}, {28, 0x7FFFFFF0}, {28, length + 4 * 64}, {28, 0}, {28, -1}, // number of moves
+                    {interval + 4, Integer.MAX_VALUE}, {interval + 4, 1 << 28}, {interval + 4, -1}, // number of checkpoints
+                    {interval + 20, Integer.MAX_VALUE}, {interval + 20, 1 << 28}, {interval + 20, -1} // size of the first checkpoint
+            };
+            for(var corruption : corruptions){
+                var corrupted = bytes.clone();
+                ByteBuffer.wrap(corrupted).putInt(corruption[0], corruption[1]);
+                Files.write(file, corrupted);
+                assertThrows(IOException.class, () -> Replay.read(file), corruption[1] + " written at " + corruption[0]);
+            }
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+            assertThrows(IOException.class, () -> Replay.read(file), "truncated file");
+            Files.write(file, Arrays.copyOf(bytes, bytes.length + 1));
+            assertThrows(IOException.class, () -> Replay.read(file), "trailing byte");
+            Files.write(file, bytes);
+            assertEquals(game.replay.getMoves(), Replay.read(file).getMoves(), "untouched file");
+        }finally{
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package fr.baba.engine;
+
+import fr.baba.engine.board.Board;
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+import fr.baba.utils.Direction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks the turns played by a Simulation against playthroughs of the shipped levels
+ * recorded with the engine as it was before the optimizations (commit 29232ca):
+ * for each level and seed, up to MAX_TURNS random moves are played until the level is won or lost,
+ * and the number of turns, the outcome and a hash of the board after every turn are recorded.
+ */
+public final class SimulationTest {
+    private static final Path PLAYTHROUGHS = Path.of("test/fr/baba/engine/baseline-playthroughs.txt");
+    private static final int MAX_TURNS = 300;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private SimulationTest(){}
+
+    /**
+     * @param board a board
+     * @return a hash of the objects of the board, column by column, as recorded in the playthroughs
+     */
+    private static int dumpHash(Board board){
+        var dump = new StringBuilder();
+        for(int i = 0; i < board.getNumberOfCol(); i++){
+            for(int j = 0; j < board.getNumberOfRow(); j++){
+                for(var obj : board.getSquareOnGrid(i, j)){
+                    dump.append(i).append(',').append(j).append(':').append(obj.getToken()).append(' ');
+                }
+            }
+        }
+        return dump.toString().hashCode();
+    }
+
+    /**
+     * @param seed seed of the playthrough
+     * @return the moves of the playthrough
+     */
+    private static List<Direction> moves(int seed){
+        var random = new Random(seed);
+        var moves = new ArrayList<Direction>();
+        for(int turn = 0; turn != MAX_TURNS; turn++){
+            moves.add(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+        }
+        return moves;
+    }
+
+    /**
+     * Every recorded playthrough gives the same boards, turn after turn, and the same outcome.
+     */
+    public static void testPlaythroughsMatchBaseline() throws IOException {
+        var lines = Files.readAllLines(PLAYTHROUGHS);
+        assertTrue(!lines.isEmpty(), "playthroughs recorded");
+        for(var line : lines){
+            var fields = line.split(" ");
+            var level = fields[0];
+            int seed = Integer.parseInt(fields[1]);
+            var simulation = Simulation.load("levels/" + level);
+            var status = Simulation.Status.continuing;
+            long rollingHash = 0;
+            int turns = 0;
+            for(var direction : moves(seed)){
+                status = simulation.step(direction).getStatus();
+                turns++;
+                rollingHash = rollingHash * 31 + dumpHash(simulation.getBoard());
+                if(status != Simulation.Status.continuing)
+                    break;
+            }
+            var playthrough = level + " seed " + seed;
+            assertEquals(Integer.parseInt(fields[2]), turns, playthrough + ", turns");
+            assertEquals(fields[3], status.name(), playthrough + ", outcome");
+            assertEquals(Long.parseLong(fields[4]), rollingHash, playthrough + ", boards");
+        }
+    }
+
+    /**
+     * Playing the moves at once stops on the same turn and board as playing them one by one.
+     */
+    public static void testPlayMatchesSteps() throws IOException {
+        for(int seed = 0; seed != 10; seed++){
+            var moves = moves(seed);
+            var stepped = Simulation.load("levels/level_1");
+            int turns = 0;
+            var status = stepped.getStatus();
+            while(status == Simulation.Status.continuing && turns != moves.size()){
+                status = stepped.step(moves.get(turns++)).getStatus();
+            }
+            var played = Simulation.load("levels/level_1");
+            var outcome = played.play(moves);
+            assertEquals(turns, outcome.getTurns(), "seed " + seed + ", turns");
+            assertEquals(status, outcome.getStatus(), "seed " + seed + ", outcome");
+            assertTrue(played.getBoard().sameStateAs(stepped.getBoard()), "seed " + seed + ", board");
+            assertEquals(status, played.getStatus(), "seed " + seed + ", outcome of the board");
+        }
+    }
+
+    /**
+     * @param board a board
+     * @param colNumber column number of the first word
+     * @param rowNumber row number of the words
+     * @param words words to be written from west to east
+     */
+    private static void write(Board board, int colNumber, int rowNumber, Token... words){
+        for(int i = 0; i != words.length; i++){
+            board.addObjectToSquare(TileObject.of(words[i]), colNumber + i, rowNumber);
+        }
+    }
+
+    /**
+     * A turn is judged with the rules in force before its removal phase, as the levels always have been:
+     * BABA reaches the WIN flag in the very turn an explosion destroys the word WIN.
+     */
+    public static void testTurnJudgedWithRulesBeforeRemoval(){
+        var board = new Board(9, 5);
+        write(board, 0, 0, Token.nounBaba, Token.Is, Token.You);
+        write(board, 0, 2, Token.nounFlag, Token.Is, Token.Win);
+        write(board, 0, 4, Token.nounBomb, Token.Is, Token.Boom);
+        board.addObjectToSquare(TileObject.of(Token.sprBomb), 3, 3);
+        board.addObjectToSquare(TileObject.of(Token.sprRock), 3, 3);
+        board.addObjectToSquare(TileObject.of(Token.sprBaba), 6, 1);
+        board.addObjectToSquare(TileObject.of(Token.sprFlag), 7, 1);
+        var simulation = new Simulation(board);
+        assertEquals(Simulation.Status.continuing, simulation.getStatus(), "outcome before the move");
+        assertEquals(Simulation.Status.won, simulation.step(Direction.east).getStatus(), "outcome of the turn");
+        assertTrue(board.getSquareOnGrid(2, 2).isEmpty(), "word WIN destroyed by the explosion");
+        assertEquals(Simulation.Status.continuing, simulation.getStatus(), "outcome of the board with its rules collected again");
+    }
+}
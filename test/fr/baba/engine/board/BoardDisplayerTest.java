@@ -0,0 +1,66 @@
+package fr.baba.engine.board;
+
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+import fr.baba.engine.property.RuleSet;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks that boards too large for the window are still drawn, through a viewport.
+ */
+public final class BoardDisplayerTest {
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+
+    private BoardDisplayerTest(){}
+
+    /**
+     * @param board board to be drawn
+     * @return the number of pixels drawn around the centre of the window
+     * that are neither the background of the screen nor the one of the grid
+     */
+    private static int objectPixelsAroundCentre(Board board){
+        var image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        var graphics = image.createGraphics();
+        try{
+            board.draw(graphics, 0, 0, HEIGHT, WIDTH);
+        }finally{
+            graphics.dispose();
+        }
+        int grid = Color.DARK_GRAY.getRGB();
+        int screen = image.getRGB(0, 0);
+        int count = 0;
+        for(int x = WIDTH / 2 - 20; x != WIDTH / 2 + 20; x++){
+            for(int y = HEIGHT / 2 - 20; y != HEIGHT / 2 + 20; y++){
+                int rgb = image.getRGB(x, y);
+                if(rgb != grid && rgb != screen)
+                    count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A board with far more squares than pixels shows the squares around its YOU object,
+     * at least one pixel large, instead of squares shrunk to nothing.
+     */
+    public static void testHugeBoardShowsViewportAroundYou(){
+        var board = new Board(40_000, 40_000);
+        board.applyRuleSet(new RuleSet.Builder().addProperty(Token.nounBaba, Token.You).build());
+        board.addObjectToSquare(TileObject.of(Token.sprBaba), 30_000, 20_000);
+        assertTrue(objectPixelsAroundCentre(board) > 0, "the YOU object is drawn at the centre of the window");
+    }
+
+    /**
+     * A board of the usual size fills the window, with its objects drawn.
+     */
+    public static void testUsualBoardIsDrawn(){
+        var board = new Board(Board.MAX_NUMBER_OF_COLS, Board.MAX_NUMBER_OF_ROWS);
+        board.addObjectToSquare(TileObject.of(Token.sprBaba), Board.MAX_NUMBER_OF_COLS / 2, Board.MAX_NUMBER_OF_ROWS / 2);
+        assertTrue(objectPixelsAroundCentre(board) > 0, "the object in the middle of the board is drawn at the centre of the window");
+    }
+}
@@ -0,0 +1,125 @@
+package fr.baba.engine.board;
+
+import fr.baba.engine.Simulation;
+import fr.baba.utils.Direction;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks that undoing and redoing turns, by deltas or by snapshots,
+ * gives back the boards as they were when the turns were played.
+ */
+public final class BoardHistoryTest {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private BoardHistoryTest(){}
+
+    /**
+     * Plays random moves, recording the board after each turn which changed it.
+     * @param simulation simulation of the board
+     * @param history history of the board
+     * @param moves number of moves played
+     * @param random source of the moves
+     * @param states encodings of the board, by turn number, up to the current turn at least,
+     * to which the turns played are added in place of the undone ones
+     */
+    private static void play(Simulation simulation, BoardHistory history, int moves, Random random, List<int[]> states){
+        var board = simulation.getBoard();
+        states.subList(history.getTurnNumber() + 1, states.size()).clear();
+        for(int move = 0; move != moves; move++){
+            simulation.step(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+            history.endTurn();
+            if(history.getTurnNumber() == states.size())
+                states.add(board.getStateEncoding());
+        }
+        assertEquals(states.size() - 1, history.getTurnNumber(), "turn number after the moves");
+    }
+
+    /**
+     * @param board board before any move
+     * @return the encodings of the board, by turn number, holding the board before any move
+     */
+    private static List<int[]> initialState(Board board){
+        var states = new ArrayList<int[]>();
+        states.add(board.getStateEncoding());
+        return states;
+    }
+
+    /**
+     * @param states encodings of the board, by turn number
+     * @param board board
+     * @param history history of the board
+     * @param message description of the check
+     */
+    private static void assertAtTurn(List<int[]> states, Board board, BoardHistory history, String message){
+        assertTrue(Arrays.equals(states.get(history.getTurnNumber()), board.getStateEncoding()), message + ", board at turn " + history.getTurnNumber());
+    }
+
+    /**
+     * Undoing every turn then redoing them, within the depth of the history.
+     */
+    public static void testUndoAndRedoEveryTurn() throws IOException {
+        var simulation = Simulation.load("levels/level_6");
+        var board = simulation.getBoard();
+        var history = new BoardHistory(board);
+        var states = initialState(board);
+        play(simulation, history, 60, new Random(4), states);
+        assertTrue(states.size() > 10, "enough turns changed the board");
+        while(history.undo()){
+            assertAtTurn(states, board, history, "undo");
+        }
+        assertEquals(0, history.getTurnNumber(), "turn number once everything is undone");
+        while(history.redo()){
+            assertAtTurn(states, board, history, "redo");
+        }
+        assertEquals(states.size() - 1, history.getTurnNumber(), "turn number once everything is redone");
+    }
+
+    /**
+     * Undoing beyond the depth of the history restores the snapshots, down to the initial board.
+     */
+    public static void testUndoBeyondTheDepthRestoresSnapshots() throws IOException {
+        var simulation = Simulation.load("levels/level_6");
+        var board = simulation.getBoard();
+        var history = new BoardHistory(board, 5, 4, 3);
+        var states = initialState(board);
+        play(simulation, history, 80, new Random(5), states);
+        int undone = 0;
+        int previousTurn = history.getTurnNumber();
+        while(history.undo()){
+            assertAtTurn(states, board, history, "undo " + undone++);
+            assertTrue(history.getTurnNumber() < previousTurn, "undo goes back in time");
+            previousTurn = history.getTurnNumber();
+        }
+        assertEquals(0, history.getTurnNumber(), "turn number once everything is undone");
+        assertAtTurn(states, board, history, "initial board");
+    }
+
+    /**
+     * A turn played after an undo forgets the undone turns, and later snapshots.
+     */
+    public static void testTurnAfterUndoForgetsTheUndoneTurns() throws IOException {
+        var simulation = Simulation.load("levels/level_6");
+        var board = simulation.getBoard();
+        var history = new BoardHistory(board, 1000, 2, 10);
+        var random = new Random(6);
+        var states = initialState(board);
+        play(simulation, history, 40, random, states);
+        for(int i = 0; i != 5; i++){
+            history.undo();
+        }
+        play(simulation, history, 20, random, states);
+        assertTrue(!history.redo(), "nothing to redo after a new turn");
+        while(history.undo()){
+            assertAtTurn(states, board, history, "undo in the new branch");
+        }
+        assertEquals(0, history.getTurnNumber(), "turn number once everything is undone");
+    }
+}
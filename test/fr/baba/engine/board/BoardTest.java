@@ -0,0 +1,129 @@
+package fr.baba.engine.board;
+
+import fr.baba.engine.Simulation;
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+import fr.baba.engine.boardElement.tokenType;
+import fr.baba.engine.property.RuleSet;
+import fr.baba.utils.Direction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks the indexes a board keeps up to date against a scan of all its squares.
+ */
+public final class BoardTest {
+    private static final Token[] TOKENS = Token.values();
+    private static final Token[] PROPERTIES = Arrays.stream(TOKENS).
+            filter(token -> token.getType() == tokenType.property).
+            toArray(Token[]::new);
+    private static final Token[] NOUNS = Arrays.stream(TOKENS).
+            filter(token -> token.getType() == tokenType.noun).
+            toArray(Token[]::new);
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private BoardTest(){}
+
+    /**
+     * @param board a board
+     * @param filter objects looked for
+     * @return the squares holding at least one of those objects, column by column
+     */
+    private static int[] scan(Board board, Predicate<TileObject> filter){
+        var squares = new SquareSet();
+        for(int col = 0; col != board.getNumberOfCol(); col++){
+            for(int row = 0; row != board.getNumberOfRow(); row++){
+                if(board.getSquareOnGrid(col, row).stream().anyMatch(filter))
+                    squares.set(col * board.getNumberOfRow() + row);
+            }
+        }
+        return squares.toArray();
+    }
+
+    /**
+     * @param board a board
+     * @param message description of the board
+     */
+    private static void assertIndexesUpToDate(Board board, String message){
+        for(var property : PROPERTIES){
+            var expected = scan(board, obj -> board.hasProperty(obj, property));
+            assertTrue(Arrays.equals(expected, board.getSquaresWithProperties(property)), message + ", squares with " + property);
+            int first = board.nextSquareWithProperty(property, 0);
+            assertEquals(expected.length == 0 ? -1 : expected[0], first, message + ", first square with " + property);
+        }
+        for(var token : TOKENS){
+            var expected = scan(board, obj -> obj.getToken() == token);
+            assertTrue(Arrays.equals(expected, board.getSquaresWithToken(token)), message + ", squares with " + token);
+        }
+        var you = scan(board, obj -> board.hasProperty(obj, Token.You));
+        var win = scan(board, obj -> board.hasProperty(obj, Token.Win));
+        assertEquals(you.length == 0, board.lost(), message + ", lost");
+        assertEquals(Arrays.stream(you).anyMatch(square -> Arrays.binarySearch(win, square) >= 0), board.won(), message + ", won");
+    }
+
+    /**
+     * @param random source of the rules
+     * @return random NOUN IS PROPERTY rules
+     */
+    private static RuleSet randomRules(Random random){
+        var builder = new RuleSet.Builder();
+        for(int i = random.nextInt(12); i != 0; i--){
+            builder.addProperty(NOUNS[random.nextInt(NOUNS.length)], PROPERTIES[random.nextInt(PROPERTIES.length)]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Random objects added, removed and moved, and random rules applied, on dense and sparse boards.
+     */
+    public static void testIndexesMatchScanAfterMutations(){
+        var random = new Random(2);
+        for(var sparse : new boolean[]{false, true}){
+            var board = new Board(15, 11, sparse);
+            for(int step = 0; step != 1500; step++){
+                int col = random.nextInt(board.getNumberOfCol());
+                int row = random.nextInt(board.getNumberOfRow());
+                int size = board.getSquareSize(col, row);
+                int action = random.nextInt(10);
+                if(action == 0)
+                    board.applyRuleSet(randomRules(random));
+                else if(action == 1 && size != 0)
+                    board.clearSquare(col, row);
+                else if(action < 4 && size != 0)
+                    board.removeObjectFromSquare(board.getObjectOnSquare(col, row, random.nextInt(size)), col, row);
+                else if(action < 6 && size != 0)
+                    board.transferObject(board.getObjectOnSquare(col, row, random.nextInt(size)), col, row, random.nextInt(board.getNumberOfCol()), random.nextInt(board.getNumberOfRow()));
+                else
+                    board.addObjectToSquare(TileObject.of(TOKENS[random.nextInt(TOKENS.length)]), col, row);
+                if(step % 25 == 0)
+                    assertIndexesUpToDate(board, (sparse ? "sparse" : "dense") + " board, step " + step);
+            }
+        }
+    }
+
+    /**
+     * Random plays of every shipped level.
+     */
+    public static void testIndexesMatchScanOnShippedLevels() throws IOException {
+        var levels = Files.list(Path.of("levels")).sorted().collect(Collectors.toList());
+        for(var level : levels){
+            var random = new Random(level.getFileName().toString().hashCode());
+            var simulation = Simulation.load(level.toString());
+            simulation.getStatus();
+            assertIndexesUpToDate(simulation.getBoard(), level + " before any move");
+            for(int turn = 0; turn != 150; turn++){
+                simulation.step(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+                assertIndexesUpToDate(simulation.getBoard(), level + ", turn " + turn);
+            }
+        }
+    }
+}
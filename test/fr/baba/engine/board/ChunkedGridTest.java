@@ -0,0 +1,86 @@
+package fr.baba.engine.board;
+
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+
+import java.util.Random;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertThrows;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks ChunkedGrid against the same model as FlatGrid, and large sparse boards.
+ */
+public final class ChunkedGridTest {
+    private ChunkedGridTest(){}
+
+    /**
+     * Random mutations of squares spread over several chunks, some of them
+     * on the borders of chunks and of the board.
+     */
+    public static void testRandomMutationsMatchModel(){
+        var random = new Random(2);
+        int numberOfCol = 37;
+        int numberOfRow = 21;
+        int numberOfSquares = numberOfCol * numberOfRow;
+        int[] squares = {0, 7, 8, numberOfRow - 1, numberOfRow, 8 * numberOfRow + 8, 400, numberOfSquares - 1};
+        for(int run = 0; run != 20; run++){
+            FlatGridTest.checkAgainstModel(new ChunkedGrid(numberOfCol, numberOfRow), numberOfSquares, squares, random, 400);
+        }
+    }
+
+    /**
+     * A board far larger than the screen only costs memory for the chunks it uses.
+     */
+    public static void testLargeSparseBoard(){
+        var board = new Board(40_000, 40_000);
+        assertTrue(board.getMemoryFootprint() < 64 << 10, "an empty board takes less than 64 KB, took " + board.getMemoryFootprint());
+        board.addObjectToSquare(TileObject.of(Token.sprBaba), 0, 0);
+        board.addObjectToSquare(TileObject.of(Token.sprRock), 39_999, 39_999);
+        board.addObjectToSquare(TileObject.of(Token.sprWall), 20_000, 123);
+        int first = board.nextUsedSquare(0);
+        assertEquals(0, first, "first used square");
+        int second = board.nextUsedSquare(first + 1);
+        assertEquals(20_000, board.getColOfSquare(second), "column of the second used square");
+        assertEquals(123, board.getRowOfSquare(second), "row of the second used square");
+        int third = board.nextUsedSquare(second + 1);
+        assertEquals(Token.sprRock, board.getObjectOnSquare(board.getColOfSquare(third), board.getRowOfSquare(third), 0).getToken(), "last used square");
+        assertEquals(-1, board.nextUsedSquare(third + 1), "no other used square");
+        assertTrue(board.getMemoryFootprint() < 16 << 20, "a board of three objects takes less than 16 MB (a dense grid would take gigabytes), took " + board.getMemoryFootprint());
+        assertTrue(board.copy().sameStateAs(board), "copy of a large board");
+    }
+
+    /**
+     * Boards of up to Integer.MAX_VALUE squares, however long or wide, can be used:
+     * their chunk counts and skips don't overflow.
+     */
+    public static void testExtremeDimensions(){
+        int[][] dimensions = {{Integer.MAX_VALUE, 1}, {1, Integer.MAX_VALUE}, {46_340, 46_340}, {Integer.MAX_VALUE / 9, 9}};
+        for(var dimension : dimensions){
+            var message = dimension[0] + "x" + dimension[1];
+            var board = new Board(dimension[0], dimension[1]);
+            assertTrue(board.getMemoryFootprint() < 64 << 10, message + ", an empty board takes less than 64 KB, took " + board.getMemoryFootprint());
+            assertEquals(-1, board.nextUsedSquare(0), message + ", no used square");
+            int lastCol = dimension[0] - 1;
+            int lastRow = dimension[1] - 1;
+            board.addObjectToSquare(TileObject.of(Token.sprRock), lastCol, lastRow);
+            board.addObjectToSquare(TileObject.of(Token.sprBaba), lastCol / 2, 0);
+            int first = board.nextUsedSquare(0);
+            assertEquals(lastCol / 2, board.getColOfSquare(first), message + ", column of the first used square");
+            int last = board.nextUsedSquare(first + 1);
+            assertEquals(lastCol, board.getColOfSquare(last), message + ", column of the last used square");
+            assertEquals(lastRow, board.getRowOfSquare(last), message + ", row of the last used square");
+            assertEquals(-1, board.nextUsedSquare(last + 1), message + ", no other used square");
+            assertTrue(board.getMemoryFootprint() < 16 << 20, message + ", a board of two objects takes less than 16 MB, took " + board.getMemoryFootprint());
+            assertTrue(board.copy().sameStateAs(board), message + ", copy");
+        }
+    }
+
+    /**
+     * Boards of more than Integer.MAX_VALUE squares are rejected.
+     */
+    public static void testTooLargeBoardsAreRejected(){
+        assertThrows(IllegalArgumentException.class, () -> new Board(100_000, 100_000), "10^10 squares");
+    }
+}
@@ -0,0 +1,138 @@
+package fr.baba.engine.board;
+
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertThrows;
+import static fr.baba.Assert.assertTrue;
+import static fr.baba.Assert.fail;
+
+/**
+ * Checks FlatGrid against a model made of lists, on random mutations.
+ */
+public final class FlatGridTest {
+    private static final Token[] TOKENS = Token.values();
+
+    private FlatGridTest(){}
+
+    /**
+     * Applies random mutations to grid and to a model made of lists, checking after each one
+     * that the grid holds the same objects as the model, and that a copy taken before
+     * the mutation is left untouched.
+     * @param grid empty grid to be checked
+     * @param numberOfSquares number of squares of the grid
+     * @param squares squares to be mutated, a few of them so that stacks get high
+     * @param random source of the mutations
+     * @param steps number of mutations
+     */
+    static void checkAgainstModel(Grid grid, int numberOfSquares, int[] squares, Random random, int steps){
+        var stacks = new ArrayList<List<TileObject>>();
+        var backgrounds = new TileObject[numberOfSquares];
+        for(int square = 0; square != numberOfSquares; square++){
+            stacks.add(new ArrayList<>());
+        }
+        for(int step = 0; step != steps; step++){
+            var copy = step % 16 == 0 ? grid.copy() : null;
+            var copiedStacks = copy == null ? null : deepCopy(stacks);
+            var copiedBackgrounds = copy == null ? null : backgrounds.clone();
+            int square = squares[random.nextInt(squares.length)];
+            var stack = stacks.get(square);
+            int operation = random.nextInt(10);
+            if(operation < 5){
+                var obj = TileObject.of(TOKENS[random.nextInt(TOKENS.length)]);
+                int position = random.nextInt(stack.size() + 1);
+                grid.insert(square, position, obj);
+                stack.add(position, obj);
+            }else if(operation < 8 && !stack.isEmpty()){
+                int position = random.nextInt(stack.size());
+                assertTrue(grid.removeAt(square, position) == stack.remove(position), "removeAt returns the removed object");
+            }else if(operation == 8){
+                grid.clear(square);
+                stack.clear();
+            }else{
+                var obj = random.nextBoolean() ? null : TileObject.of(TOKENS[random.nextInt(TOKENS.length)]);
+                grid.setBackground(square, obj);
+                backgrounds[square] = obj;
+            }
+            assertSame(grid, stacks, backgrounds, "after step " + step);
+            if(copy != null)
+                assertSame(copy, copiedStacks, copiedBackgrounds, "copy taken before step " + step);
+        }
+    }
+
+    /**
+     * @param stacks stacks of a model
+     * @return a copy of the stacks
+     */
+    private static List<List<TileObject>> deepCopy(List<List<TileObject>> stacks){
+        var copy = new ArrayList<List<TileObject>>(stacks.size());
+        for(var stack : stacks){
+            copy.add(new ArrayList<>(stack));
+        }
+        return copy;
+    }
+
+    /**
+     * Checks that grid holds the objects of the model, as seen through every method of Grid.
+     * @param grid grid to be checked
+     * @param stacks stacks of the model, by square
+     * @param backgrounds background objects of the model, by square
+     * @param message description of the check
+     */
+    static void assertSame(Grid grid, List<List<TileObject>> stacks, TileObject[] backgrounds, String message){
+        int from = 0;
+        for(int square = 0; square != stacks.size(); square++){
+            var stack = stacks.get(square);
+            if(grid.size(square) != stack.size() || grid.getBackground(square) != backgrounds[square])
+                fail(message + ", size or background of square " + square);
+            if(stack.isEmpty() && backgrounds[square] == null)
+                continue;
+            assertEquals(square, grid.nextUsedSquare(from), message + ", nextUsedSquare from " + from);
+            from = square + 1;
+            for(int position = 0; position != stack.size(); position++){
+                var obj = stack.get(position);
+                assertTrue(grid.get(square, position) == obj, message + ", object " + position + " of square " + square);
+                assertEquals(obj.getToken().ordinal(), grid.tokenId(square, position), message + ", token of object " + position + " of square " + square);
+                assertEquals(position, grid.indexOf(square, obj), message + ", indexOf on square " + square);
+            }
+            for(int i = 0; i != TOKENS.length && !stack.isEmpty(); i++){
+                int expected = -1;
+                for(int position = 0; position != stack.size() && expected == -1; position++){
+                    if(stack.get(position).getToken() == TOKENS[i])
+                        expected = position;
+                }
+                assertEquals(expected, grid.indexOfToken(square, i), message + ", indexOfToken " + TOKENS[i] + " on square " + square);
+            }
+        }
+        assertEquals(-1, grid.nextUsedSquare(from), message + ", nextUsedSquare from " + from);
+    }
+
+    /**
+     * Random mutations of a few squares of a grid.
+     */
+    public static void testRandomMutationsMatchModel(){
+        var random = new Random(1);
+        int numberOfSquares = 33 * 18;
+        int[] squares = {0, 1, 17, 18, 300, numberOfSquares - 1};
+        for(int run = 0; run != 20; run++){
+            checkAgainstModel(new FlatGrid(numberOfSquares), numberOfSquares, squares, random, 400);
+        }
+    }
+
+    /**
+     * Positions out of a stack are rejected.
+     */
+    public static void testPositionsOutOfTheStackAreRejected(){
+        var grid = new FlatGrid(4);
+        grid.insert(2, 0, TileObject.of(Token.sprBaba));
+        assertThrows(IndexOutOfBoundsException.class, () -> grid.insert(2, 2, TileObject.of(Token.sprRock)), "insert beyond the top");
+        assertThrows(IndexOutOfBoundsException.class, () -> grid.removeAt(2, 1), "remove beyond the top");
+        assertThrows(IndexOutOfBoundsException.class, () -> grid.removeAt(1, 0), "remove from an empty square");
+        assertThrows(NullPointerException.class, () -> grid.insert(2, 0, null), "insert null");
+    }
+}
@@ -0,0 +1,98 @@
+package fr.baba.engine.board;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks SquareSet against java.util.BitSet, on random operations.
+ */
+public final class SquareSetTest {
+    private static final int RANGE = 3 * 4096 + 100; // a few pages
+
+    private SquareSetTest(){}
+
+    /**
+     * @param random source of the squares
+     * @return a random square, close to the borders of a page half of the time
+     */
+    private static int randomSquare(Random random){
+        if(random.nextBoolean())
+            return random.nextInt(RANGE);
+        int border = 4096 * (1 + random.nextInt(3));
+        return border - 2 + random.nextInt(4);
+    }
+
+    /**
+     * @param expected reference set
+     * @param set set to be checked
+     * @param message description of the check
+     */
+    private static void assertSameSquares(BitSet expected, SquareSet set, String message){
+        assertEquals(expected.cardinality(), set.size(), message + ", size");
+        assertEquals(expected.isEmpty(), set.isEmpty(), message + ", isEmpty");
+        assertEquals(Arrays.toString(expected.stream().toArray()), Arrays.toString(set.toArray()), message + ", squares");
+        for(int square = expected.nextSetBit(0), from = 0; ; square = expected.nextSetBit(square + 1)){
+            assertEquals(square, set.nextSetBit(from), message + ", nextSetBit from " + from);
+            if(square == -1)
+                break;
+            assertTrue(set.get(square), message + ", get " + square);
+            from = square + 1;
+        }
+    }
+
+    /**
+     * Random additions and removals, then bulk operations between two sets.
+     */
+    public static void testRandomOperationsMatchBitSet(){
+        var random = new Random(3);
+        for(int run = 0; run != 50; run++){
+            var expected = new BitSet();
+            var otherExpected = new BitSet();
+            var set = new SquareSet();
+            var other = new SquareSet();
+            for(int step = 0; step != 200; step++){
+                int square = randomSquare(random);
+                boolean value = random.nextInt(3) != 0;
+                if(random.nextBoolean()){
+                    expected.set(square, value);
+                    set.set(square, value);
+                }else{
+                    otherExpected.set(square, value);
+                    other.set(square, value);
+                }
+            }
+            assertSameSquares(expected, set, "run " + run);
+            assertSameSquares(otherExpected, other, "other set of run " + run);
+            assertEquals(expected.intersects(otherExpected), set.intersects(other), "intersects, run " + run);
+            var copy = set.copy();
+            var union = (BitSet) expected.clone();
+            union.or(otherExpected);
+            set.or(other);
+            assertSameSquares(union, set, "or, run " + run);
+            var intersection = (BitSet) expected.clone();
+            intersection.and(otherExpected);
+            copy.and(other);
+            assertSameSquares(intersection, copy, "and, run " + run);
+            assertSameSquares(otherExpected, other, "operand of run " + run);
+            set.clear();
+            assertSameSquares(new BitSet(), set, "clear, run " + run);
+        }
+    }
+
+    /**
+     * A set only takes memory for the pages it uses.
+     */
+    public static void testPagesAreAllocatedOnDemand(){
+        var set = new SquareSet();
+        long emptyBytes = set.bytes();
+        set.set(1_000_000_000);
+        set.set(1_000_000_001);
+        assertTrue(set.bytes() - emptyBytes < 1 << 20, "two far squares take less than 1 MB, took " + (set.bytes() - emptyBytes));
+        assertEquals(1_000_000_000, set.nextSetBit(0), "first square");
+        assertEquals(2, set.size(), "size");
+    }
+}
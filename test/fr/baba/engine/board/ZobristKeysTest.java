@@ -0,0 +1,120 @@
+package fr.baba.engine.board;
+
+import fr.baba.engine.Simulation;
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+import fr.baba.utils.Direction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks the state hash a board keeps up to date against the hash of the board computed from scratch.
+ */
+public final class ZobristKeysTest {
+    private static final Token[] TOKENS = Token.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final long LEVEL_0_HASH = 4499070029152003389L;
+
+    private ZobristKeysTest(){}
+
+    /**
+     * @param board a board
+     * @return the hash of the board, summing the keys of all its objects and of the properties of all the tokens
+     */
+    private static long hashFromScratch(Board board){
+        long hash = 0;
+        for(int col = 0; col != board.getNumberOfCol(); col++){
+            for(int row = 0; row != board.getNumberOfRow(); row++){
+                int square = col * board.getNumberOfRow() + row;
+                for(var obj : board.getSquareOnGrid(col, row)){
+                    hash += ZobristKeys.objectKey(square, obj.getToken().ordinal());
+                }
+            }
+        }
+        for(var token : TOKENS){
+            hash += ZobristKeys.propertyKey(token.ordinal(), board.getRuleContext().getPropertyMask(token));
+        }
+        return hash;
+    }
+
+    /**
+     * @param board a board
+     * @param message description of the board
+     */
+    private static void assertHashUpToDate(Board board, String message){
+        assertEquals(hashFromScratch(board), board.getStateHash(), message + ", against the hash from scratch");
+        var rebuilt = new Board(board.getNumberOfCol(), board.getNumberOfRow());
+        rebuilt.restoreState(board.getStateEncoding());
+        rebuilt.applyRuleSet(board.getRuleContext().getRuleSet());
+        assertEquals(rebuilt.getStateHash(), board.getStateHash(), message + ", against a rebuilt board");
+        assertTrue(rebuilt.sameStateAs(board), message + ", rebuilt board in the same state");
+        assertEquals(board.getStateHash(), board.copy().getStateHash(), message + ", against a copy");
+    }
+
+    /**
+     * Random plays of every shipped level, in which objects move, are destroyed or converted, and rules change.
+     */
+    public static void testShippedLevelsMatchHashFromScratch() throws IOException {
+        var levels = Files.list(Path.of("levels")).sorted().collect(Collectors.toList());
+        for(var level : levels){
+            var random = new Random(level.getFileName().toString().hashCode());
+            for(int seed = 0; seed != 5; seed++){
+                var simulation = Simulation.load(level.toString());
+                var board = simulation.getBoard();
+                simulation.getStatus();
+                assertHashUpToDate(board, level + " before any move");
+                for(int turn = 0; turn != 100; turn++){
+                    simulation.step(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+                    assertHashUpToDate(board, level + ", turn " + turn);
+                }
+            }
+        }
+    }
+
+    /**
+     * Random mutations, on dense and sparse boards, bring the hash back when they are undone.
+     */
+    public static void testMutationsMatchHashFromScratch(){
+        var random = new Random(16);
+        for(var sparse : new boolean[]{false, true}){
+            var board = new Board(12, 9, sparse);
+            long emptyHash = board.getStateHash();
+            for(int step = 0; step != 2000; step++){
+                int col = random.nextInt(board.getNumberOfCol());
+                int row = random.nextInt(board.getNumberOfRow());
+                int size = board.getSquareSize(col, row);
+                if(size == 0 || random.nextInt(3) != 0)
+                    board.addObjectToSquare(TileObject.of(TOKENS[random.nextInt(TOKENS.length)]), col, row);
+                else if(random.nextBoolean())
+                    board.removeObjectFromSquare(board.getObjectOnSquare(col, row, random.nextInt(size)), col, row);
+                else
+                    board.clearSquare(col, row);
+                if(step % 50 == 0)
+                    assertHashUpToDate(board, (sparse ? "sparse" : "dense") + " board, step " + step);
+            }
+            for(int col = 0; col != board.getNumberOfCol(); col++){
+                for(int row = 0; row != board.getNumberOfRow(); row++){
+                    board.clearSquare(col, row);
+                }
+            }
+            assertEquals(emptyHash, board.getStateHash(), "hash of the board emptied again");
+        }
+    }
+
+    /**
+     * Keys are the same on every run, as replays store hashes: the hash of a level,
+     * its rules collected, is pinned.
+     */
+    public static void testHashesAreStable() throws IOException {
+        var simulation = Simulation.load("levels/level_0");
+        simulation.getStatus();
+        assertEquals(LEVEL_0_HASH, simulation.getBoard().getStateHash(), "hash of level_0");
+    }
+}
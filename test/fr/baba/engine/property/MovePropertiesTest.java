@@ -0,0 +1,212 @@
+package fr.baba.engine.property;
+
+import fr.baba.engine.board.Board;
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+import fr.baba.utils.Direction;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks the moves planned by MoveProperties on boards whose outcome is known.
+ */
+public final class MovePropertiesTest {
+    private static final RuleSet RULES = new RuleSet.Builder().
+            addProperty(Token.nounBaba, Token.You).
+            addProperty(Token.nounRock, Token.Push).
+            addProperty(Token.nounWall, Token.Stop).
+            build();
+
+    private MovePropertiesTest(){}
+
+    /**
+     * @param numberOfCol number of columns of the board
+     * @param numberOfRow number of rows of the board
+     * @return an empty board on which BABA IS YOU, ROCK IS PUSH and WALL IS STOP
+     */
+    static Board boardWithRules(int numberOfCol, int numberOfRow){
+        var board = new Board(numberOfCol, numberOfRow);
+        board.applyRuleSet(RULES);
+        return board;
+    }
+
+    /**
+     * @param board a board
+     * @param colNumber column number of a square
+     * @param rowNumber row number of a square
+     * @return the tokens of the objects of the square, from the bottom up
+     */
+    static List<Token> tokensAt(Board board, int colNumber, int rowNumber){
+        return board.getSquareOnGrid(colNumber, rowNumber).stream().
+                map(TileObject::getToken).
+                collect(Collectors.toList());
+    }
+
+    /**
+     * @param board a board
+     * @param tokens tokens expected on the first row, one per column, null for an empty square
+     */
+    private static void assertFirstRow(Board board, Token... tokens){
+        for(int col = 0; col != tokens.length; col++){
+            var expected = tokens[col] == null ? List.of() : List.of(tokens[col]);
+            assertEquals(expected, tokensAt(board, col, 0), "square (" + col + ", 0)");
+        }
+    }
+
+    /**
+     * A YOU object pushes the whole chain of PUSH objects in front of it.
+     */
+    public static void testPushChain(){
+        var board = boardWithRules(6, 1);
+        board.addObjectToSquare(TileObject.of(Token.sprBaba), 0, 0);
+        board.addObjectToSquare(TileObject.of(Token.sprRock), 1, 0);
+        board.addObjectToSquare(TileObject.of(Token.sprRock), 2, 0);
+        MoveProperties.moveAllYouObjects(board, Direction.east);
+        assertFirstRow(board, null, Token.sprBaba, Token.sprRock, Token.sprRock, null, null);
+    }
+
+    /**
+     * A chain ending on a STOP object, or on the border of the board, doesn't move.
+     */
+    public static void testBlockedChain(){
+        var board = boardWithRules(6, 1);
+        board.addObjectToSquare(TileObject.of(Token.sprBaba), 1, 0);
+        board.addObjectToSquare(TileObject.of(Token.sprRock), 2, 0);
+        board.addObjectToSquare(TileObject.of(Token.sprWall), 3, 0);
+        board.addObjectToSquare(TileObject.of(Token.sprRock), 5, 0);
+        MoveProperties.moveAllYouObjects(board, Direction.east);
+        assertFirstRow(board, null, Token.sprBaba, Token.sprRock, Token.sprWall, null, Token.sprRock);
+        board.removeObjectFromSquare(board.getObjectOnSquare(3, 0, 0), 3, 0);
+        board.addObjectToSquare(TileObject.of(Token.sprRock), 3, 0);
+        board.addObjectToSquare(TileObject.of(Token.sprRock), 4, 0);
+        MoveProperties.moveAllYouObjects(board, Direction.east);
+        assertFirstRow(board, null, Token.sprBaba, Token.sprRock, Token.sprRock, Token.sprRock, Token.sprRock);
+        MoveProperties.moveAllYouObjects(board, Direction.west);
+        assertFirstRow(board, Token.sprBaba, null, Token.sprRock, Token.sprRock, Token.sprRock, Token.sprRock);
+    }
+
+    /**
+     * YOU objects in a row all move, and an object both YOU and PUSH only moves once.
+     */
+    public static void testObjectsMoveOnce(){
+        var board = boardWithRules(6, 1);
+        board.applyRuleSet(new RuleSet.Builder().
+                addProperty(Token.nounBaba, Token.You).
+                addProperty(Token.nounBaba, Token.Push).
+                build());
+        board.addObjectToSquare(TileObject.of(Token.sprBaba), 0, 0);
+        board.addObjectToSquare(TileObject.of(Token.sprBaba), 1, 0);
+        board.addObjectToSquare(TileObject.of(Token.sprBaba), 2, 0);
+        MoveProperties.moveAllYouObjects(board, Direction.east);
+        assertFirstRow(board, null, Token.sprBaba, Token.sprBaba, Token.sprBaba, null, null);
+    }
+
+    /**
+     * Only the objects with the properties move: the others stay on their square,
+     * and the moved objects are put on top of the objects of their target.
+     */
+    public static void testOnlyYouAndPushObjectsMove(){
+        var board = boardWithRules(3, 3);
+        board.addObjectToSquare(TileObject.of(Token.sprFlag), 1, 2);
+        board.addObjectToSquare(TileObject.of(Token.sprBaba), 1, 2);
+        board.addObjectToSquare(TileObject.of(Token.sprFlag), 1, 1);
+        board.addObjectToSquare(TileObject.of(Token.sprRock), 1, 1);
+        MoveProperties.moveAllYouObjects(board, Direction.north);
+        assertEquals(List.of(Token.sprFlag), tokensAt(board, 1, 2), "square left by the YOU object");
+        assertEquals(List.of(Token.sprFlag, Token.sprBaba), tokensAt(board, 1, 1), "square left by the PUSH object");
+        assertEquals(List.of(Token.sprRock), tokensAt(board, 1, 0), "square the PUSH object is pushed to");
+    }
+
+    /**
+     * A push chain far longer than a call stack could follow recursively.
+     */
+    public static void testLongPushChain(){
+        int length = 100_000;
+        var board = boardWithRules(length + 2, 1);
+        board.addObjectToSquare(TileObject.of(Token.sprBaba), 0, 0);
+        for(int col = 1; col <= length; col++){
+            board.addObjectToSquare(TileObject.of(Token.sprRock), col, 0);
+        }
+        MoveProperties.moveAllYouObjects(board, Direction.east);
+        assertEquals(List.of(), tokensAt(board, 0, 0), "square left by the YOU object");
+        assertEquals(List.of(Token.sprBaba), tokensAt(board, 1, 0), "square of the YOU object");
+        assertEquals(List.of(Token.sprRock), tokensAt(board, length + 1, 0), "last square of the chain");
+        MoveProperties.moveAllYouObjects(board, Direction.east);
+        assertTrue(tokensAt(board, 1, 0).contains(Token.sprBaba), "chain blocked by the border");
+    }
+
+    /**
+     * Moves planned in parallel, by ranges of lines, give the same board as the moves
+     * of each line planned on its own by the sequential planner, on boards with
+     * far more than PARALLEL_THRESHOLD YOU objects, dense and sparse.
+     */
+    public static void testParallelPlanMatchesSequentialLines(){
+        var random = new Random(11);
+        var pool = new ForkJoinPool(4);
+        try{
+            for(var sparse : new boolean[]{false, true}){
+                var board = new Board(96, 96, sparse);
+                board.applyRuleSet(RULES);
+                for(int col = 0; col != board.getNumberOfCol(); col++){
+                    for(int row = 0; row != board.getNumberOfRow(); row++){
+                        int kind = random.nextInt(20);
+                        if(kind < 8)
+                            board.addObjectToSquare(TileObject.of(Token.sprBaba), col, row);
+                        else if(kind < 12)
+                            board.addObjectToSquare(TileObject.of(Token.sprRock), col, row);
+                        else if(kind < 14)
+                            board.addObjectToSquare(TileObject.of(Token.sprWall), col, row);
+                        if(kind < 3)
+                            board.addObjectToSquare(TileObject.of(Token.sprRock), col, row);
+                    }
+                }
+                assertTrue(board.getSquaresWithProperties(Token.You).length >= 2 * MoveProperties.PARALLEL_THRESHOLD, "enough YOU objects to split the plan");
+                for(var direction : Direction.values()){
+                    var parallel = board.copy();
+                    MoveProperties.moveAllYouObjects(parallel, direction, pool);
+                    assertSameAsSequentialLines(board, parallel, direction, (sparse ? "sparse" : "dense") + " board, " + direction);
+                    var common = board.copy();
+                    MoveProperties.moveAllYouObjects(common, direction);
+                    assertTrue(common.sameStateAs(parallel), "same board on the common pool, " + direction);
+                }
+            }
+        }finally{
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plans the moves of each line of board on its own, which takes the sequential planner,
+     * and compares the line with the one of the board moved in parallel.
+     * @param board board before the moves
+     * @param parallel board after the moves planned in parallel
+     * @param direction direction of the moves
+     * @param message description of the board
+     */
+    private static void assertSameAsSequentialLines(Board board, Board parallel, Direction direction, String message){
+        boolean byRow = direction.getVector().get(0) != 0;
+        int lines = byRow ? board.getNumberOfRow() : board.getNumberOfCol();
+        int length = byRow ? board.getNumberOfCol() : board.getNumberOfRow();
+        for(int line = 0; line != lines; line++){
+            var sequential = board.copy();
+            for(int col = 0; col != board.getNumberOfCol(); col++){
+                for(int row = 0; row != board.getNumberOfRow(); row++){
+                    if((byRow ? row : col) != line)
+                        sequential.clearSquare(col, row);
+                }
+            }
+            MoveProperties.moveAllYouObjects(sequential, direction);
+            for(int i = 0; i != length; i++){
+                int col = byRow ? i : line;
+                int row = byRow ? line : i;
+                assertEquals(tokensAt(sequential, col, row), tokensAt(parallel, col, row), message + ", square (" + col + ", " + row + ")");
+            }
+        }
+    }
+}
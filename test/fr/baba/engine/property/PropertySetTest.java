@@ -0,0 +1,131 @@
+package fr.baba.engine.property;
+
+import fr.baba.engine.boardElement.Token;
+import fr.baba.engine.boardElement.tokenType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Random;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertThrows;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks PropertySet against an EnumSet of properties.
+ */
+public final class PropertySetTest {
+    private static final Token[] PROPERTIES = Arrays.stream(Token.values()).
+            filter(token -> token.getType() == tokenType.property).
+            toArray(Token[]::new);
+
+    private PropertySetTest(){}
+
+    /**
+     * @param random source of the properties
+     * @return a random set of properties
+     */
+    private static EnumSet<Token> randomProperties(Random random){
+        var properties = EnumSet.noneOf(Token.class);
+        for(var property : PROPERTIES){
+            if(random.nextBoolean())
+                properties.add(property);
+        }
+        return properties;
+    }
+
+    /**
+     * @param properties some properties
+     * @return a PropertySet holding them
+     */
+    private static PropertySet toPropertySet(EnumSet<Token> properties){
+        return new PropertySet(properties.toArray(new Token[0]));
+    }
+
+    /**
+     * @param expected properties expected
+     * @param actual PropertySet to be checked
+     * @param message description of the check
+     */
+    private static void assertSameProperties(EnumSet<Token> expected, PropertySet actual, String message){
+        for(var property : PROPERTIES){
+            assertEquals(expected.contains(property), actual.hasProperty(property), message + ", " + property);
+        }
+        assertEquals(expected.isEmpty(), actual.isEmpty(), message + ", emptiness");
+        assertEquals(toPropertySet(expected), actual, message + ", equality");
+        assertEquals(toPropertySet(expected).hashCode(), actual.hashCode(), message + ", hash code");
+        assertEquals(expected.toString(), actual.toString(), message + ", string");
+    }
+
+    /**
+     * Random single and bulk operations give the same sets as the same operations on EnumSets.
+     */
+    public static void testOperationsMatchEnumSet(){
+        var random = new Random(14);
+        for(int run = 0; run != 2000; run++){
+            var expected = randomProperties(random);
+            var other = randomProperties(random);
+            var properties = toPropertySet(expected);
+            var otherProperties = toPropertySet(other);
+            assertSameProperties(expected, properties, "built");
+            assertEquals(expected.containsAll(other), properties.containsAll(otherProperties), "containsAll");
+            assertEquals(!Collections.disjoint(expected, other), properties.intersects(otherProperties), "intersects");
+            var property = PROPERTIES[random.nextInt(PROPERTIES.length)];
+            boolean is = random.nextBoolean();
+            if(is)
+                expected.add(property);
+            else
+                expected.remove(property);
+            properties.setProperty(is, property);
+            assertSameProperties(expected, properties, "setProperty");
+            var copy = properties.copy();
+            switch(random.nextInt(4)){
+                case 0 -> {
+                    expected.addAll(other);
+                    assertTrue(properties.addAll(otherProperties) == properties, "addAll returns the set");
+                }
+                case 1 -> {
+                    expected.retainAll(other);
+                    assertTrue(properties.retainAll(otherProperties) == properties, "retainAll returns the set");
+                }
+                case 2 -> {
+                    expected.removeAll(other);
+                    assertTrue(properties.removeAll(otherProperties) == properties, "removeAll returns the set");
+                }
+                default -> {
+                    expected.clear();
+                    properties.clearProperties();
+                }
+            }
+            assertSameProperties(expected, properties, "bulk operation");
+            assertSameProperties(toEnumSet(copy), copy, "copy left untouched");
+            assertSameProperties(other, otherProperties, "operand left untouched");
+            assertEquals(properties, PropertySet.fromMask(properties.toMask()), "mask round trip");
+        }
+    }
+
+    /**
+     * @param properties a PropertySet
+     * @return an EnumSet holding its properties
+     */
+    private static EnumSet<Token> toEnumSet(PropertySet properties){
+        var set = EnumSet.noneOf(Token.class);
+        for(var property : PROPERTIES){
+            if(properties.hasProperty(property))
+                set.add(property);
+        }
+        return set;
+    }
+
+    /**
+     * Tokens which are not properties are rejected, as they always have been.
+     */
+    public static void testOnlyPropertiesAreAccepted(){
+        assertThrows(IllegalArgumentException.class, () -> new PropertySet(Token.sprBaba), "sprite in the constructor");
+        assertThrows(IllegalArgumentException.class, () -> new PropertySet().setProperty(true, Token.nounBaba), "noun added");
+        assertThrows(IllegalArgumentException.class, () -> new PropertySet().hasProperty(Token.Is), "operator checked");
+        assertThrows(IllegalArgumentException.class, () -> PropertySet.fromMask(1L << Token.sprBaba.ordinal()), "mask of a sprite");
+        assertThrows(NullPointerException.class, () -> new PropertySet().setProperty(true, null), "null property");
+    }
+}
@@ -0,0 +1,143 @@
+package fr.baba.engine.property;
+
+import fr.baba.engine.Simulation;
+import fr.baba.engine.board.Board;
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+import fr.baba.engine.boardElement.tokenType;
+import fr.baba.utils.Direction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertTrue;
+import static java.lang.Math.abs;
+
+/**
+ * Checks the rules found by the incremental updates of a RuleTracker
+ * against a parse of the whole board, as the rules were collected before.
+ */
+public final class RuleTrackerTest {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final Direction[] RULE_DIRECTIONS = {Direction.north, Direction.west};
+    private static final Token[] WORDS = Arrays.stream(Token.values()).
+            filter(token -> token.getType() != tokenType.sprite).
+            toArray(Token[]::new);
+
+    private RuleTrackerTest(){}
+
+    /**
+     * Reads every rule of the board, scanning it column by column.
+     * @param board board on which the rules are written
+     * @return the rules of the board
+     */
+    private static RuleSet parseWholeBoard(Board board){
+        var builder = new RuleSet.Builder();
+        for(int i = 0; i < board.getNumberOfCol(); i++){
+            for(int j = 0; j < board.getNumberOfRow(); j++){
+                if(!board.squareHasToken(i, j, Token.Is))
+                    continue;
+                for(var vector : RULE_DIRECTIONS){
+                    int col = i;
+                    int row = j;
+                    board.getObjectOnSquareOfType(col + vector.getVector().get(0), row + vector.getVector().get(1), tokenType.noun).ifPresent(noun -> {
+                        int complementCol = col + abs(vector.getVector().get(0));
+                        int complementRow = row + abs(vector.getVector().get(1));
+                        board.getObjectOnSquareOfType(complementCol, complementRow, tokenType.property).ifPresent(property -> builder.addProperty(noun.getToken(), property.getToken()));
+                        board.getObjectOnSquareOfType(complementCol, complementRow, tokenType.noun).ifPresent(complement -> builder.addTransform(noun.getToken(), complement.getToken()));
+                    });
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Updates the tracker of the board and checks its rules against a parse of the whole board,
+     * and against a new tracker parsing a fresh board holding the same objects.
+     * @param board board on which the rules are written
+     * @param message description of the board
+     */
+    private static void assertRulesUpToDate(Board board, String message){
+        var tracker = board.getRuleTracker();
+        tracker.update(board);
+        assertEquals(parseWholeBoard(board), tracker.getRuleSet(), message + ", against a parse of the whole board");
+        var fresh = new Board(board.getNumberOfCol(), board.getNumberOfRow());
+        fresh.restoreState(board.getStateEncoding());
+        var freshTracker = new RuleTracker();
+        freshTracker.update(fresh);
+        assertEquals(freshTracker.getRuleSet(), tracker.getRuleSet(), message + ", against a new tracker");
+    }
+
+    /**
+     * Random words added, removed and moved on a small board crowded with words,
+     * so that rules are made and broken at every update, on the borders too.
+     */
+    public static void testRandomMutationsMatchFullParse(){
+        var random = new Random(7);
+        for(int run = 0; run != 20; run++){
+            var board = new Board(6 + random.nextInt(6), 4 + random.nextInt(6));
+            int numberOfCol = board.getNumberOfCol();
+            int numberOfRow = board.getNumberOfRow();
+            for(int step = 0; step != 300; step++){
+                int col = random.nextInt(numberOfCol);
+                int row = random.nextInt(numberOfRow);
+                int size = board.getSquareSize(col, row);
+                int action = random.nextInt(3);
+                if(action == 0 || size == 0){
+                    var word = random.nextInt(3) == 0 ? Token.Is : WORDS[random.nextInt(WORDS.length)];
+                    board.addObjectToSquare(TileObject.of(word), col, row);
+                }else if(action == 1){
+                    board.removeObjectFromSquare(board.getObjectOnSquare(col, row, random.nextInt(size)), col, row);
+                }else{
+                    board.transferObject(board.getObjectOnSquare(col, row, random.nextInt(size)), col, row, random.nextInt(numberOfCol), random.nextInt(numberOfRow));
+                }
+                if(random.nextInt(4) == 0)
+                    assertRulesUpToDate(board, "run " + run + ", step " + step);
+            }
+            assertRulesUpToDate(board, "run " + run + ", end");
+        }
+    }
+
+    /**
+     * Random plays of every shipped level, in which words are pushed around.
+     */
+    public static void testShippedLevelsMatchFullParse() throws IOException {
+        var levels = Files.list(Path.of("levels")).sorted().collect(Collectors.toList());
+        for(var level : levels){
+            var random = new Random(level.getFileName().toString().hashCode());
+            for(int seed = 0; seed != 5; seed++){
+                var simulation = Simulation.load(level.toString());
+                var board = simulation.getBoard();
+                assertRulesUpToDate(board, level + " before any move");
+                for(int turn = 0; turn != 200; turn++){
+                    simulation.step(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+                    assertRulesUpToDate(board, level + ", turn " + turn);
+                }
+            }
+        }
+    }
+
+    /**
+     * A copy of a tracker keeps the rules it knew, and is then updated independently.
+     */
+    public static void testCopyIsIndependent(){
+        var board = new Board(5, 5);
+        board.addObjectToSquare(TileObject.of(Token.nounBaba), 0, 0);
+        board.addObjectToSquare(TileObject.of(Token.Is), 1, 0);
+        board.addObjectToSquare(TileObject.of(Token.You), 2, 0);
+        assertRulesUpToDate(board, "BABA IS YOU");
+        assertTrue(board.getRuleTracker().getRuleSet().hasProperty(Token.nounBaba, Token.You), "BABA IS YOU read");
+        var copy = board.copy();
+        copy.removeObjectFromSquare(copy.getObjectOnSquare(1, 0, 0), 1, 0);
+        assertRulesUpToDate(copy, "rule broken on the copy");
+        assertEquals(RuleSet.EMPTY, copy.getRuleTracker().getRuleSet(), "no rule left on the copy");
+        assertRulesUpToDate(board, "original board");
+        assertTrue(board.getRuleTracker().getRuleSet().hasProperty(Token.nounBaba, Token.You), "BABA IS YOU kept on the original board");
+    }
+}
@@ -0,0 +1,153 @@
+package fr.baba.engine.solver;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertThrows;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks ConcurrentTranspositionTable against a HashSet of fingerprints,
+ * alone and with several threads adding the same fingerprints at once.
+ */
+public final class ConcurrentTranspositionTableTest {
+    private static final int THREADS = 8;
+
+    private ConcurrentTranspositionTableTest(){}
+
+    /**
+     * @param random source of the fingerprints
+     * @param count number of fingerprints
+     * @return random fingerprints, many of them repeated, some of them sharing their low bits
+     */
+    private static long[] fingerprints(Random random, int count){
+        var fingerprints = new long[count];
+        for(int i = 0; i != count; i++){
+            fingerprints[i] = random.nextInt(4) == 0 ? ((long) random.nextInt(count / 4) << 40) : random.nextInt(count / 2);
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Used from a single thread, the table behaves as a set.
+     */
+    public static void testAddMatchesHashSet(){
+        var fingerprints = fingerprints(new Random(5), 40_000);
+        var table = new ConcurrentTranspositionTable(fingerprints.length);
+        var model = new HashSet<Long>();
+        for(int i = 0; i != fingerprints.length; i++){
+            long fingerprint = fingerprints[i];
+            assertEquals(model.add(TranspositionTableTest.stored(fingerprint)), table.add(fingerprint), "addition " + i + " of " + fingerprint);
+            assertEquals(model.size(), table.size(), "size after addition " + i);
+        }
+        assertTrue(!table.isFull(), "table is not full");
+        assertEquals(8L * Integer.highestOneBit(2 * fingerprints.length - 1) * 2, table.bytes(), "slots allocated once for the maximum size");
+    }
+
+    /**
+     * Threads adding the same fingerprints at once, each in its own order:
+     * every distinct fingerprint is added by exactly one of them.
+     */
+    public static void testConcurrentAddsMatchHashSet() throws InterruptedException, ExecutionException {
+        var random = new Random(6);
+        var fingerprints = fingerprints(random, 100_000);
+        var model = new HashSet<Long>();
+        for(var fingerprint : fingerprints){
+            model.add(TranspositionTableTest.stored(fingerprint));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try{
+            for(int run = 0; run != 5; run++){
+                var table = new ConcurrentTranspositionTable(fingerprints.length);
+                var start = new CountDownLatch(1);
+                var results = new ArrayList<Future<HashSet<Long>>>();
+                for(int thread = 0; thread != THREADS; thread++){
+                    long seed = random.nextLong();
+                    results.add(executor.submit(() -> {
+                        var order = new Random(seed);
+                        var added = new HashSet<Long>();
+                        start.await();
+                        for(int i = 0; i != fingerprints.length; i++){
+                            long fingerprint = fingerprints[order.nextInt(fingerprints.length)];
+                            if(table.add(fingerprint) && !added.add(TranspositionTableTest.stored(fingerprint)))
+                                throw new AssertionError(fingerprint + " added twice by the same thread");
+                        }
+                        for(var fingerprint : fingerprints){
+                            if(table.add(fingerprint))
+                                added.add(TranspositionTableTest.stored(fingerprint));
+                        }
+                        return added;
+                    }));
+                }
+                start.countDown();
+                var union = new HashSet<Long>();
+                int total = 0;
+                for(var result : results){
+                    total += result.get().size();
+                    union.addAll(result.get());
+                }
+                assertEquals(model, union, "run " + run + ", fingerprints added");
+                assertEquals(model.size(), total, "run " + run + ", every fingerprint added by exactly one thread");
+                assertEquals(model.size(), table.size(), "run " + run + ", size");
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Once full, the table refuses new fingerprints, from any number of threads,
+     * and keeps the ones it holds.
+     */
+    public static void testFullTableRefusesNewStates() throws InterruptedException, ExecutionException {
+        int maxSize = 1_000;
+        var table = new ConcurrentTranspositionTable(maxSize);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try{
+            var results = new ArrayList<Future<Integer>>();
+            for(int thread = 0; thread != THREADS; thread++){
+                long first = thread * 10_000L;
+                results.add(executor.submit(() -> {
+                    int added = 0;
+                    for(long fingerprint = first; fingerprint != first + maxSize; fingerprint++){
+                        if(table.add(fingerprint))
+                            added++;
+                    }
+                    return added;
+                }));
+            }
+            int total = 0;
+            for(var result : results){
+                total += result.get();
+            }
+            assertEquals(maxSize, total, "fingerprints added");
+        }finally{
+            executor.shutdownNow();
+        }
+        assertTrue(table.isFull(), "table is full");
+        assertEquals(maxSize, table.size(), "size");
+        assertTrue(!table.add(-42), "new fingerprint refused");
+        assertEquals(maxSize, table.size(), "size after a refused fingerprint");
+        int held = 0;
+        for(long fingerprint = 0; fingerprint != THREADS * 10_000L; fingerprint++){
+            if(!table.add(fingerprint))
+                held++;
+        }
+        assertEquals(THREADS * 10_000L, held, "no fingerprint added once full");
+    }
+
+    /**
+     * The maximum size has to fit the table's slots.
+     */
+    public static void testMaximumSizeIsBounded(){
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentTranspositionTable(0), "no state");
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentTranspositionTable((1 << 29) + 1), "more than 2^29 states");
+    }
+}
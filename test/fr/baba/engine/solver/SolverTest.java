@@ -0,0 +1,174 @@
+package fr.baba.engine.solver;
+
+import fr.baba.engine.Simulation;
+import fr.baba.engine.board.Board;
+import fr.baba.engine.boardElement.TileObject;
+import fr.baba.engine.boardElement.Token;
+import fr.baba.utils.Direction;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertThrows;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks the solutions found by Solver on shipped levels whose shortest solutions are known,
+ * sequentially and in parallel, and that searches stopped by their caps are reported as aborted.
+ */
+public final class SolverTest {
+    private SolverTest(){}
+
+    /**
+     * @param level name of a shipped level
+     * @return the board of the level
+     * @throws IOException if the level can't be read
+     */
+    static Board level(String level) throws IOException {
+        return Simulation.load("levels/" + level).getBoard();
+    }
+
+    /**
+     * @param board board of a level, which is left untouched
+     * @param moves moves to be played
+     * @return the status of the level once the moves are played
+     */
+    static Simulation.Status replay(Board board, List<Direction> moves){
+        var outcome = new Simulation(board.copy()).play(moves);
+        assertEquals(moves.size(), outcome.getTurns(), "every move is played before the level ends");
+        return outcome.getStatus();
+    }
+
+    /**
+     * @return a board on which BABA IS YOU, with no WIN: a BABA can only wander under the rule
+     */
+    static Board unwinnableBoard(){
+        var board = new Board(3, 2);
+        board.addObjectToSquare(TileObject.of(Token.nounBaba), 0, 0);
+        board.addObjectToSquare(TileObject.of(Token.Is), 1, 0);
+        board.addObjectToSquare(TileObject.of(Token.You), 2, 0);
+        board.addObjectToSquare(TileObject.of(Token.sprBaba), 1, 1);
+        return board;
+    }
+
+    /**
+     * @param solution solution of a search
+     * @param message description of the search
+     */
+    static void assertAborted(Solution solution, String message){
+        assertEquals(Solution.Status.aborted, solution.getStatus(), message);
+        assertEquals(List.of(), solution.getMoves(), message + ", moves");
+    }
+
+    /**
+     * Breadth-first search finds a shortest solution, which wins the level when replayed,
+     * and leaves the board of the level untouched.
+     */
+    public static void testBreadthFirstFindsShortestSolutions() throws IOException {
+        String[] levels = {"level_0", "level_6"};
+        int[] shortest = {8, 15};
+        for(int i = 0; i != levels.length; i++){
+            var board = level(levels[i]);
+            var initial = board.copy();
+            var solution = new Solver(board).solve(Solver.Strategy.bfs);
+            assertEquals(Solution.Status.solved, solution.getStatus(), levels[i]);
+            assertEquals(shortest[i], solution.getMoves().size(), levels[i] + ", number of moves");
+            assertEquals(Simulation.Status.won, replay(board, solution.getMoves()), levels[i] + ", replay of " + solution.getMoves());
+            assertTrue(board.sameStateAs(initial), levels[i] + ", board left untouched");
+        }
+    }
+
+    /**
+     * A* finds a solution which wins the level when replayed, and is never shorter than a shortest one.
+     */
+    public static void testBestFirstSolutionsWin() throws IOException {
+        String[] levels = {"level_0", "level_6"};
+        int[] shortest = {8, 15};
+        for(int i = 0; i != levels.length; i++){
+            var board = level(levels[i]);
+            var solution = new Solver(board).solve(Solver.Strategy.astar);
+            assertEquals(Solution.Status.solved, solution.getStatus(), levels[i]);
+            assertTrue(solution.getMoves().size() >= shortest[i], levels[i] + ", " + solution.getMoves().size() + " moves");
+            assertEquals(Simulation.Status.won, replay(board, solution.getMoves()), levels[i] + ", replay of " + solution.getMoves());
+        }
+    }
+
+    /**
+     * A level whose every reachable state has been explored without winning is unsolvable.
+     */
+    public static void testExhaustedSearchIsUnsolvable(){
+        for(var strategy : Solver.Strategy.values()){
+            var solution = new Solver(unwinnableBoard()).solve(strategy);
+            assertEquals(Solution.Status.unsolvable, solution.getStatus(), strategy.toString());
+            assertTrue(solution.getStoredStates() > 1, strategy + ", several states explored");
+        }
+    }
+
+    /**
+     * A search reaching its maximum number of states or frontier memory is aborted,
+     * never reported as unsolvable, even on a level it could have solved or proven unsolvable.
+     */
+    public static void testCapsAbortSearch() throws IOException {
+        for(var strategy : Solver.Strategy.values()){
+            assertAborted(new Solver(level("level_6"), 10).solve(strategy), strategy + ", 10 states");
+            assertAborted(new Solver(level("level_6"), Solver.DEFAULT_MAX_STATES, 1).solve(strategy), strategy + ", 1 byte of frontier");
+            assertAborted(new Solver(unwinnableBoard(), 2).solve(strategy), strategy + ", 2 states of an unwinnable board");
+        }
+        var solution = new Solver(level("level_1"), 1_000).solve(Solver.Strategy.bfs);
+        assertAborted(solution, "level_1, 1000 states");
+        assertTrue(solution.getStoredStates() <= 1_000 + 4, "states stored past the cap: " + solution.getStoredStates());
+    }
+
+    /**
+     * The parallel breadth-first search finds solutions as short as the sequential one,
+     * which win the level when replayed, whatever the number of threads.
+     */
+    public static void testParallelMatchesSequential() throws IOException {
+        for(var level : new String[]{"level_0", "level_6"}){
+            var board = level(level);
+            var sequential = new Solver(board).solve(Solver.Strategy.bfs);
+            for(int threads : new int[]{1, 2, 4}){
+                var pool = new ForkJoinPool(threads);
+                try{
+                    var message = level + ", " + threads + " thread(s)";
+                    var parallel = new Solver(board).solveInParallel(pool);
+                    assertEquals(Solution.Status.solved, parallel.getStatus(), message);
+                    assertEquals(sequential.getMoves().size(), parallel.getMoves().size(), message + ", number of moves");
+                    assertEquals(Simulation.Status.won, replay(board, parallel.getMoves()), message + ", replay of " + parallel.getMoves());
+                    assertEquals(threads, parallel.getThreads(), message + ", threads");
+                }finally{
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    /**
+     * The parallel search proves an unwinnable board unsolvable, and is aborted by its caps.
+     */
+    public static void testParallelCapsAbortSearch() throws IOException {
+        var pool = new ForkJoinPool(4);
+        try{
+            assertEquals(Solution.Status.unsolvable, new Solver(unwinnableBoard()).solveInParallel(pool).getStatus(), "unwinnable board");
+            assertAborted(new Solver(unwinnableBoard(), 2).solveInParallel(pool), "2 states of an unwinnable board");
+            assertAborted(new Solver(level("level_6"), 10).solveInParallel(pool), "10 states");
+            assertAborted(new Solver(level("level_6"), Solver.DEFAULT_MAX_STATES, 1).solveInParallel(pool), "1 byte of frontier");
+            var solution = new Solver(level("level_1"), 1_000).solveInParallel(pool);
+            assertAborted(solution, "level_1, 1000 states");
+            assertTrue(solution.getStoredStates() <= 1_000, "states stored past the cap: " + solution.getStoredStates());
+        }finally{
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Caps have to be positive.
+     */
+    public static void testCapsHaveToBePositive() throws IOException {
+        var board = level("level_0");
+        assertThrows(IllegalArgumentException.class, () -> new Solver(board, 0), "no state");
+        assertThrows(IllegalArgumentException.class, () -> new Solver(board, 10, 0), "no frontier memory");
+    }
+}
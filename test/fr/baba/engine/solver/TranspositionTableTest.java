@@ -0,0 +1,46 @@
+package fr.baba.engine.solver;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Checks TranspositionTable against a HashSet of fingerprints.
+ */
+public final class TranspositionTableTest {
+    private TranspositionTableTest(){}
+
+    /**
+     * @param fingerprint fingerprint of a state
+     * @return the fingerprint the table stores for it (0 marks its free slots, so it is stored as 1)
+     */
+    static long stored(long fingerprint){
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    /**
+     * Random fingerprints, many of them added several times, through several growths of the table,
+     * with fingerprints sharing their low bits so that they compete for the same slots.
+     */
+    public static void testAddMatchesHashSet(){
+        var random = new Random(4);
+        var table = new TranspositionTable();
+        var model = new HashSet<Long>();
+        long[] special = {0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 32, (1L << 32) | 1};
+        for(var fingerprint : special){
+            assertEquals(model.add(stored(fingerprint)), table.add(fingerprint), "fingerprint " + fingerprint);
+        }
+        for(int i = 0; i != 50_000; i++){
+            long fingerprint = random.nextInt(4) == 0 ? ((long) random.nextInt(20_000) << 40) : random.nextInt(40_000);
+            assertEquals(model.add(stored(fingerprint)), table.add(fingerprint), "addition " + i + " of " + fingerprint);
+            assertEquals(model.size(), table.size(), "size after addition " + i);
+        }
+        for(var fingerprint : model){
+            assertTrue(!table.add(fingerprint), "fingerprint " + fingerprint + " is still in the table");
+        }
+        assertEquals(model.size(), table.size(), "final size");
+        assertTrue(table.bytes() >= 8L * table.size() && table.bytes() <= 32L * table.size(), "table of " + table.size() + " states takes " + table.bytes() + " bytes");
+    }
+}
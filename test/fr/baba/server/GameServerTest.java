@@ -0,0 +1,260 @@
+package fr.baba.server;
+
+import fr.baba.engine.Simulation;
+import fr.baba.engine.board.Board;
+import fr.baba.engine.board.BoardHistory;
+import fr.baba.engine.solver.Solver;
+import fr.baba.utils.Direction;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static fr.baba.Assert.assertEquals;
+import static fr.baba.Assert.assertTrue;
+
+/**
+ * Plays sessions of a GameServer through the loopback interface, checking its answers
+ * against a Simulation of the same level played alongside: the squares sent by the deltas,
+ * applied one after the other, always give the board played.
+ */
+public final class GameServerTest {
+    private static final Path LEVELS = Path.of("levels");
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    private GameServerTest(){}
+
+    /**
+     * Client of a server, keeping the board as the deltas it receives describe it.
+     */
+    private static final class Client implements Closeable {
+        private final Socket socket;
+        private final BufferedReader input;
+        private final Writer output;
+        private final Map<String, List<String>> squares = new HashMap<>(); // tokens of the used squares, by "col row"
+        private String delta; // last DELTA line received
+
+        private Client(GameServer server) throws IOException {
+            this.socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+            socket.setSoTimeout(TIMEOUT_MILLIS);
+            this.input = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.output = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @param command command to be sent
+         * @return the first line of the answer, null if the server has closed the connection
+         * @throws IOException if the connection failed
+         */
+        private String send(String command) throws IOException {
+            output.write(command + "\n");
+            output.flush();
+            return input.readLine();
+        }
+
+        /**
+         * Sends a command answered by a delta, and applies the delta.
+         * @param command command to be sent
+         * @return the DELTA line of the answer, without its number of squares
+         * @throws IOException if the connection failed
+         */
+        private String sendForDelta(String command) throws IOException {
+            readDelta(send(command));
+            return turnAndStatus();
+        }
+
+        /**
+         * @return the last DELTA line received, without its number of squares
+         */
+        private String turnAndStatus(){
+            return delta.substring(0, delta.lastIndexOf(' '));
+        }
+
+        /**
+         * Reads the squares of a delta, and applies them.
+         * @param header DELTA line of the delta
+         * @throws IOException if the connection failed
+         */
+        private void readDelta(String header) throws IOException {
+            assertTrue(header != null && header.startsWith("DELTA "), "delta expected, got " + header);
+            delta = header;
+            int count = Integer.parseInt(header.split(" ")[3]);
+            for(int i = 0; i != count; i++){
+                var words = input.readLine().split(" ");
+                assertEquals("SQUARE", words[0], "square " + i + " of " + header);
+                var tokens = Arrays.asList(words).subList(3, words.length);
+                if(tokens.isEmpty())
+                    squares.remove(words[1] + " " + words[2]);
+                else
+                    squares.put(words[1] + " " + words[2], List.copyOf(tokens));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * @param board a board
+     * @return the tokens of the squares holding objects, by "col row", as a client keeps them
+     */
+    private static Map<String, List<String>> squaresOf(Board board){
+        var squares = new HashMap<String, List<String>>();
+        for(int square = board.nextUsedSquare(0); square != -1; square = board.nextUsedSquare(square + 1)){
+            int col = board.getColOfSquare(square);
+            int row = board.getRowOfSquare(square);
+            if(board.getSquareSize(col, row) == 0)
+                continue; // only a background object, which isn't sent
+            var tokens = new String[board.getSquareSize(col, row)];
+            for(int i = 0; i != tokens.length; i++){
+                tokens[i] = board.getObjectOnSquare(col, row, i).getToken().name();
+            }
+            squares.put(col + " " + row, List.of(tokens));
+        }
+        return squares;
+    }
+
+    /**
+     * @param server a server
+     * @param expected number of sessions expected
+     * @param message description of the check
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private static void awaitSessionCount(GameServer server, int expected, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while(server.getSessionCount() != expected && System.currentTimeMillis() < deadline){
+            Thread.sleep(10);
+        }
+        assertEquals(expected, server.getSessionCount(), message);
+    }
+
+    /**
+     * A game of level_0 played to its win, with moves undone and redone:
+     * every delta leads to the board played by a Simulation, with the same turn and status.
+     */
+    public static void testDeltasFollowTheBoard() throws IOException, InterruptedException {
+        var moves = new Solver(Simulation.load("levels/level_0").getBoard()).solve(Solver.Strategy.bfs).getMoves();
+        assertTrue(!moves.isEmpty(), "level_0 solved");
+        try(var server = new GameServer(LEVELS, 0); var client = new Client(server)){
+            var simulation = Simulation.load("levels/level_0");
+            var board = simulation.getBoard();
+            var history = new BoardHistory(board);
+            assertEquals("LEVEL " + board.getNumberOfCol() + " " + board.getNumberOfRow(), client.send("LOAD level_0"), "level loaded");
+            client.readDelta(client.input.readLine());
+            assertEquals("DELTA 0 continuing", client.turnAndStatus(), "first delta");
+            assertEquals(squaresOf(board), client.squares, "first delta holds the whole board");
+            for(int i = 0; i != moves.size(); i++){
+                var status = simulation.step(moves.get(i)).getStatus();
+                history.endTurn();
+                var message = "move " + i + " " + moves.get(i);
+                assertEquals("DELTA " + history.getTurnNumber() + " " + status, client.sendForDelta("MOVE " + moves.get(i).name().toUpperCase()), message);
+                assertEquals(squaresOf(board), client.squares, message + ", board");
+                if(i == 2){
+                    history.undo();
+                    history.undo();
+                    client.sendForDelta("UNDO");
+                    assertEquals("DELTA " + history.getTurnNumber() + " " + simulation.getStatus(), client.sendForDelta("UNDO"), "undo");
+                    assertEquals(squaresOf(board), client.squares, "board after two undos");
+                    history.redo();
+                    assertEquals("DELTA " + history.getTurnNumber() + " " + simulation.getStatus(), client.sendForDelta("REDO"), "redo");
+                    assertEquals(squaresOf(board), client.squares, "board after a redo");
+                    history.redo();
+                    client.sendForDelta("REDO");
+                    assertEquals(squaresOf(board), client.squares, "board after two redos");
+                }
+            }
+            assertTrue(client.delta.contains(" won "), "level won: " + client.delta);
+            assertEquals("ERROR level is over", client.send("MOVE north"), "move after the win");
+            var stats = client.send("STATS").split(" ");
+            assertEquals("STATS turn " + history.getTurnNumber(), stats[0] + " " + stats[1] + " " + stats[2], "stats");
+            assertTrue(Long.parseLong(stats[4]) > 0, "session memory");
+            assertEquals("1", stats[6], "sessions");
+            assertEquals("BYE", client.send("QUIT"), "quit");
+            assertEquals(null, client.input.readLine(), "connection closed after QUIT");
+            awaitSessionCount(server, 0, "session over after QUIT");
+        }
+    }
+
+    /**
+     * Commands which can't be executed are answered by an error, and the session goes on.
+     */
+    public static void testErrorsAreAnswered() throws IOException {
+        try(var server = new GameServer(LEVELS, 0); var client = new Client(server)){
+            assertEquals("ERROR no level loaded", client.send("MOVE north"), "move before load");
+            assertEquals("ERROR no level loaded", client.send("UNDO"), "undo before load");
+            assertEquals("ERROR unknown level", client.send("LOAD no_such_level"), "unknown level");
+            assertEquals("ERROR unknown level", client.send("LOAD"), "no level");
+            assertEquals("ERROR unknown level", client.send("LOAD ../README.md"), "file outside the levels directory");
+            assertEquals("ERROR unknown level", client.send("LOAD level_0/../../README.md"), "file outside the levels directory, through a level");
+            assertEquals("ERROR unknown level", client.send("LOAD " + Path.of("README.md").toAbsolutePath()), "absolute path");
+            assertEquals("ERROR unknown command", client.send("JUMP"), "unknown command");
+            assertTrue(client.send("LOAD level_0").startsWith("LEVEL "), "level loaded after the errors");
+            client.readDelta(client.input.readLine());
+            assertEquals("ERROR unknown direction", client.send("MOVE up"), "unknown direction");
+            assertEquals("DELTA 1 continuing", client.sendForDelta("move north"), "commands are case insensitive");
+        }
+    }
+
+    /**
+     * A line longer than the protocol allows ends the session.
+     */
+    public static void testOverlongLineEndsSession() throws IOException, InterruptedException {
+        try(var server = new GameServer(LEVELS, 0); var client = new Client(server)){
+            assertTrue(client.send("STATS").startsWith("STATS "), "session started");
+            assertEquals(null, client.send("LOAD " + "a".repeat(300)), "connection closed");
+            awaitSessionCount(server, 0, "session over");
+        }
+    }
+
+    /**
+     * Clients beyond the maximum number of sessions are turned away, and can connect once a session is over.
+     */
+    public static void testClientsBeyondMaximumAreTurnedAway() throws IOException, InterruptedException {
+        try(var server = new GameServer(LEVELS, 0, 1, GameServer.DEFAULT_MAX_SESSION_BYTES)){
+            try(var first = new Client(server)){
+                assertTrue(first.send("STATS").startsWith("STATS "), "first session started");
+                try(var second = new Client(server)){
+                    assertEquals("ERROR server full", second.input.readLine(), "second client turned away");
+                    assertEquals(null, second.input.readLine(), "second client disconnected");
+                }
+                assertTrue(first.send("STATS").endsWith(" sessions 1"), "first session goes on");
+            }
+            awaitSessionCount(server, 0, "first session over");
+            try(var third = new Client(server)){
+                assertTrue(third.send("STATS").startsWith("STATS "), "client accepted once the first session is over");
+            }
+        }
+    }
+
+    /**
+     * Closing the server ends the sessions still connected.
+     */
+    public static void testCloseEndsSessions() throws IOException, InterruptedException {
+        var server = new GameServer(LEVELS, 0);
+        try(var first = new Client(server); var second = new Client(server)){
+            assertTrue(first.send("LOAD level_0").startsWith("LEVEL "), "first session started");
+            assertTrue(second.send("STATS").startsWith("STATS "), "second session started");
+            assertEquals(2, server.getSessionCount(), "sessions");
+            server.close();
+            awaitSessionCount(server, 0, "sessions after close");
+            String line;
+            do{
+                line = first.input.readLine();
+            }while(line != null);
+            assertEquals(null, second.input.readLine(), "second client disconnected");
+        }
+    }
+}